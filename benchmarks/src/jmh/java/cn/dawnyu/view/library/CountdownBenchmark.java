@@ -0,0 +1,113 @@
+package cn.dawnyu.view.library;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * description: Benchmarks of the per-tick work of {@link CountdownView} that runs without Android:
+ * format parsing, millis to day/hour/minute/second decomposition, digit padding and layout.
+ * <p>
+ * 倒计时控件每次刷新时的纯 Java 计算的基准测试：格式解析、时间拆分、数字补零和布局。
+ * date: 26/10/17
+ * version:
+ */
+@State(Scope.Thread)
+public class CountdownBenchmark {
+    private static final String FORMAT = "dd天hh:mm:ss";
+    /**
+     * More distinct formats than {@link TimeFormat} caches, so every compile is a cache miss.
+     */
+    private static final int UNCACHED_FORMAT_COUNT = 64;
+
+    private final String[] mUncachedFormats = new String[UNCACHED_FORMAT_COUNT];
+    private int mUncachedIndex;
+
+    private TimeFormat mFormat;
+    private final long[] mTimeValues = new long[TimeFormat.UNIT_COUNT];
+    private final char[] mTimeChars = new char[20];
+    private long mMillis = 3L * 24 * 60 * 60 * 1000 + 5 * 60 * 60 * 1000 + 7 * 60 * 1000 + 9 * 1000 + 500;
+
+    private CountdownLayoutEngine mLayoutEngine;
+    private long mVisibleMask;
+    private final int[] mTimeCharCounts = {1, 2, 2, 2, 2, 3};
+    private float[] mSuffixTextWidths;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < UNCACHED_FORMAT_COUNT; i++) {
+            mUncachedFormats[i] = "dd'" + i + "'hh:mm:ss";
+        }
+
+        mFormat = TimeFormat.compile(FORMAT);
+        mFormat.getValues(mMillis, false, mTimeValues);
+        mVisibleMask = mFormat.getVisibleMask(mTimeValues);
+
+        mSuffixTextWidths = new float[mFormat.getTokenCount()];
+        for (int i = 0; i < mSuffixTextWidths.length; i++) {
+            if (mFormat.getTokenType(i) == TimeFormat.TYPE_LITERAL) {
+                mSuffixTextWidths[i] = 12 * mFormat.getLiteral(i).length();
+            }
+        }
+        mLayoutEngine = new CountdownLayoutEngine.Builder()
+                .setTimeBackgroundPadding(4, 2, 4, 2)
+                .setSuffixTextMargin(3)
+                .setTimeTextMetrics(20, 36, 28)
+                .setSuffixTextMetrics(36, 28, -18, 16)
+                .build();
+    }
+
+    @Benchmark
+    public TimeFormat compileFormatCached() {
+        return TimeFormat.compile(FORMAT);
+    }
+
+    @Benchmark
+    public TimeFormat compileFormatUncached() {
+        mUncachedIndex = (mUncachedIndex + 1) % UNCACHED_FORMAT_COUNT;
+        return TimeFormat.compile(mUncachedFormats[mUncachedIndex]);
+    }
+
+    /**
+     * Same as CountdownView#getTimeByMillis.
+     */
+    @Benchmark
+    public long decomposeMillis() {
+        mMillis -= 1000;
+        if (mMillis < 0) {
+            mMillis += 30L * 24 * 60 * 60 * 1000;
+        }
+        mFormat.getValues(mMillis, false, mTimeValues);
+        return mFormat.getVisibleMask(mTimeValues);
+    }
+
+    @Benchmark
+    public void padTimeChars(Blackhole blackhole) {
+        for (long time = 0; time < 60; time++) {
+            blackhole.consume(TimeFormat.getChars(time, 2, mTimeChars));
+        }
+    }
+
+    /**
+     * The string padding CountdownView used before {@link TimeFormat#getChars(long, int, char[])}, as a baseline.
+     */
+    @Benchmark
+    public void padTimeString(Blackhole blackhole) {
+        for (long time = 0; time < 60; time++) {
+            String timeString = String.valueOf(time);
+            if (timeString.length() < 2) {
+                for (int i = 0; i < 2 - timeString.length(); i++) {
+                    timeString = "0" + timeString;
+                }
+            }
+            blackhole.consume(timeString);
+        }
+    }
+
+    @Benchmark
+    public CountdownLayoutEngine.Layout layout() {
+        return mLayoutEngine.layout(mFormat, mVisibleMask, mTimeCharCounts, mSuffixTextWidths);
+    }
+}
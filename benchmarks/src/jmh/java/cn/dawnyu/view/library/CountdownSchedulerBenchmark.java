@@ -0,0 +1,158 @@
+package cn.dawnyu.view.library;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: {@link CountdownScheduler} with 1M registered deadlines spread over a day:
+ * scheduling and cancelling one more, one second of expirations with every expired countdown
+ * registered again a day later, and delivering everything from scratch,
+ * against a {@link PriorityQueue} of the same deadlines.
+ * Deadlines rounded to whole seconds, like server times, put about a dozen timers on each expiring millisecond.
+ * <p>
+ * 100 万个截止时间的时间轮调度器：添加并取消、每秒到期回调、全部到期，与优先队列对比；可按整秒取整截止时间。
+ * date: 26/10/17
+ * version:
+ */
+@State(Scope.Benchmark)
+public class CountdownSchedulerBenchmark {
+    private static final long SPAN = 24 * 60 * 60 * 1000L;
+    private static final long SECOND = 1000;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean wholeSeconds;
+
+    private long[] mDeadlines;
+
+    private CountdownScheduler mScheduler;
+    private long mSchedulerTime;
+    private PriorityQueue<long[]> mQueue;
+    private long mQueueTime;
+    private int mDelivered;
+
+    private final CountdownScheduler.Callback mCallback = new CountdownScheduler.Callback() {
+        @Override
+        public void onExpired(List<CountdownScheduler.Timer> timers) {
+            mDelivered += timers.size();
+        }
+    };
+
+    /**
+     * Register every expired countdown again, keeping the number of deadlines constant.
+     */
+    private final CountdownScheduler.Callback mRescheduleCallback = new CountdownScheduler.Callback() {
+        @Override
+        public void onExpired(List<CountdownScheduler.Timer> timers) {
+            for (int i = 0, size = timers.size(); i < size; i++) {
+                CountdownScheduler.Timer timer = timers.get(i);
+                mScheduler.schedule(timer.getDeadline() + SPAN, timer.getTag(), this);
+            }
+        }
+    };
+
+    private static final Comparator<long[]> DEADLINE_COMPARATOR = new Comparator<long[]>() {
+        @Override
+        public int compare(long[] o1, long[] o2) {
+            return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+        }
+    };
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Random random = new Random(size);
+        mDeadlines = new long[size];
+        for (int i = 0; i < size; i++) {
+            mDeadlines[i] = 1 + (long) (random.nextDouble() * SPAN);
+            if (wholeSeconds) {
+                mDeadlines[i] = (mDeadlines[i] + SECOND - 1) / SECOND * SECOND;
+            }
+        }
+
+        mScheduler = new CountdownScheduler(new VirtualTimeSource(0, 0));
+        mQueue = new PriorityQueue<>(size, DEADLINE_COMPARATOR);
+        for (int i = 0; i < size; i++) {
+            mScheduler.schedule(mDeadlines[i], i, mRescheduleCallback);
+            mQueue.add(new long[]{mDeadlines[i], i});
+        }
+        mSchedulerTime = 0;
+        mQueueTime = 0;
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return mScheduler.schedule(SPAN / 2, null, mCallback).cancel();
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancelPriorityQueue() {
+        long[] entry = new long[]{SPAN / 2, -1};
+        mQueue.add(entry);
+        return mQueue.remove(entry);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int tickOneSecond() {
+        mSchedulerTime += SECOND;
+        return mScheduler.advanceTo(mSchedulerTime);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int tickOneSecondPriorityQueue() {
+        mQueueTime += SECOND;
+        int delivered = 0;
+        while (!mQueue.isEmpty() && mQueue.peek()[0] <= mQueueTime) {
+            long[] entry = mQueue.poll();
+            entry[0] += SPAN;
+            mQueue.add(entry);
+            delivered++;
+        }
+        return delivered;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int scheduleAndDeliverAll() {
+        mDelivered = 0;
+        CountdownScheduler scheduler = new CountdownScheduler(new VirtualTimeSource(0, 0));
+        for (int i = 0; i < size; i++) {
+            scheduler.schedule(mDeadlines[i], i, mCallback);
+        }
+        scheduler.advanceTo(SPAN);
+        return mDelivered;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int scheduleAndDeliverAllPriorityQueue() {
+        PriorityQueue<long[]> queue = new PriorityQueue<>(size, DEADLINE_COMPARATOR);
+        for (int i = 0; i < size; i++) {
+            queue.add(new long[]{mDeadlines[i], i});
+        }
+        int delivered = 0;
+        while (!queue.isEmpty()) {
+            queue.poll();
+            delivered++;
+        }
+        return delivered;
+    }
+}
@@ -0,0 +1,210 @@
+package cn.dawnyu.view.library;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: Main thread messages and CPU time per second of countdown, for 10 to 1000 views
+ * counting down to deadlines on whole seconds: every view sharing {@link CountdownTicker},
+ * against every view posting its own message each second like the former per-view CountDownTimer.
+ * The main thread is simulated by {@link MessageQueueTimeSource}, which keeps the messages in a list
+ * sorted by time like android.os.MessageQueue. Each benchmark call is one second of countdown, the score
+ * is the CPU time of that second. The "messages" counter adds up the messages of the last second of each
+ * measurement iteration, Eg:5 times the messages per second with 5 iterations.
+ * <p>
+ * 10 到 1000 个倒计时控件每秒的主线程消息数和 CPU 耗时：共用 {@link CountdownTicker} 与每个控件各自发送消息对比。
+ * date: 26/10/17
+ * version:
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CountdownTickerBenchmark {
+    private static final String FORMAT = "dd天hh:mm:ss";
+    private static final long SECOND = 1000;
+    /**
+     * Far enough that no countdown ends during an iteration.
+     */
+    private static final long YEAR = 365 * 24 * 60 * 60 * 1000L;
+
+    @Param({"10", "100", "1000"})
+    public int views;
+
+    private MessageQueueTimeSource mTimeSource;
+    private SimulatedView[] mViews;
+
+    /**
+     * Messages run in the last simulated second of the iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Messages {
+        public int messages;
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        mTimeSource = new MessageQueueTimeSource();
+        TimeSource.setDefault(mTimeSource);
+
+        //Deadlines on whole seconds.
+        long now = mTimeSource.elapsedRealtime();
+        mViews = new SimulatedView[views];
+        for (int i = 0; i < views; i++) {
+            mViews[i] = new SimulatedView(now + YEAR + i * 60 * SECOND);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        for (SimulatedView view : mViews) {
+            CountdownTicker.getInstance().unregister(view);
+            mTimeSource.cancel(view);
+        }
+        TimeSource.setDefault(null);
+    }
+
+    @Benchmark
+    public int sharedTicker(Messages messages) {
+        if (!mViews[0].isStarted) {
+            for (SimulatedView view : mViews) {
+                view.isStarted = true;
+                CountdownTicker.getInstance().register(view, view.onTick(mTimeSource.elapsedRealtime()));
+            }
+        }
+        messages.messages = mTimeSource.advanceBy(SECOND);
+        return messages.messages;
+    }
+
+    @Benchmark
+    public int messagePerView(Messages messages) {
+        if (!mViews[0].isStarted) {
+            for (SimulatedView view : mViews) {
+                view.isStarted = true;
+                view.run();
+            }
+        }
+        messages.messages = mTimeSource.advanceBy(SECOND);
+        return messages.messages;
+    }
+
+    /**
+     * The per-tick work of a {@link CountdownView} without drawing.
+     */
+    private final class SimulatedView implements CountdownTicker.OnTickListener, Runnable {
+        private final TimeFormat mFormat = TimeFormat.compile(FORMAT);
+        private final long[] mTimeValues = new long[TimeFormat.UNIT_COUNT];
+        private final long mDeadline;
+        private boolean isStarted;
+
+        SimulatedView(long deadline) {
+            mDeadline = deadline;
+        }
+
+        @Override
+        public long onTick(long now) {
+            long millisUntilFinished = mDeadline - now;
+            mFormat.getValues(millisUntilFinished, false, mTimeValues);
+            if (millisUntilFinished <= 0) {
+                return -1;
+            }
+            return mDeadline - mFormat.getNextChangeMillis(millisUntilFinished, false);
+        }
+
+        /**
+         * Tick and post the next tick of this view alone.
+         */
+        @Override
+        public void run() {
+            long nextTickTime = onTick(mTimeSource.elapsedRealtime());
+            if (nextTickTime >= 0) {
+                mTimeSource.postAt(this, nextTickTime);
+            }
+        }
+    }
+
+    /**
+     * Single threaded message queue on a virtual clock. Messages are kept in a linked list sorted by time,
+     * a message is inserted after the ones due at the same time, as android.os.MessageQueue does.
+     */
+    private static final class MessageQueueTimeSource extends TimeSource {
+        private static final class Message {
+            Runnable task;
+            long when;
+            Message next;
+        }
+
+        private long mElapsedRealtime;
+        private Message mHead;
+
+        @Override
+        public long elapsedRealtime() {
+            return mElapsedRealtime;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return mElapsedRealtime;
+        }
+
+        @Override
+        public void postAt(Runnable task, long elapsedRealtime) {
+            cancel(task);
+
+            Message message = new Message();
+            message.task = task;
+            message.when = elapsedRealtime;
+            if (mHead == null || elapsedRealtime < mHead.when) {
+                message.next = mHead;
+                mHead = message;
+                return;
+            }
+            Message prev = mHead;
+            while (prev.next != null && prev.next.when <= elapsedRealtime) {
+                prev = prev.next;
+            }
+            message.next = prev.next;
+            prev.next = message;
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            Message prev = null;
+            for (Message message = mHead; message != null; prev = message, message = message.next) {
+                if (message.task == task) {
+                    if (prev == null) {
+                        mHead = message.next;
+                    } else {
+                        prev.next = message.next;
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return The number of messages run.
+         */
+        int advanceBy(long millis) {
+            long time = mElapsedRealtime + millis;
+            int count = 0;
+            while (mHead != null && mHead.when <= time) {
+                Message message = mHead;
+                mHead = message.next;
+                mElapsedRealtime = Math.max(mElapsedRealtime, message.when);
+                message.task.run();
+                count++;
+            }
+            mElapsedRealtime = time;
+            return count;
+        }
+    }
+}
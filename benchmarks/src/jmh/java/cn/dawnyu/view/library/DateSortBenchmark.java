@@ -0,0 +1,59 @@
+package cn.dawnyu.view.library;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * description: Sorting date strings with {@link TimeUtils#compareDate(String, String, String)}
+ * against sorting indexes by pre-parsed keys.
+ * <p>
+ * 用 compareDate 排序日期字符串和按预先解析的 key 排序下标的对比。
+ * date: 26/10/17
+ * version:
+ */
+@State(Scope.Benchmark)
+public class DateSortBenchmark {
+    private static final String FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    @Param({"100000"})
+    public int size;
+
+    private List<String> mDates;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(size);
+        mDates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            mDates.add(String.format("%04d-%02d-%02d %02d:%02d:%02d",
+                    2015 + random.nextInt(5), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60)));
+        }
+    }
+
+    @Benchmark
+    public List<String> sortWithCompareDate() {
+        List<String> dates = new ArrayList<>(mDates);
+        Collections.sort(dates, new Comparator<String>() {
+            @Override
+            public int compare(String date1, String date2) {
+                return TimeUtils.compareDate(date1, date2, FORMAT);
+            }
+        });
+        return dates;
+    }
+
+    @Benchmark
+    public int[] sortByDateKeys() {
+        return TimeUtils.getSortedIndexes(TimeUtils.getDateKeys(mDates, FORMAT));
+    }
+}
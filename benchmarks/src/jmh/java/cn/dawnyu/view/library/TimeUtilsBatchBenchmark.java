@@ -0,0 +1,78 @@
+package cn.dawnyu.view.library;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * description: Scaling benchmarks of the batch interval APIs of {@link TimeUtils},
+ * against one-by-one calls on the caller thread.
+ * <p>
+ * {@link TimeUtils} 批量计算接口在不同数量下的基准测试。
+ * date: 26/10/17
+ * version:
+ */
+@State(Scope.Benchmark)
+public class TimeUtilsBatchBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    private long mNow;
+    private long[] mDeadlines;
+    private TimeZone mZone;
+    private int[] mYears, mMonths, mDays, mHours, mMinutes, mSeconds;
+    private final int[] mInterval = new int[6];
+
+    @Setup
+    public void setup() {
+        mNow = System.currentTimeMillis();
+        mZone = TimeZone.getDefault();
+        mDeadlines = new long[size];
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            //Within a year.
+            mDeadlines[i] = mNow + (long) (random.nextDouble() * 365 * 24 * 60 * 60 * 1000);
+        }
+
+        mYears = new int[size];
+        mMonths = new int[size];
+        mDays = new int[size];
+        mHours = new int[size];
+        mMinutes = new int[size];
+        mSeconds = new int[size];
+    }
+
+    @Benchmark
+    public int[] getRemainingTimes() {
+        TimeUtils.getRemainingTimes(mDeadlines, mNow, mDays, mHours, mMinutes, mSeconds);
+        return mSeconds;
+    }
+
+    @Benchmark
+    public int[] getTimeIntervals() {
+        TimeUtils.getTimeIntervals(mDeadlines, mNow, mZone, mYears, mMonths, mDays, mHours, mMinutes, mSeconds);
+        return mSeconds;
+    }
+
+    /**
+     * Baseline of {@link #getTimeIntervals()} without splitting.
+     */
+    @Benchmark
+    public int[] getTimeIntervalsOneByOne() {
+        for (int i = 0; i < size; i++) {
+            TimeUtils.getTimeIntervalArray(mDeadlines[i], mNow, mZone, mInterval);
+            mYears[i] = mInterval[0];
+            mMonths[i] = mInterval[1];
+            mDays[i] = mInterval[2];
+            mHours[i] = mInterval[3];
+            mMinutes[i] = mInterval[4];
+            mSeconds[i] = mInterval[5];
+        }
+        return mSeconds;
+    }
+}
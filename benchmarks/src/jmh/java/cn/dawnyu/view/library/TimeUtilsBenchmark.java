@@ -0,0 +1,107 @@
+package cn.dawnyu.view.library;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * description: Benchmarks of the date helpers of {@link TimeUtils}.
+ * <p>
+ * {@link TimeUtils} 日期工具方法的基准测试。
+ * date: 26/10/17
+ * version:
+ */
+@State(Scope.Thread)
+public class TimeUtilsBenchmark {
+    private static final String FORMAT = "yyyy-MM-dd HH:mm:ss";
+    private static final String NEXT_TIME = "2018-03-01 08:30:15";
+    private static final String PREVIOUS_TIME = "2017-12-29 21:45:50";
+
+    private Calendar mNextCal;
+    private Calendar mPreviousCal;
+    private long mNextMillis;
+    private long mPreviousMillis;
+    private TimeZone mZone;
+    private final int[] mInterval = new int[6];
+    private final char[] mNextTimeChars = NEXT_TIME.toCharArray();
+
+    @Setup
+    public void setup() {
+        mNextCal = Calendar.getInstance();
+        mNextCal.set(2018, Calendar.MARCH, 1, 8, 30, 15);
+        mPreviousCal = Calendar.getInstance();
+        mPreviousCal.set(2017, Calendar.DECEMBER, 29, 21, 45, 50);
+        mNextMillis = mNextCal.getTimeInMillis();
+        mPreviousMillis = mPreviousCal.getTimeInMillis();
+        mZone = TimeZone.getDefault();
+    }
+
+    @Benchmark
+    public int[] getTimeIntervalArrayFromStrings() {
+        return TimeUtils.getTimeIntervalArray(NEXT_TIME, PREVIOUS_TIME, FORMAT);
+    }
+
+    @Benchmark
+    public int[] getTimeIntervalArrayFromCalendars() {
+        return TimeUtils.getTimeIntervalArray(mNextCal, mPreviousCal);
+    }
+
+    @Benchmark
+    public int[] getTimeIntervalArrayFromMillis() {
+        TimeUtils.getTimeIntervalArray(mNextMillis, mPreviousMillis, mZone, mInterval);
+        return mInterval;
+    }
+
+    @Benchmark
+    public String getTimeIntervalFromStrings() {
+        return TimeUtils.getTimeInterval(NEXT_TIME, PREVIOUS_TIME, FORMAT);
+    }
+
+    @Benchmark
+    public int compareDate() {
+        return TimeUtils.compareDate("2018-03-01", "2017-12-29", null);
+    }
+
+    @Benchmark
+    public int compareDateTime() {
+        return TimeUtils.compareDate(NEXT_TIME, PREVIOUS_TIME, FORMAT);
+    }
+
+    /**
+     * Parsing with a new formatter per call, as TimeUtils did before caching them.
+     */
+    @Benchmark
+    public long parseWithNewDateFormat() throws ParseException {
+        return new SimpleDateFormat(FORMAT, Locale.getDefault()).parse(NEXT_TIME).getTime();
+    }
+
+    @Benchmark
+    public long parseWithCachedDateFormat() throws ParseException {
+        return TimeUtils.getDateFormat(FORMAT, Locale.getDefault()).parse(NEXT_TIME).getTime();
+    }
+
+    @Benchmark
+    public long parseMillis() {
+        return TimeUtils.parseMillis(NEXT_TIME, FORMAT, mZone);
+    }
+
+    @Benchmark
+    public long parseMillisFromChars() {
+        return TimeUtils.parseMillis(mNextTimeChars, 0, mNextTimeChars.length, FORMAT);
+    }
+
+    /**
+     * A pattern without a fast path, parsed by the cached formatter.
+     */
+    @Benchmark
+    public long parseMillisFallback() {
+        return TimeUtils.parseMillis("2018/03/01 08:30", "yyyy/MM/dd HH:mm", mZone);
+    }
+}
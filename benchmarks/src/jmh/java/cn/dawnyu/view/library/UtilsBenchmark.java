@@ -0,0 +1,64 @@
+package cn.dawnyu.view.library;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * description: Benchmarks of the number parsing helpers of {@link Utils}.
+ * The cached dp/sp conversions need a real {@link android.content.Context} and are not covered on the JVM.
+ * <p>
+ * {@link Utils} 数字解析方法的基准测试。dp/sp 转换依赖 Context，无法在 JVM 上测试。
+ * date: 26/10/17
+ * version:
+ */
+@State(Scope.Thread)
+public class UtilsBenchmark {
+    private final float[] mNumbers = {12.5f, 3f, 48f, 0.5f, 17f, 33.3f};
+
+    @Benchmark
+    public boolean isNullOrEmpty() {
+        return Utils.isNullOrEmpty("  hh:mm:ss  ");
+    }
+
+    @Benchmark
+    public boolean canParseDouble() {
+        return Utils.canParseDouble("12.5");
+    }
+
+    /**
+     * The failure path goes through a {@link NumberFormatException}.
+     */
+    @Benchmark
+    public boolean canParseDoubleInvalid() {
+        return Utils.canParseDouble("12dp");
+    }
+
+    @Benchmark
+    public int getInt() {
+        return Utils.getInt("1024");
+    }
+
+    /**
+     * Used to throw from Integer.parseInt.
+     */
+    @Benchmark
+    public int getIntDecimal() {
+        return Utils.getInt("1.5");
+    }
+
+    @Benchmark
+    public double parseDouble() {
+        return Utils.parseDouble("12.5", 0);
+    }
+
+    @Benchmark
+    public double parseDoubleInvalid() {
+        return Utils.parseDouble("12dp", 0);
+    }
+
+    @Benchmark
+    public float getMaxNum() {
+        return Utils.getMaxNum(mNumbers);
+    }
+}
@@ -3,12 +3,8 @@ package cn.dawnyu.view.countdownview;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-
 import cn.dawnyu.view.library.CountdownView;
+import cn.dawnyu.view.library.TimeUtils;
 import cn.dawnyu.view.library.Utils;
 
 public class MainActivity extends AppCompatActivity {
@@ -21,27 +17,26 @@ public class MainActivity extends AppCompatActivity {
         String timeFormat = "dddayhhhmmmsss";
         String date = "2017-12-28 20:00:00";
         CountdownView countdownView = (CountdownView) findViewById(R.id.countdownView);
-        countdownView.start(getDate(date).getTime() - System.currentTimeMillis(), timeFormat);
+        long deadline = getMillis(date);
+        if (deadline != TimeUtils.INVALID_MILLIS) {
+            countdownView.startUntil(deadline, timeFormat);
+        }
     }
 
-    private Date getDate(String time) {
-        SimpleDateFormat df;
+    private long getMillis(String time) {
+        String pattern;
         if (!Utils.isNullOrEmpty(time)) {
             if (13 < time.length()) {
-                df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+                pattern = "yyyy-MM-dd HH:mm:ss";
             } else {
                 if (time.contains("/") || time.contains("-")) {
-                    df = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+                    pattern = "yyyy-MM-dd";
                 } else {
-                    df = new SimpleDateFormat("yyyyMMdd", Locale.getDefault());
+                    pattern = "yyyyMMdd";
                 }
             }
-            try {
-                return df.parse(time.replace("/", "-"));
-            } catch (ParseException e) {
-                e.printStackTrace();
-            }
+            return TimeUtils.parseMillis(time.replace("/", "-"), pattern);
         }
-        return null;
+        return TimeUtils.INVALID_MILLIS;
     }
 }
@@ -0,0 +1,76 @@
+package cn.dawnyu.view.library;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import cn.dawnyu.view.library.test.R;
+
+/**
+ * description: Constructor cost of a {@link CountdownView} inflated from xml, on a device.
+ * The attributes are cached per theme by {@link CountdownAttributes}: inflating with a new theme each time
+ * resolves them every time, inflating again with one theme reuses the cached record.
+ * The results are logged with the tag "CountdownViewInflationCost", Eg:adb logcat -s CountdownViewInflationCost.
+ * <p>
+ * 设备上测量从 xml 创建倒计时控件的耗时：每次新主题（不使用缓存）与同一主题（使用缓存）对比，结果输出到日志。
+ * date: 26/10/17
+ * version:
+ */
+@RunWith(AndroidJUnit4.class)
+public class CountdownViewInflationCostTest {
+    private static final String TAG = "CountdownViewInflationCost";
+    private static final int WARM_UP_COUNT = 50;
+    private static final int INFLATE_COUNT = 200;
+
+    @Test
+    public void compareInflationCost() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+
+                //Warm up the class loading and the drawable cache of the resources.
+                for (int i = 0; i < WARM_UP_COUNT; i++) {
+                    inflate(newThemedContext(context));
+                }
+
+                long start = System.nanoTime();
+                for (int i = 0; i < INFLATE_COUNT; i++) {
+                    inflate(newThemedContext(context));
+                }
+                long resolvingNanos = (System.nanoTime() - start) / INFLATE_COUNT;
+
+                Context themedContext = newThemedContext(context);
+                inflate(themedContext);
+                start = System.nanoTime();
+                for (int i = 0; i < INFLATE_COUNT; i++) {
+                    inflate(themedContext);
+                }
+                long cachedNanos = (System.nanoTime() - start) / INFLATE_COUNT;
+
+                Log.i(TAG, "CountdownView inflation: resolving the attributes " + resolvingNanos / 1000
+                        + "us, cached attributes " + cachedNanos / 1000 + "us, average of " + INFLATE_COUNT);
+            }
+        });
+    }
+
+    /**
+     * A context with a theme of its own, so the attributes cached for other themes are not used.
+     */
+    private static Context newThemedContext(Context context) {
+        return new ContextThemeWrapper(context, android.R.style.Theme_DeviceDefault);
+    }
+
+    private static void inflate(Context context) {
+        ViewGroup parent = new FrameLayout(context);
+        LayoutInflater.from(context).inflate(R.layout.item_countdown, parent, false);
+    }
+}
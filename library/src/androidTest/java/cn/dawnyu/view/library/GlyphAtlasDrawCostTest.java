@@ -0,0 +1,78 @@
+package cn.dawnyu.view.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * description: Draw cost of a {@link CountdownView} with and without {@link GlyphAtlas}, on a device.
+ * Each mode draws the same countdown into a software bitmap canvas, so the time is the CPU cost of
+ * the draw calls: shaping and rasterizing the text against blitting the pre-rendered cells.
+ * The results are logged with the tag "GlyphAtlasDrawCost", Eg:adb logcat -s GlyphAtlasDrawCost.
+ * <p>
+ * 设备上对比使用和不使用预渲染位图时的绘制耗时，结果输出到日志。
+ * date: 26/10/17
+ * version:
+ */
+@RunWith(AndroidJUnit4.class)
+public class GlyphAtlasDrawCostTest {
+    private static final String TAG = "GlyphAtlasDrawCost";
+    private static final String FORMAT = "dd天hh:mm:ss";
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final int WARM_UP_FRAMES = 200;
+    private static final int FRAMES = 2000;
+
+    @Test
+    public void compareDrawCost() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                long drawTextNanos = measureDrawNanos(false, false);
+                long atlasNanos = measureDrawNanos(true, false);
+                long staticLayerNanos = measureDrawNanos(false, true);
+                long atlasAndStaticLayerNanos = measureDrawNanos(true, true);
+                Log.i(TAG, "drawText: " + drawTextNanos + "ns/frame"
+                        + ", atlas: " + atlasNanos + "ns/frame"
+                        + ", static layer: " + staticLayerNanos + "ns/frame"
+                        + ", atlas and static layer: " + atlasAndStaticLayerNanos + "ns/frame");
+            }
+        });
+    }
+
+    /**
+     * @return Average time of one {@link View#draw(Canvas)} in nanoseconds.
+     */
+    private static long measureDrawNanos(boolean glyphAtlasEnabled, boolean staticLayerEnabled) {
+        CountdownView view = new CountdownView(InstrumentationRegistry.getTargetContext());
+        view.setGlyphAtlasEnabled(glyphAtlasEnabled);
+        view.setStaticLayerEnabled(staticLayerEnabled);
+        view.start(3 * DAY, FORMAT);
+        int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(unspecified, unspecified);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+
+        Bitmap bitmap = Bitmap.createBitmap(view.getWidth(), view.getHeight(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        //The first draw renders the atlases and records the static layer.
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            view.draw(canvas);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            view.draw(canvas);
+        }
+        long nanos = (System.nanoTime() - start) / FRAMES;
+
+        //Detached views keep the atlases, release them like onDetachedFromWindow().
+        view.setGlyphAtlasEnabled(false);
+        bitmap.recycle();
+        return nanos;
+    }
+}
@@ -0,0 +1,187 @@
+package cn.dawnyu.view.library;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * description: Resolved xml attributes of {@link CountdownView}, cached per theme.
+ * Keyed by (style resource, default style attribute, inline attribute values, configuration),
+ * so inflating the same layout again copies the cached record instead of resolving
+ * about 30 attributes and inflating both backgrounds. The backgrounds come with the
+ * shared {@link CountdownStyle}, which draws them from their constant state.
+ * <p>
+ * 按主题缓存的倒计时控件 xml 属性，同一布局再次 inflate 时直接使用缓存，不再逐个解析属性、创建背景。
+ * date: 26/10/17
+ * version:
+ */
+final class CountdownAttributes {
+    /**
+     * Upper bound of the cached attribute sets of one theme.
+     */
+    private static final int CACHE_SIZE = 32;
+    private static final int DEFAULT_HIGH_PRECISION_THRESHOLD = 10 * 1000;
+    /**
+     * The attributes of {@link R.styleable#CountdownView}, sorted to look up the inline attributes.
+     */
+    private static final int[] STYLEABLE_ATTRS;
+
+    static {
+        STYLEABLE_ATTRS = R.styleable.CountdownView.clone();
+        Arrays.sort(STYLEABLE_ATTRS);
+    }
+
+    private static final WeakHashMap<Resources.Theme, LinkedHashMap<Key, CountdownAttributes>> sCache =
+            new WeakHashMap<>();
+
+    final CountdownStyle style;
+    final boolean isGlyphAtlasEnabled;
+    final boolean isStaticLayerEnabled;
+    final long highPrecisionThreshold;
+
+    private CountdownAttributes(CountdownStyle style, boolean glyphAtlasEnabled, boolean staticLayerEnabled,
+                                long highPrecisionThreshold) {
+        this.style = style;
+        this.isGlyphAtlasEnabled = glyphAtlasEnabled;
+        this.isStaticLayerEnabled = staticLayerEnabled;
+        this.highPrecisionThreshold = highPrecisionThreshold;
+    }
+
+    /**
+     * Get the attributes of a view, resolving them only on the first inflation of their key.
+     */
+    static CountdownAttributes obtain(Context context, AttributeSet attrs, int defStyleAttr) {
+        Resources.Theme theme = context.getTheme();
+        if (theme == null) {
+            return resolve(context, attrs, defStyleAttr);
+        }
+
+        Key key = new Key(attrs, defStyleAttr, context.getResources().getConfiguration());
+        synchronized (sCache) {
+            LinkedHashMap<Key, CountdownAttributes> themeCache = sCache.get(theme);
+            CountdownAttributes attributes = themeCache != null ? themeCache.get(key) : null;
+            if (attributes != null) {
+                return attributes;
+            }
+        }
+
+        CountdownAttributes attributes = resolve(context, attrs, defStyleAttr);
+        synchronized (sCache) {
+            LinkedHashMap<Key, CountdownAttributes> themeCache = sCache.get(theme);
+            if (themeCache == null) {
+                themeCache = new LinkedHashMap<Key, CountdownAttributes>(CACHE_SIZE, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Key, CountdownAttributes> eldest) {
+                        return size() > CACHE_SIZE;
+                    }
+                };
+                sCache.put(theme, themeCache);
+            }
+            //The configuration of the resources changes in place, keep a copy.
+            themeCache.put(key.copy(), attributes);
+        }
+        return attributes;
+    }
+
+    private static CountdownAttributes resolve(Context context, AttributeSet attrs, int defStyleAttr) {
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.CountdownView, defStyleAttr, 0);
+
+        CountdownAttributes attributes = new CountdownAttributes(
+                CountdownStyle.fromTypedArray(context, typedArray),
+                typedArray.getBoolean(R.styleable.CountdownView_useGlyphAtlas, false),
+                typedArray.getBoolean(R.styleable.CountdownView_useStaticLayer, false),
+                typedArray.getInt(R.styleable.CountdownView_highPrecisionThreshold, DEFAULT_HIGH_PRECISION_THRESHOLD));
+
+        typedArray.recycle();
+        return attributes;
+    }
+
+    private static final class Key {
+        private final int styleAttr;
+        private final int defStyleAttr;
+        /**
+         * Raw values of the inline {@link R.styleable#CountdownView} attributes, by attribute.
+         * Eg:"16sp" or "@2131034150" for a resource reference.
+         */
+        private final int[] names;
+        private final String[] values;
+        private final Configuration configuration;
+        private final int hashCode;
+
+        Key(AttributeSet attrs, int defStyleAttr, Configuration configuration) {
+            int count = 0;
+            int[] names = null;
+            String[] values = null;
+            if (attrs != null) {
+                int attributeCount = attrs.getAttributeCount();
+                names = new int[attributeCount];
+                values = new String[attributeCount];
+                for (int i = 0; i < attributeCount; i++) {
+                    int name = attrs.getAttributeNameResource(i);
+                    if (Arrays.binarySearch(STYLEABLE_ATTRS, name) >= 0) {
+                        names[count] = name;
+                        values[count] = attrs.getAttributeValue(i);
+                        count++;
+                    }
+                }
+            }
+
+            this.styleAttr = attrs != null ? attrs.getStyleAttribute() : 0;
+            this.defStyleAttr = defStyleAttr;
+            this.names = names != null ? Arrays.copyOf(names, count) : new int[0];
+            this.values = values != null ? Arrays.copyOf(values, count) : new String[0];
+            this.configuration = configuration;
+            this.hashCode = computeHashCode();
+        }
+
+        private Key(Key key) {
+            this.styleAttr = key.styleAttr;
+            this.defStyleAttr = key.defStyleAttr;
+            this.names = key.names;
+            this.values = key.values;
+            this.configuration = new Configuration(key.configuration);
+            this.hashCode = key.hashCode;
+        }
+
+        Key copy() {
+            return new Key(this);
+        }
+
+        private int computeHashCode() {
+            int result = styleAttr;
+            result = 31 * result + defStyleAttr;
+            result = 31 * result + Arrays.hashCode(names);
+            result = 31 * result + Arrays.hashCode(values);
+            result = 31 * result + configuration.hashCode();
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return styleAttr == key.styleAttr
+                    && defStyleAttr == key.defStyleAttr
+                    && Arrays.equals(names, key.names)
+                    && Arrays.equals(values, key.values)
+                    && configuration.equals(key.configuration);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
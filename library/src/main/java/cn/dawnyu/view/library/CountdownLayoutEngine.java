@@ -0,0 +1,506 @@
+package cn.dawnyu.view.library;
+
+/**
+ * description: Pure Java layout of the countdown content, shared by measuring and drawing.
+ * Takes the resolved style, the text metrics and the digit counts,
+ * and returns a {@link Layout} holding a flat array of cell rects.
+ * Both the engine and its layouts are immutable.
+ * <p>
+ * 纯 Java 的倒计时布局计算，根据样式、文字尺寸和数字位数计算每个格子的位置，测量和绘制共用。
+ * date: 26/10/17
+ * version:
+ */
+final class CountdownLayoutEngine {
+    /**
+     * Background of a time item, or of a single digit when splitting.
+     */
+    static final int CELL_TIME_BACKGROUND = 0;
+    static final int CELL_DIGIT = 1;
+    /**
+     * A suffix with its background.
+     */
+    static final int CELL_SUFFIX = 2;
+
+    //--- Style ---//
+    private final float mTimeTextLetterSpacing;
+    private final float mTimeTextLetterBackgroundSpacing;
+    private final float mTimeBackgroundWidth;
+    private final float mTimeBackgroundHeight;
+    private final float mTimeBackgroundPaddingLeft;
+    private final float mTimeBackgroundPaddingRight;
+    private final float mTimeBackgroundPaddingTop;
+    private final float mTimeBackgroundPaddingBottom;
+    private final float mSuffixTextMargin;
+    private final float mSuffixBackgroundWidth;
+    private final float mSuffixBackgroundHeight;
+    private final float mSuffixBackgroundPaddingLeft;
+    private final float mSuffixBackgroundPaddingRight;
+    private final float mSuffixBackgroundPaddingTop;
+    private final float mSuffixBackgroundPaddingBottom;
+
+    //--- Metrics ---//
+    private final float mTimeTextLetterWidth;
+    private final float mTimeTextHeight;
+    private final float mTimeTextBaseline;
+    private final float mSuffixTextHeight;
+    private final float mSuffixTextBaseline;
+    private final int mColonTop;
+    private final int mColonHeight;
+
+    //--- Values derived from style and metrics ---//
+    private final float mTimeBackgroundDrawHeight;
+    private final float mTimeBackgroundDrawPaddingTop;
+    private final float mSuffixBackgroundDrawHeight;
+    private final float mSuffixBackgroundDrawPaddingTop;
+    private final float mContentHeight;
+
+    private CountdownLayoutEngine(Builder builder) {
+        mTimeTextLetterSpacing = builder.timeTextLetterSpacing;
+        mTimeTextLetterBackgroundSpacing = builder.timeTextLetterBackgroundSpacing;
+        mTimeBackgroundWidth = builder.timeBackgroundWidth;
+        mTimeBackgroundHeight = builder.timeBackgroundHeight;
+        mTimeBackgroundPaddingLeft = builder.timeBackgroundPaddingLeft;
+        mTimeBackgroundPaddingRight = builder.timeBackgroundPaddingRight;
+        mTimeBackgroundPaddingTop = builder.timeBackgroundPaddingTop;
+        mTimeBackgroundPaddingBottom = builder.timeBackgroundPaddingBottom;
+        mSuffixTextMargin = builder.suffixTextMargin;
+        mSuffixBackgroundWidth = builder.suffixBackgroundWidth;
+        mSuffixBackgroundHeight = builder.suffixBackgroundHeight;
+        mSuffixBackgroundPaddingLeft = builder.suffixBackgroundPaddingLeft;
+        mSuffixBackgroundPaddingRight = builder.suffixBackgroundPaddingRight;
+        mSuffixBackgroundPaddingTop = builder.suffixBackgroundPaddingTop;
+        mSuffixBackgroundPaddingBottom = builder.suffixBackgroundPaddingBottom;
+
+        mTimeTextLetterWidth = builder.timeTextLetterWidth;
+        mTimeTextHeight = builder.timeTextHeight;
+        mTimeTextBaseline = builder.timeTextBaseline;
+        mSuffixTextHeight = builder.suffixTextHeight;
+        mSuffixTextBaseline = builder.suffixTextBaseline;
+        mColonTop = builder.colonTop;
+        mColonHeight = builder.colonHeight;
+
+        //Time height values.
+        if (mTimeBackgroundHeight > 0) { //If the size of @timeBackgroundHeight has been specified.
+            if (mTimeBackgroundHeight < mTimeTextHeight) {
+                mTimeBackgroundDrawHeight = mTimeTextHeight;
+                mTimeBackgroundDrawPaddingTop = 0;
+            } else {
+                /*
+                 * If the size of @timeBackgroundHeight has been specified by users,
+                 * the paddings will be recalculated regardless of the values specified by users.
+                 */
+                mTimeBackgroundDrawHeight = mTimeBackgroundHeight;
+                mTimeBackgroundDrawPaddingTop = (mTimeBackgroundHeight - mTimeTextHeight) / 2;
+            }
+        } else {
+            /*
+             * If the size of @timeBackgroundHeight has not been specified,
+             * the @timeBackground will be drawn according to its text height and paddings.
+             */
+            mTimeBackgroundDrawHeight = mTimeTextHeight + mTimeBackgroundPaddingTop + mTimeBackgroundPaddingBottom;
+            mTimeBackgroundDrawPaddingTop = mTimeBackgroundPaddingTop;
+        }
+
+        //Suffix height values.
+        if (mSuffixBackgroundHeight > 0) {//If the size of @suffixBackgroundHeight has been specified.
+            if (mSuffixBackgroundHeight < mSuffixTextHeight) {
+                mSuffixBackgroundDrawHeight = mSuffixTextHeight;
+                mSuffixBackgroundDrawPaddingTop = 0;
+            } else {
+                /*
+                 * If the size of @suffixBackgroundHeight has been specified by users,
+                 * the paddings will be recalculated.
+                 */
+                mSuffixBackgroundDrawHeight = mSuffixBackgroundHeight;
+                mSuffixBackgroundDrawPaddingTop = (mSuffixBackgroundHeight - mSuffixTextHeight) / 2;
+            }
+        } else {
+            /*
+             * If the size of @suffixBackgroundHeight has not been specified,
+             * the @suffixBackground will be drawn according to its text height and paddings.
+             */
+            mSuffixBackgroundDrawHeight = mSuffixTextHeight + mSuffixBackgroundPaddingTop + mSuffixBackgroundPaddingBottom;
+            mSuffixBackgroundDrawPaddingTop = mSuffixBackgroundPaddingTop;
+        }
+
+        mContentHeight = Math.max(mTimeBackgroundDrawHeight, mSuffixBackgroundDrawHeight);
+    }
+
+    /**
+     * Lay out the visible tokens of a format in a row, vertically centered.
+     *
+     * @param visibleMask       Bit i is set if token i is shown, see {@link TimeFormat#getVisibleMask(long[])}.
+     * @param unitCharCounts    Digit count of each unit.
+     * @param suffixTextWidths  Text width of each literal token.
+     */
+    Layout layout(TimeFormat format, long visibleMask, int[] unitCharCounts, float[] suffixTextWidths) {
+        boolean isSplitting = mTimeTextLetterBackgroundSpacing > 0;
+
+        //Count the cells first.
+        int cellCount = 0;
+        for (int i = 0, count = format.getTokenCount(); i < count; i++) {
+            if ((visibleMask & (1L << i)) == 0) {
+                continue;
+            }
+            int unit = format.getTokenType(i);
+            if (unit == TimeFormat.TYPE_LITERAL) {
+                cellCount++;
+            } else {
+                cellCount += unitCharCounts[unit] * (isSplitting ? 2 : 1) + (isSplitting ? 0 : 1);
+            }
+        }
+
+        Layout layout = new Layout(cellCount, mContentHeight);
+        float timeTop = (mContentHeight - mTimeBackgroundDrawHeight) / 2;
+        float timeBottom = timeTop + mTimeBackgroundDrawHeight;
+        float timeBaseline = timeTop + mTimeBackgroundDrawPaddingTop + mTimeTextBaseline;
+        float suffixTop = (mContentHeight - mSuffixBackgroundDrawHeight) / 2;
+        float suffixBottom = suffixTop + mSuffixBackgroundDrawHeight;
+        float suffixBaseline = suffixTop + mSuffixBackgroundDrawPaddingTop + mSuffixTextBaseline;
+        /*
+         * If the suffix text is ":", it will be centered.
+         * The position of baseline is different between different languages.
+         */
+        float colonBaseline = mContentHeight / 2 - (mColonHeight / 2 + mColonTop);
+
+        float left = 0;
+        boolean isFirst = true;
+        for (int i = 0, count = format.getTokenCount(); i < count; i++) {
+            if ((visibleMask & (1L << i)) == 0) {
+                continue;
+            }
+
+            //Margin between the adjacent items.
+            if (!isFirst) {
+                left += mSuffixTextMargin;
+            }
+            isFirst = false;
+
+            int unit = format.getTokenType(i);
+            if (unit == TimeFormat.TYPE_LITERAL) {
+                float suffixTextWidth = suffixTextWidths[i];
+                float width = getSuffixBackgroundWidth(suffixTextWidth);
+                float textX = left + getSuffixBackgroundPaddingLeft(suffixTextWidth) + suffixTextWidth / 2;
+                float baseline = ":".equals(format.getLiteral(i)) ? colonBaseline : suffixBaseline;
+                layout.addCell(CELL_SUFFIX, i, 0, left, suffixTop, left + width, suffixBottom, textX, baseline);
+                left += width;
+            } else if (isSplitting) {//Split timeBackground.
+                float cellWidth = getTimeCellWidth();
+                float paddingLeft = getTimeCellPaddingLeft();
+                for (int c = 0, charCount = unitCharCounts[unit]; c < charCount; c++) {
+                    layout.addCell(CELL_TIME_BACKGROUND, i, c, left, timeTop, left + cellWidth, timeBottom, 0, 0);
+                    layout.addCell(CELL_DIGIT, i, c, left, timeTop, left + cellWidth, timeBottom,
+                            left + paddingLeft + mTimeTextLetterWidth / 2, timeBaseline);
+
+                    left += cellWidth;
+                    if (c < charCount - 1) {
+                        left += mTimeTextLetterBackgroundSpacing;
+                    }
+                }
+            } else {//Time text is a whole.
+                int charCount = unitCharCounts[unit];
+                float width = getTimeWholeWidth(charCount);
+                layout.addCell(CELL_TIME_BACKGROUND, i, 0, left, timeTop, left + width, timeBottom, 0, 0);
+
+                float letterLeft = left + getTimeWholePaddingLeft(charCount);
+                for (int c = 0; c < charCount; c++) {
+                    layout.addCell(CELL_DIGIT, i, c, letterLeft, timeTop, letterLeft + mTimeTextLetterWidth, timeBottom,
+                            letterLeft + mTimeTextLetterWidth / 2, timeBaseline);
+                    letterLeft += mTimeTextLetterWidth + mTimeTextLetterSpacing;
+                }
+                left += width;
+            }
+        }
+
+        layout.mWidth = left;
+        return layout;
+    }
+
+    private float getTimeCellWidth() {
+        //If the size of @timeBackgroundWidth has been specified.
+        if (mTimeBackgroundWidth > 0) {
+            return Math.max(mTimeBackgroundWidth, mTimeTextLetterWidth);
+        }
+        /*
+         * If the size of @timeBackgroundWidth has not been specified,
+         * the @timeBackground will be drawn according to its letter width and paddings.
+         */
+        return mTimeTextLetterWidth + mTimeBackgroundPaddingLeft + mTimeBackgroundPaddingRight;
+    }
+
+    private float getTimeCellPaddingLeft() {
+        if (mTimeBackgroundWidth > 0) {
+            /*
+             * If the size of @timeBackgroundWidth has been specified by users,
+             * the paddings will be recalculated.
+             */
+            return mTimeBackgroundWidth < mTimeTextLetterWidth ? 0 : (mTimeBackgroundWidth - mTimeTextLetterWidth) / 2;
+        }
+        return mTimeBackgroundPaddingLeft;
+    }
+
+    private float getTimeWholeWidth(int letterCount) {
+        float textWidth = letterCount * mTimeTextLetterWidth + (letterCount - 1) * mTimeTextLetterSpacing;
+        if (mTimeBackgroundWidth > 0) {
+            return Math.max(mTimeBackgroundWidth, textWidth);
+        }
+        /*
+         * If the size of @timeBackgroundWidth has not been specified,
+         * the @timeBackground will be drawn according to its text width and paddings.
+         */
+        return textWidth + mTimeBackgroundPaddingLeft + mTimeBackgroundPaddingRight;
+    }
+
+    private float getTimeWholePaddingLeft(int letterCount) {
+        float textWidth = letterCount * mTimeTextLetterWidth + (letterCount - 1) * mTimeTextLetterSpacing;
+        if (mTimeBackgroundWidth > 0) {
+            /*
+             * If the size of @timeBackgroundWidth has been specified by users,
+             * the paddings will be recalculated regardless of the values specified by users.
+             */
+            return mTimeBackgroundWidth < textWidth ? 0 : (mTimeBackgroundWidth - textWidth) / 2;
+        }
+        return mTimeBackgroundPaddingLeft;
+    }
+
+    private float getSuffixBackgroundWidth(float suffixTextWidth) {
+        if (suffixTextWidth <= 0) {
+            return 0;
+        }
+        if (mSuffixBackgroundWidth > 0) {
+            return Math.max(mSuffixBackgroundWidth, suffixTextWidth);
+        }
+        /*
+         * If the size of @suffixBackgroundWidth has not been specified,
+         * the @suffixBackground will be drawn according to its @suffixTextWidth and @paddings.
+         */
+        return suffixTextWidth + mSuffixBackgroundPaddingLeft + mSuffixBackgroundPaddingRight;
+    }
+
+    private float getSuffixBackgroundPaddingLeft(float suffixTextWidth) {
+        if (mSuffixBackgroundWidth > 0) {
+            /*
+             * If the size of @suffixBackgroundWidth has been specified by users,
+             * the paddings will be recalculated regardless of the values specified by users.
+             */
+            return mSuffixBackgroundWidth < suffixTextWidth ? 0 : (mSuffixBackgroundWidth - suffixTextWidth) / 2;
+        }
+        return mSuffixBackgroundPaddingLeft;
+    }
+
+    /**
+     * Result of {@link #layout(TimeFormat, long, int[], float[])}, in content coordinates.
+     * Cells are ordered for drawing, a background always comes before the digits on it.
+     */
+    static final class Layout {
+        private static final int BOUNDS_STRIDE = 6;
+        private static final int LEFT = 0;
+        private static final int TOP = 1;
+        private static final int RIGHT = 2;
+        private static final int BOTTOM = 3;
+        private static final int TEXT_X = 4;
+        private static final int BASELINE = 5;
+
+        private final int[] mTypes;
+        private final int[] mTokens;
+        private final int[] mChars;
+        /**
+         * left, top, right, bottom, text x, text baseline of each cell.
+         */
+        private final float[] mBounds;
+        private final float mHeight;
+        private float mWidth;
+        private int mCellCount;
+
+        private Layout(int cellCount, float height) {
+            mTypes = new int[cellCount];
+            mTokens = new int[cellCount];
+            mChars = new int[cellCount];
+            mBounds = new float[cellCount * BOUNDS_STRIDE];
+            mHeight = height;
+        }
+
+        private void addCell(int type, int token, int charIndex,
+                             float left, float top, float right, float bottom, float textX, float baseline) {
+            int index = mCellCount++;
+            mTypes[index] = type;
+            mTokens[index] = token;
+            mChars[index] = charIndex;
+            int offset = index * BOUNDS_STRIDE;
+            mBounds[offset + LEFT] = left;
+            mBounds[offset + TOP] = top;
+            mBounds[offset + RIGHT] = right;
+            mBounds[offset + BOTTOM] = bottom;
+            mBounds[offset + TEXT_X] = textX;
+            mBounds[offset + BASELINE] = baseline;
+        }
+
+        float getWidth() {
+            return mWidth;
+        }
+
+        float getHeight() {
+            return mHeight;
+        }
+
+        int getCellCount() {
+            return mCellCount;
+        }
+
+        /**
+         * @return {@link #CELL_TIME_BACKGROUND}, {@link #CELL_DIGIT} or {@link #CELL_SUFFIX}.
+         */
+        int getCellType(int cell) {
+            return mTypes[cell];
+        }
+
+        /**
+         * @return Index of the token of the cell in the format.
+         */
+        int getCellToken(int cell) {
+            return mTokens[cell];
+        }
+
+        /**
+         * @return Index of the digit of a {@link #CELL_DIGIT} in its unit.
+         */
+        int getCellChar(int cell) {
+            return mChars[cell];
+        }
+
+        float getLeft(int cell) {
+            return mBounds[cell * BOUNDS_STRIDE + LEFT];
+        }
+
+        float getTop(int cell) {
+            return mBounds[cell * BOUNDS_STRIDE + TOP];
+        }
+
+        float getRight(int cell) {
+            return mBounds[cell * BOUNDS_STRIDE + RIGHT];
+        }
+
+        float getBottom(int cell) {
+            return mBounds[cell * BOUNDS_STRIDE + BOTTOM];
+        }
+
+        /**
+         * @return Horizontal center of the text of a {@link #CELL_DIGIT} or {@link #CELL_SUFFIX}.
+         */
+        float getTextX(int cell) {
+            return mBounds[cell * BOUNDS_STRIDE + TEXT_X];
+        }
+
+        float getBaseline(int cell) {
+            return mBounds[cell * BOUNDS_STRIDE + BASELINE];
+        }
+    }
+
+    static final class Builder {
+        private float timeTextLetterSpacing;
+        private float timeTextLetterBackgroundSpacing;
+        private float timeBackgroundWidth;
+        private float timeBackgroundHeight;
+        private float timeBackgroundPaddingLeft;
+        private float timeBackgroundPaddingRight;
+        private float timeBackgroundPaddingTop;
+        private float timeBackgroundPaddingBottom;
+        private float suffixTextMargin;
+        private float suffixBackgroundWidth;
+        private float suffixBackgroundHeight;
+        private float suffixBackgroundPaddingLeft;
+        private float suffixBackgroundPaddingRight;
+        private float suffixBackgroundPaddingTop;
+        private float suffixBackgroundPaddingBottom;
+
+        private float timeTextLetterWidth;
+        private float timeTextHeight;
+        private float timeTextBaseline;
+        private float suffixTextHeight;
+        private float suffixTextBaseline;
+        private int colonTop;
+        private int colonHeight;
+
+        Builder setTimeTextLetterSpacing(float timeTextLetterSpacing) {
+            this.timeTextLetterSpacing = timeTextLetterSpacing;
+            return this;
+        }
+
+        /**
+         * Split the time background per digit if positive.
+         */
+        Builder setTimeTextLetterBackgroundSpacing(float timeTextLetterBackgroundSpacing) {
+            this.timeTextLetterBackgroundSpacing = timeTextLetterBackgroundSpacing;
+            return this;
+        }
+
+        Builder setTimeBackgroundSize(float width, float height) {
+            this.timeBackgroundWidth = width;
+            this.timeBackgroundHeight = height;
+            return this;
+        }
+
+        /**
+         * Resolved paddings of the time background.
+         */
+        Builder setTimeBackgroundPadding(float left, float top, float right, float bottom) {
+            this.timeBackgroundPaddingLeft = left;
+            this.timeBackgroundPaddingTop = top;
+            this.timeBackgroundPaddingRight = right;
+            this.timeBackgroundPaddingBottom = bottom;
+            return this;
+        }
+
+        Builder setSuffixTextMargin(float suffixTextMargin) {
+            this.suffixTextMargin = suffixTextMargin;
+            return this;
+        }
+
+        Builder setSuffixBackgroundSize(float width, float height) {
+            this.suffixBackgroundWidth = width;
+            this.suffixBackgroundHeight = height;
+            return this;
+        }
+
+        /**
+         * Resolved paddings of the suffix background.
+         */
+        Builder setSuffixBackgroundPadding(float left, float top, float right, float bottom) {
+            this.suffixBackgroundPaddingLeft = left;
+            this.suffixBackgroundPaddingTop = top;
+            this.suffixBackgroundPaddingRight = right;
+            this.suffixBackgroundPaddingBottom = bottom;
+            return this;
+        }
+
+        /**
+         * @param letterWidth Width of the widest digit.
+         * @param height      Height of a text line.
+         * @param baseline    Distance from the top of a text line to its baseline.
+         */
+        Builder setTimeTextMetrics(float letterWidth, float height, float baseline) {
+            this.timeTextLetterWidth = letterWidth;
+            this.timeTextHeight = height;
+            this.timeTextBaseline = baseline;
+            return this;
+        }
+
+        /**
+         * @param height      Height of a text line.
+         * @param baseline    Distance from the top of a text line to its baseline.
+         * @param colonTop    Top of the ":" bounds, relative to the baseline.
+         * @param colonHeight Height of the ":" bounds.
+         */
+        Builder setSuffixTextMetrics(float height, float baseline, int colonTop, int colonHeight) {
+            this.suffixTextHeight = height;
+            this.suffixTextBaseline = baseline;
+            this.colonTop = colonTop;
+            this.colonHeight = colonHeight;
+            return this;
+        }
+
+        CountdownLayoutEngine build() {
+            return new CountdownLayoutEngine(this);
+        }
+    }
+}
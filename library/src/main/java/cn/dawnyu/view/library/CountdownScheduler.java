@@ -0,0 +1,414 @@
+package cn.dawnyu.view.library;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * description: Finish and "N seconds left" events of many deadlines, independent of any view.
+ * Deadlines are kept in a hierarchical timing wheel of 1ms ticks: 11 levels of 64 slots, each level
+ * 64 times coarser than the one below, so any deadline fits and insert and cancel are O(1).
+ * Advancing only visits occupied slots, found from one bitmap per level, and moves the timers of
+ * a coarse slot down a level when its time comes. Expirations are delivered in time order,
+ * all timers expiring on the same millisecond in one batch per callback, in registration order:
+ * those timers always share a slot, and slots are first in first out, also when cascading.
+ * Times are {@link TimeSource#elapsedRealtime()} of the scheduler's time source.
+ * Not thread safe, use it from one thread, the main thread if {@link #start()} is used.
+ * <p>
+ * 多个截止时间的结束和"剩余 N 秒"回调，不依赖控件。基于分层时间轮，添加和取消都是 O(1)，
+ * 按时间顺序回调，同一毫秒到期的计时按回调分批通知。
+ * date: 26/10/17
+ * version:
+ */
+public final class CountdownScheduler {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOT_COUNT = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOT_COUNT - 1;
+    /**
+     * 11 levels of 6 bits cover every long time.
+     */
+    private static final int LEVEL_COUNT = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+
+    public interface Callback {
+        /**
+         * @param timers The timers of this callback expired on the same millisecond, in registration order.
+         *               Only valid during the call.
+         */
+        void onExpired(List<Timer> timers);
+    }
+
+    /**
+     * A registered deadline event, see {@link #schedule(long, long, Object, Callback)}.
+     */
+    public static final class Timer {
+        private final CountdownScheduler mScheduler;
+        private final long mDeadline;
+        private final long mMillisLeft;
+        private final Object mTag;
+        private final Callback mCallback;
+        /**
+         * The time the timer expires in the wheel, {@link #mDeadline} minus {@link #mMillisLeft}.
+         */
+        private final long mExpiry;
+
+        private Timer mPrev, mNext;
+        private int mLevel = -1;
+        private int mSlot;
+        private boolean isPending = true;
+
+        private Timer(CountdownScheduler scheduler, long deadline, long millisLeft, Object tag, Callback callback) {
+            mScheduler = scheduler;
+            mDeadline = deadline;
+            mMillisLeft = millisLeft;
+            mTag = tag;
+            mCallback = callback;
+            mExpiry = deadline - millisLeft;
+        }
+
+        public long getDeadline() {
+            return mDeadline;
+        }
+
+        /**
+         * @return The remaining time the timer fires at, 0 for the finish event.
+         */
+        public long getMillisLeft() {
+            return mMillisLeft;
+        }
+
+        public boolean isFinish() {
+            return mMillisLeft == 0;
+        }
+
+        public Object getTag() {
+            return mTag;
+        }
+
+        /**
+         * @return Whether the timer has neither expired nor been cancelled.
+         */
+        public boolean isPending() {
+            return isPending;
+        }
+
+        /**
+         * Same as {@link CountdownScheduler#cancel(Timer)}.
+         */
+        public boolean cancel() {
+            return mScheduler.cancel(this);
+        }
+    }
+
+    private final TimeSource mTimeSource;
+    /**
+     * Heads of the slot lists, indexed by level * {@link #SLOT_COUNT} + slot.
+     */
+    private final Timer[] mSlots = new Timer[LEVEL_COUNT * SLOT_COUNT];
+    /**
+     * Tails of the slot lists, new timers are appended.
+     */
+    private final Timer[] mSlotTails = new Timer[LEVEL_COUNT * SLOT_COUNT];
+    /**
+     * Bit i of level l is set if slot i of level l is not empty.
+     */
+    private final long[] mOccupied = new long[LEVEL_COUNT];
+    /**
+     * Every timer up to this time has expired.
+     * A timer in level l differs from it first in the slot bits of level l, where it is greater.
+     */
+    private long mCurrentTime;
+    private int mSize;
+
+    /**
+     * Timers of the millisecond being delivered.
+     */
+    private final ArrayList<Timer> mExpired = new ArrayList<>();
+    private final ArrayList<Callback> mBatchCallbacks = new ArrayList<>();
+    private final IdentityHashMap<Callback, ArrayList<Timer>> mBatches = new IdentityHashMap<>();
+
+    private boolean isAdvancing;
+    private boolean isStarted;
+    private long mWakeUpTime = Long.MAX_VALUE;
+    private final Runnable mAdvanceRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mWakeUpTime = Long.MAX_VALUE;
+            advanceTo(mTimeSource.elapsedRealtime());
+        }
+    };
+
+    public CountdownScheduler() {
+        this(TimeSource.getDefault());
+    }
+
+    public CountdownScheduler(TimeSource timeSource) {
+        mTimeSource = timeSource;
+        mCurrentTime = timeSource.elapsedRealtime();
+    }
+
+    /**
+     * Register the finish event of a deadline.
+     */
+    public Timer schedule(long deadline, Object tag, Callback callback) {
+        return schedule(deadline, 0, tag, callback);
+    }
+
+    /**
+     * Register an event at a remaining time of a deadline, Eg:10 seconds left.
+     * An event already due is delivered on the next advance.
+     *
+     * @param deadline   {@link TimeSource#elapsedRealtime()} of the end.
+     * @param millisLeft 0 for the finish event.
+     * @param tag        Any object to identify the countdown, Eg:an item id.
+     */
+    public Timer schedule(long deadline, long millisLeft, Object tag, Callback callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("callback == null");
+        }
+        if (millisLeft < 0) {
+            throw new IllegalArgumentException("millisLeft < 0: " + millisLeft);
+        }
+
+        Timer timer = new Timer(this, deadline, millisLeft, tag, callback);
+        insert(timer);
+        mSize++;
+        scheduleWakeUp();
+        return timer;
+    }
+
+    /**
+     * @return Whether the timer was pending, false if it already expired or was cancelled.
+     */
+    public boolean cancel(Timer timer) {
+        if (timer.mScheduler != this || !timer.isPending) {
+            return false;
+        }
+
+        timer.isPending = false;
+        //A timer of the batch being delivered is no longer in the wheel.
+        if (timer.mLevel >= 0) {
+            unlink(timer);
+        }
+        mSize--;
+        return true;
+    }
+
+    /**
+     * @return The number of pending timers.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Advance automatically on the time source, with one pending task for the next occupied slot.
+     */
+    public void start() {
+        isStarted = true;
+        scheduleWakeUp();
+    }
+
+    public void stop() {
+        isStarted = false;
+        if (mWakeUpTime != Long.MAX_VALUE) {
+            mTimeSource.cancel(mAdvanceRunnable);
+            mWakeUpTime = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Deliver every timer expiring up to a time, in time order.
+     * Timers scheduled by the callbacks are delivered too if they are due.
+     *
+     * @return The number of timers delivered.
+     * @throws IllegalStateException If called from a callback.
+     */
+    public int advanceTo(long now) {
+        if (isAdvancing) {
+            throw new IllegalStateException("advanceTo called from a callback");
+        }
+
+        isAdvancing = true;
+        try {
+            return advance(now);
+        } finally {
+            isAdvancing = false;
+        }
+    }
+
+    private int advance(long now) {
+        int delivered = 0;
+        while (true) {
+            int level = getLowestOccupiedLevel();
+            if (level < 0) {
+                break;
+            }
+
+            int slot = getNextSlot(level);
+            long slotTime = getSlotTime(level, slot);
+            if (slotTime > now) {
+                break;
+            }
+
+            //Every timer up to the slot start has expired, the lower levels are empty.
+            mCurrentTime = slotTime;
+            Timer timer = takeSlot(level, slot);
+            while (timer != null) {
+                Timer next = timer.mNext;
+                timer.mPrev = null;
+                timer.mNext = null;
+                if (timer.mExpiry <= slotTime) {
+                    timer.mLevel = -1;
+                    mExpired.add(timer);
+                } else {
+                    //Cascade to a finer level, in order behind the timers already there.
+                    insert(timer);
+                }
+                timer = next;
+            }
+
+            if (!mExpired.isEmpty()) {
+                delivered += deliverExpired();
+            }
+        }
+
+        mCurrentTime = Math.max(mCurrentTime, now);
+        scheduleWakeUp();
+        return delivered;
+    }
+
+    private void insert(Timer timer) {
+        //A timer already due expires on the next millisecond.
+        long expiry = Math.max(timer.mExpiry, mCurrentTime + 1);
+        long diff = expiry ^ mCurrentTime;
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS;
+        int slot = (int) (expiry >>> (level * SLOT_BITS)) & SLOT_MASK;
+
+        int index = level * SLOT_COUNT + slot;
+        Timer tail = mSlotTails[index];
+        timer.mLevel = level;
+        timer.mSlot = slot;
+        timer.mPrev = tail;
+        timer.mNext = null;
+        if (tail != null) {
+            tail.mNext = timer;
+        } else {
+            mSlots[index] = timer;
+        }
+        mSlotTails[index] = timer;
+        mOccupied[level] |= 1L << slot;
+    }
+
+    private void unlink(Timer timer) {
+        int index = timer.mLevel * SLOT_COUNT + timer.mSlot;
+        if (timer.mPrev != null) {
+            timer.mPrev.mNext = timer.mNext;
+        } else {
+            mSlots[index] = timer.mNext;
+        }
+        if (timer.mNext != null) {
+            timer.mNext.mPrev = timer.mPrev;
+        } else {
+            mSlotTails[index] = timer.mPrev;
+        }
+        if (mSlots[index] == null) {
+            mOccupied[timer.mLevel] &= ~(1L << timer.mSlot);
+        }
+        timer.mPrev = null;
+        timer.mNext = null;
+        timer.mLevel = -1;
+    }
+
+    private Timer takeSlot(int level, int slot) {
+        int index = level * SLOT_COUNT + slot;
+        Timer head = mSlots[index];
+        mSlots[index] = null;
+        mSlotTails[index] = null;
+        mOccupied[level] &= ~(1L << slot);
+        return head;
+    }
+
+    private int getLowestOccupiedLevel() {
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            if (mOccupied[level] != 0) {
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The occupied slots of a level are all after the current slot of the level, the first one is the earliest.
+     */
+    private int getNextSlot(int level) {
+        return Long.numberOfTrailingZeros(mOccupied[level]);
+    }
+
+    /**
+     * @return The start time of a slot, sharing the bits above the level with {@link #mCurrentTime}.
+     */
+    private long getSlotTime(int level, int slot) {
+        int shift = level * SLOT_BITS;
+        long high = shift + SLOT_BITS >= Long.SIZE ? 0 : mCurrentTime >>> (shift + SLOT_BITS) << (shift + SLOT_BITS);
+        return high | ((long) slot << shift);
+    }
+
+    /**
+     * Deliver the timers of one millisecond, one batch per callback in registration order.
+     */
+    private int deliverExpired() {
+        int count = mExpired.size();
+        for (int i = 0; i < count; i++) {
+            Timer timer = mExpired.get(i);
+            ArrayList<Timer> batch = mBatches.get(timer.mCallback);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                mBatches.put(timer.mCallback, batch);
+                mBatchCallbacks.add(timer.mCallback);
+            }
+            batch.add(timer);
+        }
+        mExpired.clear();
+
+        int delivered = 0;
+        for (int i = 0, size = mBatchCallbacks.size(); i < size; i++) {
+            Callback callback = mBatchCallbacks.get(i);
+            ArrayList<Timer> batch = mBatches.remove(callback);
+            //Earlier callbacks of the batch may cancel the later timers.
+            for (int j = batch.size() - 1; j >= 0; j--) {
+                Timer timer = batch.get(j);
+                if (timer.isPending) {
+                    timer.isPending = false;
+                    mSize--;
+                } else {
+                    batch.remove(j);
+                }
+            }
+            if (!batch.isEmpty()) {
+                delivered += batch.size();
+                callback.onExpired(batch);
+            }
+        }
+        mBatchCallbacks.clear();
+        return delivered;
+    }
+
+    private void scheduleWakeUp() {
+        if (!isStarted) {
+            return;
+        }
+
+        int level = getLowestOccupiedLevel();
+        long wakeUpTime = level < 0 ? Long.MAX_VALUE : getSlotTime(level, getNextSlot(level));
+        if (wakeUpTime == mWakeUpTime) {
+            return;
+        }
+
+        mWakeUpTime = wakeUpTime;
+        if (wakeUpTime == Long.MAX_VALUE) {
+            mTimeSource.cancel(mAdvanceRunnable);
+        } else {
+            mTimeSource.postAt(mAdvanceRunnable, wakeUpTime);
+        }
+    }
+}
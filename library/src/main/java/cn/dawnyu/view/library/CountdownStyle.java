@@ -0,0 +1,687 @@
+package cn.dawnyu.view.library;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * description: Immutable text and background style of {@link CountdownView}.
+ * Styles are interned, all views with equal attributes share one instance,
+ * together with its paints, resolved paddings, text metrics and layout engine.
+ * Changing the style of a view swaps in another shared instance, see {@link #buildUpon()}.
+ * Backgrounds are compared by their {@link Drawable.ConstantState}, and each view draws its own copy of them,
+ * see {@link #newTimeBackground(Resources)}. Do not mutate a drawable after building a style with it.
+ * <p>
+ * 不可变的倒计时控件样式。相同属性的控件共用同一个实例，以及它的画笔、内边距、文字尺寸和布局计算。
+ * 修改样式时替换为另一个共享实例，见 {@link #buildUpon()}。
+ * date: 26/10/17
+ * version:
+ */
+public final class CountdownStyle {
+    private static final WeakHashMap<CountdownStyle, WeakReference<CountdownStyle>> sStyles = new WeakHashMap<>();
+
+    //--- Time style start ---//
+    private final boolean mIncludePad;
+    private final int mTimeTextSize;
+    private final int mTimeTextColor;
+    private final boolean isTimeTextBold;
+    /**
+     * Margin between time text letters.
+     */
+    private final float mTimeTextLetterSpacing;
+    private final float mTimeTextLetterBackgroundSpacing;
+    private final Drawable mTimeBackground;
+    private final float mTimeBackgroundWidth;
+    private final float mTimeBackgroundHeight;
+    private final float mTimeBackgroundPadding;
+    private final float mTimeBackgroundPaddingX;
+    private final float mTimeBackgroundPaddingY;
+    private final float mTimeBackgroundPaddingLeft;
+    private final float mTimeBackgroundPaddingRight;
+    private final float mTimeBackgroundPaddingTop;
+    private final float mTimeBackgroundPaddingBottom;
+    private final Paint mCustomTimeTextPaint;
+    //--- Time style end ---//
+
+    //--- Suffix style start ---//
+    private final int mSuffixTextSize;
+    private final int mSuffixTextColor;
+    private final boolean isSuffixTextBold;
+    /**
+     * Margin between the adjacent time text and suffix text.
+     */
+    private final float mSuffixTextMargin;
+    private final Drawable mSuffixBackground;
+    private final float mSuffixBackgroundWidth;
+    private final float mSuffixBackgroundHeight;
+    private final float mSuffixBackgroundPadding;
+    private final float mSuffixBackgroundPaddingX;
+    private final float mSuffixBackgroundPaddingY;
+    private final float mSuffixBackgroundPaddingLeft;
+    private final float mSuffixBackgroundPaddingRight;
+    private final float mSuffixBackgroundPaddingTop;
+    private final float mSuffixBackgroundPaddingBottom;
+    private final Paint mCustomSuffixTextPaint;
+    //--- Suffix style end ---//
+
+    //--- Resolved only once per interned style, see resolve() ---//
+    private Paint mTimeTextPaint, mSuffixTextPaint;
+    private GlyphMetrics mTimeTextMetrics, mSuffixTextMetrics;
+    private CountdownLayoutEngine mLayoutEngine;
+
+    private CountdownStyle(Builder builder) {
+        mIncludePad = builder.includePad;
+        mTimeTextSize = builder.timeTextSize;
+        mTimeTextColor = builder.timeTextColor;
+        isTimeTextBold = builder.isTimeTextBold;
+        mTimeTextLetterSpacing = builder.timeTextLetterSpacing;
+        mTimeTextLetterBackgroundSpacing = builder.timeTextLetterBackgroundSpacing;
+        mTimeBackground = builder.timeBackground;
+        mTimeBackgroundWidth = builder.timeBackgroundWidth;
+        mTimeBackgroundHeight = builder.timeBackgroundHeight;
+        mTimeBackgroundPadding = builder.timeBackgroundPadding;
+        mTimeBackgroundPaddingX = builder.timeBackgroundPaddingX;
+        mTimeBackgroundPaddingY = builder.timeBackgroundPaddingY;
+        mTimeBackgroundPaddingLeft = builder.timeBackgroundPaddingLeft;
+        mTimeBackgroundPaddingRight = builder.timeBackgroundPaddingRight;
+        mTimeBackgroundPaddingTop = builder.timeBackgroundPaddingTop;
+        mTimeBackgroundPaddingBottom = builder.timeBackgroundPaddingBottom;
+        mCustomTimeTextPaint = builder.timeTextPaint;
+
+        mSuffixTextSize = builder.suffixTextSize;
+        mSuffixTextColor = builder.suffixTextColor;
+        isSuffixTextBold = builder.isSuffixTextBold;
+        mSuffixTextMargin = builder.suffixTextMargin;
+        mSuffixBackground = builder.suffixBackground;
+        mSuffixBackgroundWidth = builder.suffixBackgroundWidth;
+        mSuffixBackgroundHeight = builder.suffixBackgroundHeight;
+        mSuffixBackgroundPadding = builder.suffixBackgroundPadding;
+        mSuffixBackgroundPaddingX = builder.suffixBackgroundPaddingX;
+        mSuffixBackgroundPaddingY = builder.suffixBackgroundPaddingY;
+        mSuffixBackgroundPaddingLeft = builder.suffixBackgroundPaddingLeft;
+        mSuffixBackgroundPaddingRight = builder.suffixBackgroundPaddingRight;
+        mSuffixBackgroundPaddingTop = builder.suffixBackgroundPaddingTop;
+        mSuffixBackgroundPaddingBottom = builder.suffixBackgroundPaddingBottom;
+        mCustomSuffixTextPaint = builder.suffixTextPaint;
+    }
+
+    /**
+     * Read the style from the attributes of a view.
+     * Attributes already resolved for the same layout, style and theme are taken from a cache.
+     */
+    public static CountdownStyle fromAttributes(Context context, AttributeSet attrs, int defStyleAttr) {
+        return CountdownAttributes.obtain(context, attrs, defStyleAttr).style;
+    }
+
+    /**
+     * Read the style from resolved attributes, the typed array is not recycled.
+     */
+    static CountdownStyle fromTypedArray(Context context, TypedArray typedArray) {
+        Builder builder = new Builder(context)
+                .setIncludePad(typedArray.getBoolean(R.styleable.CountdownView_includeFontPadding, false))
+                .setTimeTextSize(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeTextSize, Utils.getSp2Px(context, 13)))
+                .setTimeTextColor(typedArray.getColor(R.styleable.CountdownView_timeTextColor, Color.BLACK))
+                .setTimeTextBold(typedArray.getBoolean(R.styleable.CountdownView_isTimeTextBold, false))
+
+                .setTimeTextLetterSpacing(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeTextLetterSpacing, 0))
+                .setTimeTextLetterBackgroundSpacing(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeTextLetterBackgroundSpacing, 0))
+
+                .setTimeBackground(typedArray.getDrawable(R.styleable.CountdownView_timeBackground))
+                .setTimeBackgroundWidth(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundWidth, 0))
+                .setTimeBackgroundHeight(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundHeight, 0))
+
+                .setTimeBackgroundPadding(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPadding, 0))
+                .setTimeBackgroundPaddingX(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingX, 0))
+                .setTimeBackgroundPaddingY(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingY, 0))
+                .setTimeBackgroundPaddingLeft(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingLeft, 0))
+                .setTimeBackgroundPaddingRight(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingRight, 0))
+                .setTimeBackgroundPaddingTop(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingTop, 0))
+                .setTimeBackgroundPaddingBottom(typedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingBottom, 0))
+
+                .setSuffixTextSize(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixTextSize, Utils.getSp2Px(context, 16)))
+                .setSuffixTextColor(typedArray.getColor(R.styleable.CountdownView_suffixTextColor, Color.BLACK))
+                .setSuffixTextBold(typedArray.getBoolean(R.styleable.CountdownView_isSuffixTextBold, false))
+
+                .setSuffixTextMargin(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixTextMargin, 0))
+
+                .setSuffixBackground(typedArray.getDrawable(R.styleable.CountdownView_suffixBackground))
+                .setSuffixBackgroundWidth(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundWidth, 0))
+                .setSuffixBackgroundHeight(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundHeight, 0))
+
+                .setSuffixBackgroundPadding(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPadding, 0))
+                .setSuffixBackgroundPaddingX(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingX, 0))
+                .setSuffixBackgroundPaddingY(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingY, 0))
+                .setSuffixBackgroundPaddingLeft(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingLeft, 0))
+                .setSuffixBackgroundPaddingRight(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingRight, 0))
+                .setSuffixBackgroundPaddingTop(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingTop, 0))
+                .setSuffixBackgroundPaddingBottom(typedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingBottom, 0));
+
+        return builder.build();
+    }
+
+    /**
+     * @return A builder holding the attributes of this style, to build a modified copy.
+     */
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    /**
+     * Create the paints, metrics and layout engine, only once per interned style.
+     */
+    private void resolve() {
+        if (mCustomTimeTextPaint != null) {
+            mTimeTextPaint = mCustomTimeTextPaint;
+        } else {
+            mTimeTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mTimeTextPaint.setColor(mTimeTextColor);
+            mTimeTextPaint.setTextSize(mTimeTextSize);
+            mTimeTextPaint.setTextAlign(Paint.Align.CENTER);
+            if (isTimeTextBold) {
+                mTimeTextPaint.setFakeBoldText(true);
+            }
+        }
+
+        if (mCustomSuffixTextPaint != null) {
+            mSuffixTextPaint = mCustomSuffixTextPaint;
+        } else {
+            mSuffixTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mSuffixTextPaint.setColor(mSuffixTextColor);
+            mSuffixTextPaint.setTextSize(mSuffixTextSize);
+            mSuffixTextPaint.setTextAlign(Paint.Align.CENTER);
+            if (isSuffixTextBold) {
+                mSuffixTextPaint.setFakeBoldText(true);
+            }
+        }
+
+        //Custom paints may set anything, the shared metrics only tell apart what the built paints set.
+        mTimeTextMetrics = mCustomTimeTextPaint != null
+                ? GlyphMetrics.create(mTimeTextPaint, mIncludePad) : GlyphMetrics.obtain(mTimeTextPaint, mIncludePad);
+        mSuffixTextMetrics = mCustomSuffixTextPaint != null
+                ? GlyphMetrics.create(mSuffixTextPaint, mIncludePad) : GlyphMetrics.obtain(mSuffixTextPaint, mIncludePad);
+
+        mLayoutEngine = new CountdownLayoutEngine.Builder()
+                .setTimeTextLetterSpacing(mTimeTextLetterSpacing)
+                .setTimeTextLetterBackgroundSpacing(mTimeTextLetterBackgroundSpacing)
+                .setTimeBackgroundSize(mTimeBackgroundWidth, mTimeBackgroundHeight)
+                .setTimeBackgroundPadding(
+                        getTimePadding(mTimeBackgroundPaddingLeft, "x"),
+                        getTimePadding(mTimeBackgroundPaddingTop, "y"),
+                        getTimePadding(mTimeBackgroundPaddingRight, "x"),
+                        getTimePadding(mTimeBackgroundPaddingBottom, "y"))
+                .setSuffixTextMargin(mSuffixTextMargin)
+                .setSuffixBackgroundSize(mSuffixBackgroundWidth, mSuffixBackgroundHeight)
+                .setSuffixBackgroundPadding(
+                        getSuffixPadding(mSuffixBackgroundPaddingLeft, "x"),
+                        getSuffixPadding(mSuffixBackgroundPaddingTop, "y"),
+                        getSuffixPadding(mSuffixBackgroundPaddingRight, "x"),
+                        getSuffixPadding(mSuffixBackgroundPaddingBottom, "y"))
+                .setTimeTextMetrics(mTimeTextMetrics.maxDigitWidth, mTimeTextMetrics.textHeight, mTimeTextMetrics.baseline)
+                .setSuffixTextMetrics(mSuffixTextMetrics.textHeight, mSuffixTextMetrics.baseline,
+                        mSuffixTextMetrics.colonTop, mSuffixTextMetrics.colonHeight)
+                .build();
+    }
+
+    /**
+     * A side padding falls back to the padding of its axis, then to the padding of all sides.
+     */
+    private float getTimePadding(float padding, String type) {
+        if (padding == 0)
+            switch (type) {
+                case "x":
+                    return mTimeBackgroundPaddingX == 0 ? mTimeBackgroundPadding : mTimeBackgroundPaddingX;
+                case "y":
+                    return mTimeBackgroundPaddingY == 0 ? mTimeBackgroundPadding : mTimeBackgroundPaddingY;
+            }
+
+        return padding;
+    }
+
+    private float getSuffixPadding(float padding, String type) {
+        if (padding == 0)
+            switch (type) {
+                case "x":
+                    return mSuffixBackgroundPaddingX == 0 ? mSuffixBackgroundPadding : mSuffixBackgroundPaddingX;
+                case "y":
+                    return mSuffixBackgroundPaddingY == 0 ? mSuffixBackgroundPadding : mSuffixBackgroundPaddingY;
+            }
+
+        return padding;
+    }
+
+    boolean isIncludePad() {
+        return mIncludePad;
+    }
+
+    /**
+     * A copy of the time background for one view, so views do not share the bounds, state and alpha
+     * of one drawable. Null if there is no time background.
+     */
+    Drawable newTimeBackground(Resources res) {
+        return newDrawable(mTimeBackground, res);
+    }
+
+    /**
+     * Same as {@link #newTimeBackground(Resources)} for the suffix background.
+     */
+    Drawable newSuffixBackground(Resources res) {
+        return newDrawable(mSuffixBackground, res);
+    }
+
+    /**
+     * Shared by all views with this style, must not be modified.
+     */
+    Paint getTimeTextPaint() {
+        return mTimeTextPaint;
+    }
+
+    /**
+     * Shared by all views with this style, must not be modified.
+     */
+    Paint getSuffixTextPaint() {
+        return mSuffixTextPaint;
+    }
+
+    /**
+     * @return Whether a text paint was set with {@link Builder#setTimeTextPaint(Paint)} or
+     * {@link Builder#setSuffixTextPaint(Paint)}. Such a paint may differ from others in anything,
+     * Eg:a shader or text scale, so it neither shares text metrics nor draws from a {@link GlyphAtlas}.
+     */
+    boolean hasCustomTextPaint() {
+        return mCustomTimeTextPaint != null || mCustomSuffixTextPaint != null;
+    }
+
+    GlyphMetrics getTimeTextMetrics() {
+        return mTimeTextMetrics;
+    }
+
+    GlyphMetrics getSuffixTextMetrics() {
+        return mSuffixTextMetrics;
+    }
+
+    CountdownLayoutEngine getLayoutEngine() {
+        return mLayoutEngine;
+    }
+
+    /**
+     * Drawables loaded from the same resource share a {@link Drawable.ConstantState}.
+     */
+    private static Object getDrawableKey(Drawable drawable) {
+        if (drawable == null) {
+            return null;
+        }
+        Drawable.ConstantState state = drawable.getConstantState();
+        return state != null ? state : drawable;
+    }
+
+    /**
+     * A drawable without a {@link Drawable.ConstantState} can not be copied, every view draws that instance.
+     */
+    private static Drawable newDrawable(Drawable drawable, Resources res) {
+        if (drawable == null) {
+            return null;
+        }
+        Drawable.ConstantState state = drawable.getConstantState();
+        return state != null ? state.newDrawable(res).mutate() : drawable;
+    }
+
+    private static boolean isSameDrawable(Drawable drawable1, Drawable drawable2) {
+        return getDrawableKey(drawable1) == getDrawableKey(drawable2);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CountdownStyle)) {
+            return false;
+        }
+        CountdownStyle style = (CountdownStyle) o;
+        return mIncludePad == style.mIncludePad
+                && mTimeTextSize == style.mTimeTextSize
+                && mTimeTextColor == style.mTimeTextColor
+                && isTimeTextBold == style.isTimeTextBold
+                && Float.compare(mTimeTextLetterSpacing, style.mTimeTextLetterSpacing) == 0
+                && Float.compare(mTimeTextLetterBackgroundSpacing, style.mTimeTextLetterBackgroundSpacing) == 0
+                && isSameDrawable(mTimeBackground, style.mTimeBackground)
+                && Float.compare(mTimeBackgroundWidth, style.mTimeBackgroundWidth) == 0
+                && Float.compare(mTimeBackgroundHeight, style.mTimeBackgroundHeight) == 0
+                && Float.compare(mTimeBackgroundPadding, style.mTimeBackgroundPadding) == 0
+                && Float.compare(mTimeBackgroundPaddingX, style.mTimeBackgroundPaddingX) == 0
+                && Float.compare(mTimeBackgroundPaddingY, style.mTimeBackgroundPaddingY) == 0
+                && Float.compare(mTimeBackgroundPaddingLeft, style.mTimeBackgroundPaddingLeft) == 0
+                && Float.compare(mTimeBackgroundPaddingRight, style.mTimeBackgroundPaddingRight) == 0
+                && Float.compare(mTimeBackgroundPaddingTop, style.mTimeBackgroundPaddingTop) == 0
+                && Float.compare(mTimeBackgroundPaddingBottom, style.mTimeBackgroundPaddingBottom) == 0
+                && mCustomTimeTextPaint == style.mCustomTimeTextPaint
+                && mSuffixTextSize == style.mSuffixTextSize
+                && mSuffixTextColor == style.mSuffixTextColor
+                && isSuffixTextBold == style.isSuffixTextBold
+                && Float.compare(mSuffixTextMargin, style.mSuffixTextMargin) == 0
+                && isSameDrawable(mSuffixBackground, style.mSuffixBackground)
+                && Float.compare(mSuffixBackgroundWidth, style.mSuffixBackgroundWidth) == 0
+                && Float.compare(mSuffixBackgroundHeight, style.mSuffixBackgroundHeight) == 0
+                && Float.compare(mSuffixBackgroundPadding, style.mSuffixBackgroundPadding) == 0
+                && Float.compare(mSuffixBackgroundPaddingX, style.mSuffixBackgroundPaddingX) == 0
+                && Float.compare(mSuffixBackgroundPaddingY, style.mSuffixBackgroundPaddingY) == 0
+                && Float.compare(mSuffixBackgroundPaddingLeft, style.mSuffixBackgroundPaddingLeft) == 0
+                && Float.compare(mSuffixBackgroundPaddingRight, style.mSuffixBackgroundPaddingRight) == 0
+                && Float.compare(mSuffixBackgroundPaddingTop, style.mSuffixBackgroundPaddingTop) == 0
+                && Float.compare(mSuffixBackgroundPaddingBottom, style.mSuffixBackgroundPaddingBottom) == 0
+                && mCustomSuffixTextPaint == style.mCustomSuffixTextPaint;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mIncludePad ? 1 : 0;
+        result = 31 * result + mTimeTextSize;
+        result = 31 * result + mTimeTextColor;
+        result = 31 * result + (isTimeTextBold ? 1 : 0);
+        result = 31 * result + Float.floatToIntBits(mTimeTextLetterSpacing);
+        result = 31 * result + Float.floatToIntBits(mTimeTextLetterBackgroundSpacing);
+        result = 31 * result + System.identityHashCode(getDrawableKey(mTimeBackground));
+        result = 31 * result + Float.floatToIntBits(mTimeBackgroundWidth);
+        result = 31 * result + Float.floatToIntBits(mTimeBackgroundHeight);
+        result = 31 * result + Float.floatToIntBits(mTimeBackgroundPadding);
+        result = 31 * result + Float.floatToIntBits(mTimeBackgroundPaddingX);
+        result = 31 * result + Float.floatToIntBits(mTimeBackgroundPaddingY);
+        result = 31 * result + Float.floatToIntBits(mTimeBackgroundPaddingLeft);
+        result = 31 * result + Float.floatToIntBits(mTimeBackgroundPaddingRight);
+        result = 31 * result + Float.floatToIntBits(mTimeBackgroundPaddingTop);
+        result = 31 * result + Float.floatToIntBits(mTimeBackgroundPaddingBottom);
+        result = 31 * result + System.identityHashCode(mCustomTimeTextPaint);
+        result = 31 * result + mSuffixTextSize;
+        result = 31 * result + mSuffixTextColor;
+        result = 31 * result + (isSuffixTextBold ? 1 : 0);
+        result = 31 * result + Float.floatToIntBits(mSuffixTextMargin);
+        result = 31 * result + System.identityHashCode(getDrawableKey(mSuffixBackground));
+        result = 31 * result + Float.floatToIntBits(mSuffixBackgroundWidth);
+        result = 31 * result + Float.floatToIntBits(mSuffixBackgroundHeight);
+        result = 31 * result + Float.floatToIntBits(mSuffixBackgroundPadding);
+        result = 31 * result + Float.floatToIntBits(mSuffixBackgroundPaddingX);
+        result = 31 * result + Float.floatToIntBits(mSuffixBackgroundPaddingY);
+        result = 31 * result + Float.floatToIntBits(mSuffixBackgroundPaddingLeft);
+        result = 31 * result + Float.floatToIntBits(mSuffixBackgroundPaddingRight);
+        result = 31 * result + Float.floatToIntBits(mSuffixBackgroundPaddingTop);
+        result = 31 * result + Float.floatToIntBits(mSuffixBackgroundPaddingBottom);
+        result = 31 * result + System.identityHashCode(mCustomSuffixTextPaint);
+        return result;
+    }
+
+    /**
+     * Sizes are in pixels.
+     */
+    public static final class Builder {
+        private boolean includePad;
+        private int timeTextSize;
+        private int timeTextColor = Color.BLACK;
+        private boolean isTimeTextBold;
+        private float timeTextLetterSpacing;
+        private float timeTextLetterBackgroundSpacing;
+        private Drawable timeBackground;
+        private float timeBackgroundWidth;
+        private float timeBackgroundHeight;
+        private float timeBackgroundPadding;
+        private float timeBackgroundPaddingX;
+        private float timeBackgroundPaddingY;
+        private float timeBackgroundPaddingLeft;
+        private float timeBackgroundPaddingRight;
+        private float timeBackgroundPaddingTop;
+        private float timeBackgroundPaddingBottom;
+        private Paint timeTextPaint;
+
+        private int suffixTextSize;
+        private int suffixTextColor = Color.BLACK;
+        private boolean isSuffixTextBold;
+        private float suffixTextMargin;
+        private Drawable suffixBackground;
+        private float suffixBackgroundWidth;
+        private float suffixBackgroundHeight;
+        private float suffixBackgroundPadding;
+        private float suffixBackgroundPaddingX;
+        private float suffixBackgroundPaddingY;
+        private float suffixBackgroundPaddingLeft;
+        private float suffixBackgroundPaddingRight;
+        private float suffixBackgroundPaddingTop;
+        private float suffixBackgroundPaddingBottom;
+        private Paint suffixTextPaint;
+
+        /**
+         * Start with the default style: 13sp time text and 16sp suffix text, both black.
+         */
+        public Builder(Context context) {
+            timeTextSize = Utils.getSp2Px(context, 13);
+            suffixTextSize = Utils.getSp2Px(context, 16);
+        }
+
+        private Builder(CountdownStyle style) {
+            includePad = style.mIncludePad;
+            timeTextSize = style.mTimeTextSize;
+            timeTextColor = style.mTimeTextColor;
+            isTimeTextBold = style.isTimeTextBold;
+            timeTextLetterSpacing = style.mTimeTextLetterSpacing;
+            timeTextLetterBackgroundSpacing = style.mTimeTextLetterBackgroundSpacing;
+            timeBackground = style.mTimeBackground;
+            timeBackgroundWidth = style.mTimeBackgroundWidth;
+            timeBackgroundHeight = style.mTimeBackgroundHeight;
+            timeBackgroundPadding = style.mTimeBackgroundPadding;
+            timeBackgroundPaddingX = style.mTimeBackgroundPaddingX;
+            timeBackgroundPaddingY = style.mTimeBackgroundPaddingY;
+            timeBackgroundPaddingLeft = style.mTimeBackgroundPaddingLeft;
+            timeBackgroundPaddingRight = style.mTimeBackgroundPaddingRight;
+            timeBackgroundPaddingTop = style.mTimeBackgroundPaddingTop;
+            timeBackgroundPaddingBottom = style.mTimeBackgroundPaddingBottom;
+            timeTextPaint = style.mCustomTimeTextPaint;
+
+            suffixTextSize = style.mSuffixTextSize;
+            suffixTextColor = style.mSuffixTextColor;
+            isSuffixTextBold = style.isSuffixTextBold;
+            suffixTextMargin = style.mSuffixTextMargin;
+            suffixBackground = style.mSuffixBackground;
+            suffixBackgroundWidth = style.mSuffixBackgroundWidth;
+            suffixBackgroundHeight = style.mSuffixBackgroundHeight;
+            suffixBackgroundPadding = style.mSuffixBackgroundPadding;
+            suffixBackgroundPaddingX = style.mSuffixBackgroundPaddingX;
+            suffixBackgroundPaddingY = style.mSuffixBackgroundPaddingY;
+            suffixBackgroundPaddingLeft = style.mSuffixBackgroundPaddingLeft;
+            suffixBackgroundPaddingRight = style.mSuffixBackgroundPaddingRight;
+            suffixBackgroundPaddingTop = style.mSuffixBackgroundPaddingTop;
+            suffixBackgroundPaddingBottom = style.mSuffixBackgroundPaddingBottom;
+            suffixTextPaint = style.mCustomSuffixTextPaint;
+        }
+
+        public Builder setIncludePad(boolean includePad) {
+            this.includePad = includePad;
+            return this;
+        }
+
+        public Builder setTimeTextSize(int timeTextSize) {
+            this.timeTextSize = timeTextSize;
+            return this;
+        }
+
+        public Builder setTimeTextColor(int timeTextColor) {
+            this.timeTextColor = timeTextColor;
+            return this;
+        }
+
+        public Builder setTimeTextBold(boolean timeTextBold) {
+            this.isTimeTextBold = timeTextBold;
+            return this;
+        }
+
+        public Builder setTimeTextLetterSpacing(float timeTextLetterSpacing) {
+            this.timeTextLetterSpacing = timeTextLetterSpacing;
+            return this;
+        }
+
+        public Builder setTimeTextLetterBackgroundSpacing(float timeTextLetterBackgroundSpacing) {
+            this.timeTextLetterBackgroundSpacing = timeTextLetterBackgroundSpacing;
+            return this;
+        }
+
+        public Builder setTimeBackground(Drawable timeBackground) {
+            this.timeBackground = timeBackground;
+            return this;
+        }
+
+        public Builder setTimeBackgroundWidth(float timeBackgroundWidth) {
+            this.timeBackgroundWidth = timeBackgroundWidth;
+            return this;
+        }
+
+        public Builder setTimeBackgroundHeight(float timeBackgroundHeight) {
+            this.timeBackgroundHeight = timeBackgroundHeight;
+            return this;
+        }
+
+        public Builder setTimeBackgroundPadding(float timeBackgroundPadding) {
+            this.timeBackgroundPadding = timeBackgroundPadding;
+            return this;
+        }
+
+        public Builder setTimeBackgroundPaddingX(float timeBackgroundPaddingX) {
+            this.timeBackgroundPaddingX = timeBackgroundPaddingX;
+            return this;
+        }
+
+        public Builder setTimeBackgroundPaddingY(float timeBackgroundPaddingY) {
+            this.timeBackgroundPaddingY = timeBackgroundPaddingY;
+            return this;
+        }
+
+        public Builder setTimeBackgroundPaddingLeft(float timeBackgroundPaddingLeft) {
+            this.timeBackgroundPaddingLeft = timeBackgroundPaddingLeft;
+            return this;
+        }
+
+        public Builder setTimeBackgroundPaddingRight(float timeBackgroundPaddingRight) {
+            this.timeBackgroundPaddingRight = timeBackgroundPaddingRight;
+            return this;
+        }
+
+        public Builder setTimeBackgroundPaddingTop(float timeBackgroundPaddingTop) {
+            this.timeBackgroundPaddingTop = timeBackgroundPaddingTop;
+            return this;
+        }
+
+        public Builder setTimeBackgroundPaddingBottom(float timeBackgroundPaddingBottom) {
+            this.timeBackgroundPaddingBottom = timeBackgroundPaddingBottom;
+            return this;
+        }
+
+        /**
+         * Draw the time text with this paint instead of one built from the text attributes.
+         * The paint should be center aligned, and must not be modified afterwards.
+         */
+        public Builder setTimeTextPaint(Paint timeTextPaint) {
+            this.timeTextPaint = timeTextPaint;
+            return this;
+        }
+
+        public Builder setSuffixTextSize(int suffixTextSize) {
+            this.suffixTextSize = suffixTextSize;
+            return this;
+        }
+
+        public Builder setSuffixTextColor(int suffixTextColor) {
+            this.suffixTextColor = suffixTextColor;
+            return this;
+        }
+
+        public Builder setSuffixTextBold(boolean suffixTextBold) {
+            this.isSuffixTextBold = suffixTextBold;
+            return this;
+        }
+
+        public Builder setSuffixTextMargin(float suffixTextMargin) {
+            this.suffixTextMargin = suffixTextMargin;
+            return this;
+        }
+
+        public Builder setSuffixBackground(Drawable suffixBackground) {
+            this.suffixBackground = suffixBackground;
+            return this;
+        }
+
+        public Builder setSuffixBackgroundWidth(float suffixBackgroundWidth) {
+            this.suffixBackgroundWidth = suffixBackgroundWidth;
+            return this;
+        }
+
+        public Builder setSuffixBackgroundHeight(float suffixBackgroundHeight) {
+            this.suffixBackgroundHeight = suffixBackgroundHeight;
+            return this;
+        }
+
+        public Builder setSuffixBackgroundPadding(float suffixBackgroundPadding) {
+            this.suffixBackgroundPadding = suffixBackgroundPadding;
+            return this;
+        }
+
+        public Builder setSuffixBackgroundPaddingX(float suffixBackgroundPaddingX) {
+            this.suffixBackgroundPaddingX = suffixBackgroundPaddingX;
+            return this;
+        }
+
+        public Builder setSuffixBackgroundPaddingY(float suffixBackgroundPaddingY) {
+            this.suffixBackgroundPaddingY = suffixBackgroundPaddingY;
+            return this;
+        }
+
+        public Builder setSuffixBackgroundPaddingLeft(float suffixBackgroundPaddingLeft) {
+            this.suffixBackgroundPaddingLeft = suffixBackgroundPaddingLeft;
+            return this;
+        }
+
+        public Builder setSuffixBackgroundPaddingRight(float suffixBackgroundPaddingRight) {
+            this.suffixBackgroundPaddingRight = suffixBackgroundPaddingRight;
+            return this;
+        }
+
+        public Builder setSuffixBackgroundPaddingTop(float suffixBackgroundPaddingTop) {
+            this.suffixBackgroundPaddingTop = suffixBackgroundPaddingTop;
+            return this;
+        }
+
+        public Builder setSuffixBackgroundPaddingBottom(float suffixBackgroundPaddingBottom) {
+            this.suffixBackgroundPaddingBottom = suffixBackgroundPaddingBottom;
+            return this;
+        }
+
+        /**
+         * Draw the suffix text with this paint instead of one built from the text attributes.
+         * The paint should be center aligned, and must not be modified afterwards.
+         */
+        public Builder setSuffixTextPaint(Paint suffixTextPaint) {
+            this.suffixTextPaint = suffixTextPaint;
+            return this;
+        }
+
+        /**
+         * @return The shared style equal to the attributes, created only if no such style is in use.
+         */
+        public CountdownStyle build() {
+            CountdownStyle style = new CountdownStyle(this);
+            synchronized (sStyles) {
+                WeakReference<CountdownStyle> reference = sStyles.get(style);
+                CountdownStyle interned = reference != null ? reference.get() : null;
+                if (interned != null) {
+                    return interned;
+                }
+
+                style.resolve();
+                sStyles.put(style, new WeakReference<>(style));
+                return style;
+            }
+        }
+    }
+}
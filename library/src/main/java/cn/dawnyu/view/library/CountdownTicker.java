@@ -0,0 +1,236 @@
+package cn.dawnyu.view.library;
+
+import android.os.Build;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * description: Process-wide tick source shared by every {@link CountdownView}.
+ * Each listener asks for its next tick at an exact {@link TimeSource#elapsedRealtime()} time.
+ * Only one task is pending on the {@link TimeSource#getDefault()} at a time, posted for the earliest requested tick,
+ * and every listener that is due is served in a single pass.
+ * Listeners sharing the same second boundary (e.g. deadlines on whole seconds) therefore
+ * share one message per second, no matter how many views are counting down.
+ * Ticks due within a frame, Eg:"SS" changes every 10ms, are served by one display frame callback
+ * instead, so sub-second fields are redrawn once per frame in step with vsync.
+ * Frames are only used with {@link TimeSource#SYSTEM}.
+ * Must be used on the main thread.
+ * <p>
+ * 所有倒计时控件共用的计时器，同一时刻到期的控件共用一条主线程消息，一次遍历全部通知。
+ * date: 26/10/17
+ * version:
+ */
+final class CountdownTicker {
+    private static final long NO_TICK = Long.MAX_VALUE;
+    /**
+     * Ticks due sooner than this are served on the next display frame.
+     */
+    private static final long FRAME_INTERVAL_MILLIS = 16;
+
+    private static CountdownTicker sInstance;
+
+    interface OnTickListener {
+        /**
+         * @param now Current {@link TimeSource#elapsedRealtime()}.
+         * @return The {@link TimeSource#elapsedRealtime()} of the next tick wanted, or -1 to stop ticking.
+         */
+        long onTick(long now);
+    }
+
+    private static final class Entry {
+        final OnTickListener listener;
+        long tickTime;
+        boolean removed;
+
+        Entry(OnTickListener listener) {
+            this.listener = listener;
+        }
+    }
+
+    private final ArrayList<Entry> mEntries = new ArrayList<>();
+    /**
+     * Snapshot of {@link #mEntries} used while dispatching,
+     * so listeners can be registered or unregistered from {@link OnTickListener#onTick(long)}.
+     */
+    private Entry[] mDispatching = new Entry[0];
+    private long mScheduledTime = NO_TICK;
+    /**
+     * The time source {@link #mTickRunnable} is posted to.
+     */
+    private TimeSource mScheduledSource;
+    /**
+     * Only created since Jelly Bean, earlier ticks due within a frame are posted to the handler too.
+     */
+    private FrameTicker mFrameTicker;
+    private boolean isFrameScheduled;
+
+    private final Runnable mTickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mScheduledTime = NO_TICK;
+            mScheduledSource = null;
+            dispatchTick();
+        }
+    };
+
+    private CountdownTicker() {
+    }
+
+    static CountdownTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new CountdownTicker();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Register a listener, or move its next tick if it is already registered.
+     *
+     * @param tickTime {@link TimeSource#elapsedRealtime()} of the first tick.
+     */
+    void register(OnTickListener listener, long tickTime) {
+        Entry entry = findEntry(listener);
+        if (entry == null) {
+            entry = new Entry(listener);
+            mEntries.add(entry);
+        }
+        entry.tickTime = tickTime;
+
+        scheduleNextTick();
+    }
+
+    void unregister(OnTickListener listener) {
+        Entry entry = findEntry(listener);
+        if (entry == null) {
+            return;
+        }
+
+        entry.removed = true;
+        mEntries.remove(entry);
+        if (mEntries.isEmpty()) {
+            cancelScheduledTick();
+        }
+    }
+
+    /**
+     * Tick every listener now in one pass, Eg:after their deadlines moved.
+     */
+    void tickNow() {
+        long now = TimeSource.getDefault().elapsedRealtime();
+        for (int i = 0, size = mEntries.size(); i < size; i++) {
+            Entry entry = mEntries.get(i);
+            entry.tickTime = Math.min(entry.tickTime, now);
+        }
+        dispatchTick();
+    }
+
+    private Entry findEntry(OnTickListener listener) {
+        for (int i = 0, size = mEntries.size(); i < size; i++) {
+            Entry entry = mEntries.get(i);
+            if (entry.listener == listener) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void dispatchTick() {
+        long now = TimeSource.getDefault().elapsedRealtime();
+
+        int count = mEntries.size();
+        if (mDispatching.length < count) {
+            mDispatching = new Entry[count];
+        }
+        mEntries.toArray(mDispatching);
+
+        for (int i = 0; i < count; i++) {
+            Entry entry = mDispatching[i];
+            mDispatching[i] = null;
+            if (entry.removed || entry.tickTime > now) {
+                continue;
+            }
+
+            long nextTickTime = entry.listener.onTick(now);
+            if (entry.removed) {
+                continue;
+            }
+            if (nextTickTime < 0) {
+                entry.removed = true;
+                mEntries.remove(entry);
+            } else {
+                entry.tickTime = nextTickTime;
+            }
+        }
+
+        scheduleNextTick();
+    }
+
+    private void scheduleNextTick() {
+        long nextTickTime = NO_TICK;
+        for (int i = 0, size = mEntries.size(); i < size; i++) {
+            nextTickTime = Math.min(nextTickTime, mEntries.get(i).tickTime);
+        }
+
+        if (nextTickTime == mScheduledTime) {
+            return;
+        }
+        cancelScheduledTick();
+        if (nextTickTime == NO_TICK) {
+            return;
+        }
+
+        mScheduledTime = nextTickTime;
+        TimeSource timeSource = TimeSource.getDefault();
+        if (timeSource == TimeSource.SYSTEM
+                && nextTickTime - timeSource.elapsedRealtime() < FRAME_INTERVAL_MILLIS
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (mFrameTicker == null) {
+                mFrameTicker = new FrameTicker();
+            }
+            mFrameTicker.post();
+            isFrameScheduled = true;
+        } else {
+            timeSource.postAt(mTickRunnable, nextTickTime);
+            mScheduledSource = timeSource;
+        }
+    }
+
+    private void cancelScheduledTick() {
+        if (mScheduledTime == NO_TICK) {
+            return;
+        }
+
+        if (isFrameScheduled) {
+            mFrameTicker.cancel();
+            isFrameScheduled = false;
+        } else {
+            mScheduledSource.cancel(mTickRunnable);
+            mScheduledSource = null;
+        }
+        mScheduledTime = NO_TICK;
+    }
+
+    /**
+     * Dispatches ticks on display frames, kept in its own class so that {@link Choreographer}
+     * is only loaded since Jelly Bean.
+     */
+    private final class FrameTicker implements Choreographer.FrameCallback {
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+
+        void post() {
+            mChoreographer.postFrameCallback(this);
+        }
+
+        void cancel() {
+            mChoreographer.removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mScheduledTime = NO_TICK;
+            isFrameScheduled = false;
+            dispatchTick();
+        }
+    }
+}
@@ -2,18 +2,19 @@ package cn.dawnyu.view.library;
 
 import android.content.Context;
 import android.content.res.Resources;
-import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Rect;
+import android.graphics.Picture;
 import android.graphics.drawable.Drawable;
-import android.os.CountDownTimer;
+import android.os.Build;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
+import android.view.Display;
 import android.view.View;
 
+import java.util.Arrays;
+
 /**
  * description: Custom countdown view.
  * Support:
@@ -33,97 +34,143 @@ import android.view.View;
  * @date 17/11/24
  */
 public class CountdownView extends View {
-    private Paint mTimeTextPaint, mSuffixTextPaint;
+    /**
+     * Extra pixels around the changed digit cells to invalidate.
+     */
+    private static final int DIRTY_REGION_INSET = 2;
 
-    //----------------------------- attrs start ---------------------------//
-    //--- Time style start ---//
-    private boolean mIncludePad;
-    private int mTimeTextSize;
-    private int mTimeTextColor;
-    private boolean isTimeTextBold;
     /**
-     * Margin between time text letters.
+     * Parts of the content to draw.
+     * Static parts are the backgrounds and suffixes, which do not change between ticks.
+     */
+    private static final int DRAW_STATIC = 1;
+    private static final int DRAW_DIGITS = 2;
+    private static final int DRAW_ALL = DRAW_STATIC | DRAW_DIGITS;
+
+    /**
+     * Shared by all views with the same attributes, see {@link CountdownStyle}.
+     */
+    private CountdownStyle mStyle;
+    /**
+     * Pre-rendered digits and suffixes, only used if {@link #isGlyphAtlasEnabled}.
+     */
+    private GlyphAtlas mTimeTextAtlas, mSuffixTextAtlas;
+    /**
+     * Recorded backgrounds and suffixes, only used if {@link #isStaticLayerEnabled}.
+     */
+    private Picture mStaticLayer;
+    private boolean isStaticLayerValid;
+    /**
+     * Copies of the backgrounds of {@link #mStyle} for this view, their bounds are set right before each draw.
      */
-    private float mTimeTextLetterSpacing;
-    private float mTimeTextLetterBackgroundSpacing;
     private Drawable mTimeBackground;
-    private float mTimeBackgroundWidth;
-    private float mTimeBackgroundHeight;
-    private float mTimeBackgroundPadding;
-    private float mTimeBackgroundPaddingX;
-    private float mTimeBackgroundPaddingY;
-    private float mTimeBackgroundPaddingLeft;
-    private float mTimeBackgroundPaddingRight;
-    private float mTimeBackgroundPaddingTop;
-    private float mTimeBackgroundPaddingBottom;
-    //--- Time style end ---//
-
-    //--- Suffix style start ---//
-    private int mSuffixTextSize;
-    private int mSuffixTextColor;
-    private boolean isSuffixTextBold;
-    /**
-     * Margin between the adjacent time text and suffix text.
-     */
-    private float mSuffixTextMargin;
     private Drawable mSuffixBackground;
-    private float mSuffixBackgroundWidth;
-    private float mSuffixBackgroundHeight;
-    private float mSuffixBackgroundPadding;
-    private float mSuffixBackgroundPaddingX;
-    private float mSuffixBackgroundPaddingY;
-    private float mSuffixBackgroundPaddingLeft;
-    private float mSuffixBackgroundPaddingRight;
-    private float mSuffixBackgroundPaddingTop;
-    private float mSuffixBackgroundPaddingBottom;
-    //--- Suffix style end ---//
+
+    //----------------------------- attrs start ---------------------------//
+    private boolean isGlyphAtlasEnabled;
+    private boolean isStaticLayerEnabled;
+    /**
+     * Remaining time from which "SS"/"SSS" fields are shown and the view ticks on every display frame.
+     */
+    private long mHighPrecisionThreshold;
     //----------------------------- attrs end ---------------------------//
 
     //---------------------- calculate values start --------------------//
-    private int mMeasureTotalHeight;
-
-    private float mTimeTextMeasuredHeight;
-    private float mTimeTextLetterMeasuredWidth;
-    private float mTimeTextBaseline;
-    private float mSuffixTextBaseline;
-    private float mSuffixTextMeasuredHeight;
-
-    private float drawTimeBackgroundWidth = 0;
-    private float drawTimeBackgroundHeight = 0;
-    private float drawTimeBackgroundPaddingLeft = 0;
-    private float drawTimeBackgroundPaddingRight = 0;
-    private float drawTimeBackgroundPaddingTop = 0;
-    private float drawTimeBackgroundPaddingBottom = 0;
-
-    private float drawSuffixBackgroundWidth = 0;
-    private float drawSuffixBackgroundHeight = 0;
-    private float drawSuffixBackgroundPaddingLeft = 0;
-    private float drawSuffixBackgroundPaddingRight = 0;
-    private float drawSuffixBackgroundPaddingTop = 0;
-    private float drawSuffixBackgroundPaddingBottom = 0;
+    /**
+     * Cells of the content, laid out on each measure.
+     */
+    private CountdownLayoutEngine.Layout mLayout;
     //---------------------- calculate values end --------------------//
 
-    private int mTimeTypeCount;
-    private int mSuffixTypeCount;
+    /**
+     * Visible tokens and digit count the view was last measured with.
+     * The measured width only changes with them, or with the style.
+     */
+    private long mMeasuredVisibleMask = -1;
+    private int mMeasuredCharCount = -1;
+    private boolean isStyleChanged = true;
 
     /**
      * Suffix formats.
      * day-dd, hour-hh, minute-mm, second-ss.
      */
     private String mTimeFormat = "hh:mm:ss";
-    private String mSuffixDay = "";
-    private String mSuffixHour = "";
-    private String mSuffixMinute = "";
-    private String mSuffixSecond = "";
+    private TimeFormat mFormat;
+    /**
+     * Text widths of the literal tokens of {@link #mFormat}.
+     */
+    private float[] mSuffixTextWidths;
+    /**
+     * Index of each literal token of {@link #mFormat} in {@link #mSuffixTextAtlas}.
+     */
+    private int[] mSuffixAtlasIndexes;
+    /**
+     * Bit i is set if token i of {@link #mFormat} is shown.
+     */
+    private long mVisibleMask;
 
-    private boolean showDays, showHours, showMinutes, showSeconds = false;
     public long mDays, mHours, mMinutes, mSeconds;
-    private float mSuffixDayTextWidth = 0;
-    private float mSuffixHourTextWidth = 0;
-    private float mSuffixMinuteTextWidth = 0;
-    private float mSuffixSecondTextWidth = 0;
+    /**
+     * The "SS"/"SSS" fields are shown, see {@link #mHighPrecisionThreshold}.
+     */
+    private boolean isHighPrecision;
+    private final long[] mTimeValues = new long[TimeFormat.UNIT_COUNT];
+    /**
+     * Digits of the time values indexed by unit, filled once per tick so that drawing allocates nothing.
+     */
+    private final char[][] mTimeChars = new char[TimeFormat.UNIT_COUNT][20];
+    private final int[] mTimeCharCounts = new int[TimeFormat.UNIT_COUNT];
+    private final char[] mNewTimeChars = new char[20];
 
-    private MyCountDownTimer myCountDownTimer;
+    /**
+     * Horizontal bounds of each digit cell indexed by unit, in content coordinates of {@link #mLayout}.
+     * Used to invalidate only the digits that changed.
+     */
+    private final float[][] mTimeCellLefts = new float[TimeFormat.UNIT_COUNT][20];
+    private final float[][] mTimeCellRights = new float[TimeFormat.UNIT_COUNT][20];
+    /**
+     * Cell count of each unit in {@link #mLayout}, -1 if the unit is shown more than once.
+     */
+    private final int[] mLayoutCellCounts = new int[TimeFormat.UNIT_COUNT];
+    /**
+     * Horizontal bounds of the changed digit cells since the last refresh.
+     */
+    private float mDirtyLeft = Float.MAX_VALUE, mDirtyRight = -Float.MAX_VALUE;
+    private boolean isAllDirty;
+
+    /**
+     * The moment the countdown ends, based on {@link TimeSource#elapsedRealtime()}.
+     */
+    private long mDeadline;
+    /**
+     * The deadline of {@link #startUntil(long, String)} in milliseconds since epoch,
+     * {@link #mDeadline} follows it when the {@link ServerClock} offset changes.
+     */
+    private long mDeadlineEpochMillis;
+    /**
+     * The countdown is started and not finished, ticking or paused.
+     */
+    private boolean isCounting;
+    /**
+     * Registered in {@link CountdownTicker}, only while counting and visible, see {@link #updateTicking()}.
+     */
+    private boolean isTicking;
+    private boolean isScreenOn = true;
+
+    private final CountdownTicker.OnTickListener mTickListener = new CountdownTicker.OnTickListener() {
+        @Override
+        public long onTick(long now) {
+            return tick(now);
+        }
+    };
+
+    private final ServerClock.OnOffsetChangedListener mOffsetListener = new ServerClock.OnOffsetChangedListener() {
+        @Override
+        public void onOffsetChanged(long offset) {
+            //Only the deadline moves, the ticker ticks the running views right after.
+            mDeadline = mDeadlineEpochMillis - offset;
+        }
+    };
 
     public CountdownView(Context context) {
         this(context, null);
@@ -136,47 +183,14 @@ public class CountdownView extends View {
     public CountdownView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
 
-        TypedArray mTypedArray = context.obtainStyledAttributes(attrs, R.styleable.CountdownView, defStyleAttr, 0);
-
-        mIncludePad = mTypedArray.getBoolean(R.styleable.CountdownView_includeFontPadding, false);
-        mTimeTextSize = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeTextSize, Utils.getSp2Px(context, 13));
-        mTimeTextColor = mTypedArray.getColor(R.styleable.CountdownView_timeTextColor, Color.BLACK);
-        isTimeTextBold = mTypedArray.getBoolean(R.styleable.CountdownView_isTimeTextBold, false);
-
-        mTimeTextLetterSpacing = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeTextLetterSpacing, Utils.getDip2Px(context, 0));
-        mTimeTextLetterBackgroundSpacing = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeTextLetterBackgroundSpacing, Utils.getDip2Px(context, 0));
-
-        mTimeBackground = mTypedArray.getDrawable(R.styleable.CountdownView_timeBackground);
-        mTimeBackgroundWidth = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundWidth, Utils.getDip2Px(context, 0));
-        mTimeBackgroundHeight = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundHeight, Utils.getDip2Px(context, 0));
-
-        mTimeBackgroundPadding = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPadding, Utils.getDip2Px(context, 0));
-        mTimeBackgroundPaddingX = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingX, Utils.getDip2Px(context, 0));
-        mTimeBackgroundPaddingY = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingY, Utils.getDip2Px(context, 0));
-        mTimeBackgroundPaddingLeft = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingLeft, Utils.getDip2Px(context, 0));
-        mTimeBackgroundPaddingRight = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingRight, Utils.getDip2Px(context, 0));
-        mTimeBackgroundPaddingTop = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingTop, Utils.getDip2Px(context, 0));
-        mTimeBackgroundPaddingBottom = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_timeBackgroundPaddingBottom, Utils.getDip2Px(context, 0));
-
-        mSuffixTextSize = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixTextSize, Utils.getSp2Px(context, 16));
-        mSuffixTextColor = mTypedArray.getColor(R.styleable.CountdownView_suffixTextColor, Color.BLACK);
-        isSuffixTextBold = mTypedArray.getBoolean(R.styleable.CountdownView_isSuffixTextBold, false);
-
-        mSuffixTextMargin = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixTextMargin, Utils.getDip2Px(context, 0));
-
-        mSuffixBackground = mTypedArray.getDrawable(R.styleable.CountdownView_suffixBackground);
-        mSuffixBackgroundWidth = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundWidth, Utils.getDip2Px(context, 0));
-        mSuffixBackgroundHeight = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundHeight, Utils.getDip2Px(context, 0));
-
-        mSuffixBackgroundPadding = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPadding, Utils.getDip2Px(context, 0));
-        mSuffixBackgroundPaddingX = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingX, Utils.getDip2Px(context, 0));
-        mSuffixBackgroundPaddingY = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingY, Utils.getDip2Px(context, 0));
-        mSuffixBackgroundPaddingLeft = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingLeft, Utils.getDip2Px(context, 0));
-        mSuffixBackgroundPaddingRight = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingRight, Utils.getDip2Px(context, 0));
-        mSuffixBackgroundPaddingTop = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingTop, Utils.getDip2Px(context, 0));
-        mSuffixBackgroundPaddingBottom = mTypedArray.getDimensionPixelSize(R.styleable.CountdownView_suffixBackgroundPaddingBottom, Utils.getDip2Px(context, 0));
-
-        mTypedArray.recycle();
+        //Resolved once per layout and theme, later inflations share the cached attributes.
+        CountdownAttributes attributes = CountdownAttributes.obtain(context, attrs, defStyleAttr);
+        isGlyphAtlasEnabled = attributes.isGlyphAtlasEnabled;
+        isStaticLayerEnabled = attributes.isStaticLayerEnabled;
+        mHighPrecisionThreshold = attributes.highPrecisionThreshold;
+        mStyle = attributes.style;
+        initBackgrounds();
+        initFormat();
     }
 
     /**
@@ -186,372 +200,246 @@ public class CountdownView extends View {
      * @param timeFormat     Eg:"dddayhh:mm:ss", "hh小时mm分钟ss秒"
      */
     public void start(long millisInFuture, String timeFormat) {
+        ServerClock.removeListener(mOffsetListener);
+        startCountdown(TimeSource.getDefault().elapsedRealtime() + millisInFuture, timeFormat);
+    }
+
+    /**
+     * Count down to an absolute deadline.
+     * The remaining time is recomputed from a monotonic clock on every tick,
+     * so a late tick never makes the displayed time lag or skip.
+     * The deadline is compared with the server time once {@link ServerClock} is synced, else with the device time.
+     * <p>
+     * 倒计时到指定的截止时间，设置了服务器时间后按服务器时间计算。
+     *
+     * @param deadlineEpochMillis The deadline in milliseconds since epoch, Eg:{@link ServerClock#currentTimeMillis()}.
+     * @param timeFormat          Eg:"dddayhh:mm:ss", "hh小时mm分钟ss秒"
+     */
+    public void startUntil(long deadlineEpochMillis, String timeFormat) {
+        mDeadlineEpochMillis = deadlineEpochMillis;
+        ServerClock.addListener(mOffsetListener);
+        startCountdown(deadlineEpochMillis - ServerClock.getOffset(), timeFormat);
+    }
+
+    /**
+     * @param deadline The moment the countdown ends, based on {@link TimeSource#elapsedRealtime()}.
+     */
+    private void startCountdown(long deadline, String timeFormat) {
         if (!Utils.isNullOrEmpty(timeFormat)) {
             this.mTimeFormat = timeFormat;
         }
 
-        getTimeByMillis(millisInFuture);
+        initFormat();
 
-        init();
-
-        stopCountdown();
-
-        myCountDownTimer = new MyCountDownTimer(millisInFuture, 1000);
-        myCountDownTimer.start();
-    }
+        pauseTicking();
 
-    private void getTimeByMillis(long millisecond) {
-        if (millisecond <= 0) {
-            resetZero();
-            return;
+        //The format may have changed.
+        isStyleChanged = true;
+        mDeadline = deadline;
+        isCounting = true;
+        long nextTickTime = tick(TimeSource.getDefault().elapsedRealtime());
+        if (nextTickTime >= 0 && canTick()) {
+            CountdownTicker.getInstance().register(mTickListener, nextTickTime);
+            isTicking = true;
         }
-
-        mDays = (int) (millisecond / 1000 / (60 * 60 * 24));
-        mHours = (int) ((millisecond / 1000 / (60 * 60)) % 24);
-        mMinutes = (int) ((millisecond / 1000 / 60) % 60);
-        mSeconds = (int) (millisecond / 1000 % 60);
     }
 
-    private void init() {
-        initPadding();
-
-        initPaint();
-
-        initSuffix();
+    /**
+     * Tick only while counting down and visible on a screen that is on.
+     * Paused ticks are not replayed, resuming jumps straight to the remaining time at the deadline.
+     */
+    private void updateTicking() {
+        boolean canTick = canTick();
+        if (canTick && !isTicking) {
+            long nextTickTime = tick(TimeSource.getDefault().elapsedRealtime());
+            if (nextTickTime >= 0) {
+                CountdownTicker.getInstance().register(mTickListener, nextTickTime);
+                isTicking = true;
+            }
+        } else if (!canTick) {
+            pauseTicking();
+        }
     }
 
-    private void initPadding() {
-        mTimeBackgroundPaddingLeft = getTimePadding(mTimeBackgroundPaddingLeft, "x");
-        mTimeBackgroundPaddingRight = getTimePadding(mTimeBackgroundPaddingRight, "x");
-        mTimeBackgroundPaddingTop = getTimePadding(mTimeBackgroundPaddingTop, "y");
-        mTimeBackgroundPaddingBottom = getTimePadding(mTimeBackgroundPaddingBottom, "y");
-
-        mSuffixBackgroundPaddingLeft = getSuffixPadding(mSuffixBackgroundPaddingLeft, "x");
-        mSuffixBackgroundPaddingRight = getSuffixPadding(mSuffixBackgroundPaddingRight, "x");
-        mSuffixBackgroundPaddingTop = getSuffixPadding(mSuffixBackgroundPaddingTop, "y");
-        mSuffixBackgroundPaddingBottom = getSuffixPadding(mSuffixBackgroundPaddingBottom, "y");
+    /**
+     * {@link #isShown()} is false unless the view is attached.
+     */
+    private boolean canTick() {
+        return isCounting && isScreenOn && getWindowVisibility() == VISIBLE && isShown();
     }
 
-    private float getTimePadding(float padding, String type) {
-        if (padding == 0)
-            switch (type) {
-                case "x":
-                    return mTimeBackgroundPaddingX == 0 ? mTimeBackgroundPadding : mTimeBackgroundPaddingX;
-                case "y":
-                    return mTimeBackgroundPaddingY == 0 ? mTimeBackgroundPadding : mTimeBackgroundPaddingY;
-            }
-
-        return padding;
+    private void pauseTicking() {
+        if (isTicking) {
+            CountdownTicker.getInstance().unregister(mTickListener);
+            isTicking = false;
+        }
     }
 
-    private float getSuffixPadding(float padding, String type) {
-        if (padding == 0)
-            switch (type) {
-                case "x":
-                    return mSuffixBackgroundPaddingX == 0 ? mSuffixBackgroundPadding : mSuffixBackgroundPaddingX;
-                case "y":
-                    return mSuffixBackgroundPaddingY == 0 ? mSuffixBackgroundPadding : mSuffixBackgroundPaddingY;
-            }
+    /**
+     * Update the time values at {@code now}.
+     *
+     * @return The time the displayed values will change next, or -1 if the countdown is over.
+     */
+    private long tick(long now) {
+        long millisUntilFinished = mDeadline - now;
+        getTimeByMillis(millisUntilFinished);
 
-        return padding;
-    }
+        refresh();
 
-    private void initPaint() {
-        //Time text paint.
-        mTimeTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mTimeTextPaint.setColor(mTimeTextColor);
-        mTimeTextPaint.setTextSize(mTimeTextSize);
-        mTimeTextPaint.setTextAlign(Paint.Align.CENTER);
-        if (isTimeTextBold) {
-            mTimeTextPaint.setFakeBoldText(true);
+        if (millisUntilFinished <= 0) {
+            isCounting = false;
+            isTicking = false;
+            ServerClock.removeListener(mOffsetListener);
+            return -1;
         }
 
-        //Suffix text paint.
-        mSuffixTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mSuffixTextPaint.setColor(mSuffixTextColor);
-        mSuffixTextPaint.setTextSize(mSuffixTextSize);
-        mSuffixTextPaint.setTextAlign(Paint.Align.CENTER);
-        if (isSuffixTextBold) {
-            mSuffixTextPaint.setFakeBoldText(true);
+        //Wake up only when the smallest unit of the format changes, Eg:once per minute for "hh:mm".
+        //In the high precision mode that is sooner than a frame, the ticker then ticks once per display frame.
+        long nextChangeMillis = mFormat.getNextChangeMillis(millisUntilFinished, isHighPrecision);
+        if (!isHighPrecision && mFormat.hasSubSecond()) {
+            nextChangeMillis = Math.max(nextChangeMillis, mHighPrecisionThreshold);
         }
+        return mDeadline - nextChangeMillis;
     }
 
-    private void initSuffix() {
-        mTimeTypeCount = 0;
-        mSuffixTypeCount = 0;
-
-        int indexDay = mTimeFormat.indexOf("dd");
-        int indexHour = mTimeFormat.indexOf("hh");
-        int indexMinute = mTimeFormat.indexOf("mm");
-        int indexSecond = mTimeFormat.indexOf("ss");
+    private void getTimeByMillis(long millisecond) {
+        isHighPrecision = mFormat.hasSubSecond() && millisecond <= mHighPrecisionThreshold;
+        mFormat.getValues(millisecond, isHighPrecision, mTimeValues);
 
-        //Has day.
-        if (indexDay > -1 && mDays > 0) {
-            mTimeTypeCount++;
-            showDays = true;
+        mDays = mTimeValues[TimeFormat.UNIT_DAY];
+        mHours = mTimeValues[TimeFormat.UNIT_HOUR];
+        mMinutes = mTimeValues[TimeFormat.UNIT_MINUTE];
+        mSeconds = mTimeValues[TimeFormat.UNIT_SECOND];
 
-            //Has day suffix.
-            if (indexDay + 2 < indexHour) {
-                mSuffixDay = mTimeFormat.substring(indexDay + 2, indexHour);
-                mSuffixDayTextWidth = mSuffixTextPaint.measureText(mSuffixDay);
-                mSuffixTypeCount++;
-            }
-        } else {
-            showDays = false;
-            mSuffixDay = "";
+        for (int unit = 0; unit < TimeFormat.UNIT_COUNT; unit++) {
+            updateTimeChars(unit);
         }
-
-        //Has hour.
-        if (indexHour > -1) {
-            mTimeTypeCount++;
-            showHours = true;
-
-            //Has hour suffix.
-            if (indexHour + 2 < indexMinute) {
-                mSuffixHour = mTimeFormat.substring(indexHour + 2, indexMinute);
-                mSuffixHourTextWidth = mSuffixTextPaint.measureText(mSuffixHour);
-                mSuffixTypeCount++;
-            }
-        } else {
-            showHours = false;
-            mSuffixHour = "";
+        mVisibleMask = mFormat.getVisibleMask(mTimeValues);
+        if (!isHighPrecision) {
+            mVisibleMask &= ~mFormat.getSubSecondMask();
         }
+    }
 
-        //Has minute.
-        if (indexMinute > -1) {
-            mTimeTypeCount++;
-            showMinutes = true;
-
-            //Has minute suffix.
-            if (indexMinute + 2 < indexSecond) {
-                mSuffixMinute = mTimeFormat.substring(indexMinute + 2, indexSecond);
-                mSuffixMinuteTextWidth = mSuffixTextPaint.measureText(mSuffixMinute);
-                mSuffixTypeCount++;
-            }
-        } else {
-            showMinutes = false;
-            mSuffixMinute = "";
+    /**
+     * Write the new digits of a unit and mark the changed cells dirty.
+     */
+    private void updateTimeChars(int unit) {
+        char[] timeChars = mTimeChars[unit];
+        int count = TimeFormat.getChars(mTimeValues[unit], TimeFormat.getMinLength(unit), mNewTimeChars);
+        if (count != mTimeCharCounts[unit]) {
+            isAllDirty = true;
         }
 
-        //Has second.
-        if (indexSecond > -1) {
-            mTimeTypeCount++;
-            showSeconds = true;
+        for (int i = 0; i < count; i++) {
+            if (timeChars[i] == mNewTimeChars[i] && !isAllDirty) {
+                continue;
+            }
+            timeChars[i] = mNewTimeChars[i];
 
-            //Has second suffix.
-            if (indexSecond + 2 < mTimeFormat.length()) {
-                mSuffixSecond = mTimeFormat.substring(indexSecond + 2, mTimeFormat.length());
-                mSuffixSecondTextWidth = mSuffixTextPaint.measureText(mSuffixSecond);
-                mSuffixTypeCount++;
+            if (i < mLayoutCellCounts[unit]) {
+                mDirtyLeft = Math.min(mDirtyLeft, mTimeCellLefts[unit][i]);
+                mDirtyRight = Math.max(mDirtyRight, mTimeCellRights[unit][i]);
+            } else if (mLayoutCellCounts[unit] < 0) {
+                isAllDirty = true;
             }
-        } else {
-            showSeconds = false;
-            mSuffixSecond = "";
         }
+        mTimeCharCounts[unit] = count;
     }
 
-    private Rect getTextBounds(String text, Paint paint) {
-        Rect rect = new Rect();
-        paint.getTextBounds(text, 0, text.length(), rect);
-        return rect;
-    }
-
-    private void measureDrawValues() {
-        //Time values.
-        drawTimeBackgroundPaddingLeft = mTimeBackgroundPaddingLeft;
-        drawTimeBackgroundPaddingRight = mTimeBackgroundPaddingRight;
-        drawTimeBackgroundPaddingTop = mTimeBackgroundPaddingTop;
-        drawTimeBackgroundPaddingBottom = mTimeBackgroundPaddingBottom;
-
-        //Suffix values.
-        drawSuffixBackgroundPaddingLeft = mSuffixBackgroundPaddingLeft;
-        drawSuffixBackgroundPaddingRight = mSuffixBackgroundPaddingRight;
-        drawSuffixBackgroundPaddingTop = mSuffixBackgroundPaddingTop;
-        drawSuffixBackgroundPaddingBottom = mSuffixBackgroundPaddingBottom;
-
-        //Time height values.
-        if (mTimeBackgroundHeight > 0) { //If the size of @timeBackgroundHeight has been specified.
-            if (mTimeBackgroundHeight < mTimeTextMeasuredHeight) {
-                drawTimeBackgroundHeight = mTimeTextMeasuredHeight;
-                drawTimeBackgroundPaddingTop = drawTimeBackgroundPaddingBottom = 0;
-            } else {
-                /*
-                 * If the size of {@link #mTimeBackgroundHeight} has been specified by users,
-                 * the paddings will be recalculated regardless of the values specified by users.
-                 */
-                drawTimeBackgroundHeight = mTimeBackgroundHeight;
-                drawTimeBackgroundPaddingTop = drawTimeBackgroundPaddingBottom = (mTimeBackgroundHeight - mTimeTextMeasuredHeight) / 2;
-            }
-        } else {
-            /*
-             * If the size of {@link #mTimeBackgroundHeight} has not been specified,
-             * the {@link #mTimeBackground} will be drawn according to its {@link #mTimeTextMeasuredHeight} and paddings.
-             */
-            drawTimeBackgroundHeight = mTimeTextMeasuredHeight + mTimeBackgroundPaddingTop + mTimeBackgroundPaddingBottom;
-        }
-
-        //Suffix height values.
-        if (mSuffixBackgroundHeight > 0) {//If the size of @suffixBackgroundHeight has been specified.
-            if (mSuffixBackgroundHeight < mSuffixTextMeasuredHeight) {
-                drawSuffixBackgroundHeight = mSuffixTextMeasuredHeight;
-                drawSuffixBackgroundPaddingTop = drawSuffixBackgroundPaddingBottom = 0;
-            } else {
-                /*
-                 * If the size of {@link #mSuffixBackgroundHeight} has been specified by users,
-                 * the paddings will be recalculated.
-                 */
-                drawSuffixBackgroundHeight = mSuffixBackgroundHeight;
-                drawSuffixBackgroundPaddingTop = drawSuffixBackgroundPaddingBottom = (mSuffixBackgroundHeight - mSuffixTextMeasuredHeight) / 2;
-            }
-        } else {
-            /*
-             * If the size of {@link #mSuffixBackgroundHeight} has not been specified,
-             * the {@link #mSuffixBackground} will be drawn according to its {@link #mSuffixTextMeasuredHeight} and paddings.
-             */
-            drawSuffixBackgroundHeight = mSuffixTextMeasuredHeight + mSuffixBackgroundPaddingTop + mSuffixBackgroundPaddingBottom;
-        }
+    private void initBackgrounds() {
+        mTimeBackground = mStyle.newTimeBackground(getResources());
+        mSuffixBackground = mStyle.newSuffixBackground(getResources());
     }
 
-    private void measureDrawWidthValuesWhenSplitting() {
-        //If the size of @timeBackgroundWidth has been specified.
-        if (mTimeBackgroundWidth > 0) {
-            if (mTimeBackgroundWidth < mTimeTextLetterMeasuredWidth) {
-                drawTimeBackgroundWidth = mTimeTextLetterMeasuredWidth;
-                drawTimeBackgroundPaddingLeft = drawTimeBackgroundPaddingRight = 0;
-            } else {
-                /*
-                 * If the size of {@link #mTimeBackgroundWidth} has been specified by users,
-                 * the paddings will be recalculated.
-                 */
-                drawTimeBackgroundWidth = mTimeBackgroundWidth;
-                drawTimeBackgroundPaddingLeft = drawTimeBackgroundPaddingRight = (mTimeBackgroundWidth - mTimeTextLetterMeasuredWidth) / 2;
-            }
-        } else {
-            /*
-             * If the size of {@link #mTimeBackgroundWidth} has not been specified,
-             * the {@link #mTimeBackground} will be drawn according to its {@link #mTimeTextLetterMeasuredWidth} and paddings.
-             */
-            drawTimeBackgroundWidth = mTimeTextLetterMeasuredWidth + mTimeBackgroundPaddingLeft + mTimeBackgroundPaddingRight;
-        }
+    private void initFormat() {
+        mFormat = TimeFormat.compile(mTimeFormat);
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        initTextBounds();
-
-        int width = measureSize(1, getMeasuredTotalWidth(), widthMeasureSpec);
-        mMeasureTotalHeight = measureSize(2, getMeasuredTotalHeight(), heightMeasureSpec);
+        if (isStyleChanged) {
+            initSuffixTexts();
+        }
+        mMeasuredVisibleMask = mVisibleMask;
+        mMeasuredCharCount = getVisibleCharCount();
+        isStyleChanged = false;
+        isStaticLayerValid = false;
 
-        measureDrawValues();
+        mLayout = mStyle.getLayoutEngine().layout(mFormat, mVisibleMask, mTimeCharCounts, mSuffixTextWidths);
+        recordTimeCells();
 
-        setBaseline();
+        int width = measureSize(1, mLayout.getWidth(), widthMeasureSpec);
+        int height = measureSize(2, mLayout.getHeight(), heightMeasureSpec);
 
-        setMeasuredDimension(width, mMeasureTotalHeight);
+        setMeasuredDimension(width, height);
     }
 
-    private void initTextBounds() {
-        //Width of time letters.
-        for (int i = 0; i < 10; i++) {
-            Rect r = getTextBounds(String.valueOf(i), mTimeTextPaint);
-            if (mTimeTextLetterMeasuredWidth < r.width()) {
-                mTimeTextLetterMeasuredWidth = r.width();
-            }
+    /**
+     * Keep the bounds of the digit cells of {@link #mLayout} by unit, to find the dirty region of a tick.
+     */
+    private void recordTimeCells() {
+        for (int unit = 0; unit < TimeFormat.UNIT_COUNT; unit++) {
+            mLayoutCellCounts[unit] = 0;
         }
 
-        //Height.
-        Paint.FontMetrics mTimeTextPaintFontMetrics = mTimeTextPaint.getFontMetrics();
-        Paint.FontMetrics mSuffixTextPaintFontMetrics = mSuffixTextPaint.getFontMetrics();
-        if (mIncludePad) {
-            mTimeTextMeasuredHeight = mTimeTextPaintFontMetrics.bottom - mTimeTextPaintFontMetrics.top;
-            mTimeTextBaseline = -mTimeTextPaintFontMetrics.top;
-
-            mSuffixTextMeasuredHeight = mSuffixTextPaintFontMetrics.bottom - mSuffixTextPaintFontMetrics.top;
-            mSuffixTextBaseline = -mSuffixTextPaintFontMetrics.top;
-        } else {
-            mTimeTextMeasuredHeight = mTimeTextPaintFontMetrics.descent - mTimeTextPaintFontMetrics.ascent;
-            mTimeTextBaseline = -mTimeTextPaintFontMetrics.ascent;
+        for (int cell = 0, count = mLayout.getCellCount(); cell < count; cell++) {
+            if (mLayout.getCellType(cell) != CountdownLayoutEngine.CELL_DIGIT) {
+                continue;
+            }
 
-            mSuffixTextMeasuredHeight = mSuffixTextPaintFontMetrics.descent - mSuffixTextPaintFontMetrics.ascent;
-            mSuffixTextBaseline = -mSuffixTextPaintFontMetrics.ascent;
+            int unit = mFormat.getTokenType(mLayout.getCellToken(cell));
+            int index = mLayout.getCellChar(cell);
+            if (index == 0) {
+                mLayoutCellCounts[unit] = mLayoutCellCounts[unit] == 0 ? mTimeCharCounts[unit] : -1;
+            }
+            mTimeCellLefts[unit][index] = mLayout.getLeft(cell);
+            mTimeCellRights[unit][index] = mLayout.getRight(cell);
         }
     }
 
-    private void setBaseline() {
-        mTimeTextBaseline += drawTimeBackgroundPaddingTop;
-        mSuffixTextBaseline += drawSuffixBackgroundPaddingTop;
-    }
-
-    private float getMeasuredTotalWidth() {
-        //Time.
-        float totalTimeWidth = 0;
-        int timeBackgroundCount = 0;
-        if (mTimeTextLetterBackgroundSpacing > 0) {//Split timeBackground.
-            measureDrawWidthValuesWhenSplitting();
-
-            timeBackgroundCount = 6;
-            if (showDays && mDays > 0) {
-                timeBackgroundCount += getTimeString(mDays, 0).length();
-                totalTimeWidth = timeBackgroundCount * drawTimeBackgroundWidth
-                        + (getTimeString(mDays, 0).length() - 1 + 3) * mTimeTextLetterBackgroundSpacing;
-            } else {
-                totalTimeWidth = timeBackgroundCount * drawTimeBackgroundWidth
-                        + 3 * mTimeTextLetterBackgroundSpacing;
-            }
-        } else {//Time text is a whole.
-            timeBackgroundCount = 3;
-            totalTimeWidth += timeBackgroundCount * measureTimeWidthWhenWhole(2);
-            if (showDays && mDays > 0) {
-                totalTimeWidth += measureTimeWidthWhenWhole(getTimeString(mDays, 0).length());
+    /**
+     * Measure the suffixes of the format with the text metrics of the style.
+     */
+    private void initSuffixTexts() {
+        GlyphMetrics suffixTextMetrics = mStyle.getSuffixTextMetrics();
+        int tokenCount = mFormat.getTokenCount();
+        mSuffixTextWidths = new float[tokenCount];
+        mSuffixAtlasIndexes = new int[tokenCount];
+        int suffixCount = 0;
+        for (int i = 0; i < tokenCount; i++) {
+            if (mFormat.getTokenType(i) == TimeFormat.TYPE_LITERAL) {
+                mSuffixTextWidths[i] = suffixTextMetrics.measureText(mFormat.getLiteral(i));
+                mSuffixAtlasIndexes[i] = suffixCount++;
             }
         }
 
-        //Suffix.
-        int suffixTextMarginCount = mSuffixTypeCount * 2;
-        if (mTimeTypeCount == mSuffixTypeCount) {
-            suffixTextMarginCount--;
-        }
-        float totalSuffixWidth = measureSuffixWidth(mSuffixHourTextWidth)
-                + measureSuffixWidth(mSuffixMinuteTextWidth)
-                + measureSuffixWidth(mSuffixSecondTextWidth)
-                + suffixTextMarginCount * mSuffixTextMargin;
-        if (showDays && mDays > 0) {
-            totalSuffixWidth += measureSuffixWidth(mSuffixDayTextWidth);
-        }
-        return totalTimeWidth + totalSuffixWidth;
+        //The atlases are rendered with the old style, acquire them again on the next draw.
+        releaseGlyphAtlases();
     }
 
-    private float measureSuffixWidth(float suffixWidth) {
-        if (suffixWidth <= 0) {
-            return 0;
-        }
-
-        if (mSuffixBackgroundWidth > 0) {
-            if (mSuffixBackgroundWidth < suffixWidth) {
-                drawSuffixBackgroundWidth = suffixWidth;
-                drawSuffixBackgroundPaddingLeft = drawSuffixBackgroundPaddingRight = 0;
-            } else {
-                /*
-                 * If the size of {@link #mSuffixBackgroundWidth} has been specified by users,
-                 * the paddings will be recalculated regardless of the values specified by users.
-                 */
-                drawSuffixBackgroundWidth = mSuffixBackgroundWidth;
-                drawSuffixBackgroundPaddingLeft = drawSuffixBackgroundPaddingRight = (mSuffixBackgroundWidth - suffixWidth) / 2;
+    private void acquireGlyphAtlases() {
+        String[] suffixes = new String[mFormat.getTokenCount()];
+        int suffixCount = 0;
+        for (int i = 0; i < suffixes.length; i++) {
+            if (mFormat.getTokenType(i) == TimeFormat.TYPE_LITERAL) {
+                suffixes[suffixCount++] = mFormat.getLiteral(i);
             }
-        } else {
-            /*
-             * If the size of {@link #mSuffixBackgroundWidth} has not been specified,
-             * the @suffixBackground will be drawn according to its @suffixTextWidth and @paddings.
-             */
-            drawSuffixBackgroundWidth = suffixWidth + mSuffixBackgroundPaddingLeft + mSuffixBackgroundPaddingRight;
         }
 
-        return drawSuffixBackgroundWidth;
+        mTimeTextAtlas = GlyphAtlas.acquireDigits(mStyle.getTimeTextPaint(), mStyle.isIncludePad());
+        mSuffixTextAtlas = GlyphAtlas.acquire(mStyle.getSuffixTextPaint(), mStyle.isIncludePad(),
+                Arrays.copyOf(suffixes, suffixCount));
     }
 
-    private float getMeasuredTotalHeight() {
-        return Utils.getMaxNum(new float[]{
-                drawTimeBackgroundHeight,
-                drawSuffixBackgroundHeight});
+    private void releaseGlyphAtlases() {
+        if (mTimeTextAtlas != null) {
+            mTimeTextAtlas.release();
+            mTimeTextAtlas = null;
+        }
+        if (mSuffixTextAtlas != null) {
+            mSuffixTextAtlas.release();
+            mSuffixTextAtlas = null;
+        }
     }
 
     /**
@@ -585,380 +473,396 @@ public class CountdownView extends View {
     }
 
     @Override
-    protected void onDraw(Canvas canvas) {
-        /**
-         * TODO: 17/12/29 To support setting width,height and paddings of the view.
-         * If paddingLeft of the view is not specified,the content will be centered in the view by default.
-         */
-        float left = (canvas.getWidth() - getMeasuredTotalWidth()) / 2;
-//        if (getPaddingLeft() > 0 || getPaddingRight() > 0) {
-//            left = getPaddingLeft();
-//        }
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        isStaticLayerValid = false;
+    }
 
-        //Day.
-        if (showDays && mDays > 0) {
-            left = drawTimeSuffixItem(canvas, left, getTimeString(mDays, 0), mSuffixDay, mSuffixDayTextWidth);
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mLayout == null) {
+            return;
         }
 
-        //Hour
-        if (showHours) {
-            left = drawTimeSuffixItem(canvas, left, getTimeString(mHours, 2), mSuffixHour, mSuffixHourTextWidth);
+        if (isGlyphAtlasEnabled && mTimeTextAtlas == null && !mStyle.hasCustomTextPaint()) {
+            acquireGlyphAtlases();
         }
 
-        //Minute
-        if (showMinutes) {
-            left = drawTimeSuffixItem(canvas, left, getTimeString(mMinutes, 2), mSuffixMinute, mSuffixMinuteTextWidth);
+        //Hardware canvases only support pictures since M.
+        if (isStaticLayerEnabled
+                && (!canvas.isHardwareAccelerated() || Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)) {
+            if (!isStaticLayerValid) {
+                recordStaticLayer();
+            }
+            canvas.drawPicture(mStaticLayer);
+            drawContent(canvas, DRAW_DIGITS);
+        } else {
+            drawContent(canvas, DRAW_ALL);
         }
+    }
 
-        //Second
-        if (showSeconds) {
-            left = drawTimeSuffixItem(canvas, left, getTimeString(mSeconds, 2), mSuffixSecond, mSuffixSecondTextWidth);
+    /**
+     * Record the backgrounds and suffixes once per layout, each tick only draws the digits over them.
+     */
+    private void recordStaticLayer() {
+        if (mStaticLayer == null) {
+            mStaticLayer = new Picture();
         }
+        Canvas canvas = mStaticLayer.beginRecording(getWidth(), getHeight());
+        drawContent(canvas, DRAW_STATIC);
+        mStaticLayer.endRecording();
+        isStaticLayerValid = true;
     }
 
     /**
-     * Get the String of @time.
-     *
-     * @param time
-     * @param minLength The minimum length of @time String.
-     * @return
-     */
-    private String getTimeString(long time, int minLength) {
-        String timeString = String.valueOf(time);
-        if (timeString.length() < minLength) {
-            for (int i = 0; i < minLength - timeString.length(); i++) {
-                timeString = "0" + timeString;
-            }
-        }
+     * @param parts {@link #DRAW_STATIC}, {@link #DRAW_DIGITS} or both.
+     */
+    private void drawContent(Canvas canvas, int parts) {
+        /**
+         * TODO: 17/12/29 To support setting width,height and paddings of the view.
+         * If paddingLeft of the view is not specified,the content will be centered in the view by default.
+         */
+        float left = (canvas.getWidth() - mLayout.getWidth()) / 2;
+        float top = (canvas.getHeight() - mLayout.getHeight()) / 2;
+        Drawable timeBackground = mTimeBackground;
 
-        return timeString;
-    }
-
-    private float drawTimeSuffixItem(Canvas canvas, float left, String timeString, String suffix, float suffixTextWidth) {
-        //Draw time content.
-        if (mTimeTextLetterBackgroundSpacing > 0) {//Split timeBackground.
-            for (int i = 0; i < timeString.length(); i++) {
-                //Draw time background.
-                if (mTimeBackground != null) {
-                    mTimeBackground.setBounds((int) left,
-                            (int) (canvas.getHeight() - drawTimeBackgroundHeight) / 2,
-                            (int) (left + drawTimeBackgroundWidth),
-                            (int) (canvas.getHeight() + drawTimeBackgroundHeight) / 2);
-                    mTimeBackground.draw(canvas);
-                }
-
-                //Draw time text.
-                canvas.drawText(String.valueOf(timeString.charAt(i)),
-                        left + drawTimeBackgroundPaddingLeft + (mTimeTextLetterMeasuredWidth) / 2,
-//                        (canvas.getHeight() + mTimeTextMeasuredHeight) / 2,
-                        mTimeTextBaseline + (canvas.getHeight() - drawTimeBackgroundHeight) / 2,
-                        mTimeTextPaint);
-
-                left += drawTimeBackgroundWidth;
-                if (i < timeString.length() - 1) {
-                    left += mTimeTextLetterBackgroundSpacing;
-                }
-            }
-        } else {//Time text is a whole.
-            measureTimeWidthWhenWhole(timeString.length());
-
-            //Draw time background.
-            if (mTimeBackground != null) {
-                mTimeBackground.setBounds((int) left,
-                        (int) (canvas.getHeight() - drawTimeBackgroundHeight) / 2,
-                        (int) (left + drawTimeBackgroundWidth),
-                        (int) (canvas.getHeight() + drawTimeBackgroundHeight) / 2);
-                mTimeBackground.draw(canvas);
-            }
+        for (int cell = 0, count = mLayout.getCellCount(); cell < count; cell++) {
+            float cellLeft = left + mLayout.getLeft(cell);
+            float cellRight = left + mLayout.getRight(cell);
 
-            //Draw time text.
-            left += drawTimeBackgroundPaddingLeft;
-            for (int i = 0; i < timeString.length(); i++) {
-                canvas.drawText(String.valueOf(timeString.charAt(i)),
-                        left + (mTimeTextLetterMeasuredWidth) / 2,
-//                        (canvas.getHeight() + mTimeTextMeasuredHeight) / 2,
-                        mTimeTextBaseline + (canvas.getHeight() - drawTimeBackgroundHeight) / 2,
-                        mTimeTextPaint);
-
-                left += mTimeTextLetterMeasuredWidth;
-                if (i < timeString.length() - 1) {
-                    left += mTimeTextLetterSpacing;
-                } else {//The last letter.
-                    left += drawTimeBackgroundPaddingRight;
-                }
+            //Only draw the cells inside the dirty region.
+            if (canvas.quickReject(cellLeft, 0, cellRight, canvas.getHeight(), Canvas.EdgeType.BW)) {
+                continue;
             }
-        }
 
-        //Draw suffix content.
-        left += mSuffixTextMargin;
-        if (Utils.isNullOrEmpty(suffix)) {
-            return left;
+            int token = mLayout.getCellToken(cell);
+            switch (mLayout.getCellType(cell)) {
+                case CountdownLayoutEngine.CELL_TIME_BACKGROUND:
+                    if (timeBackground != null && (parts & DRAW_STATIC) != 0) {
+                        timeBackground.setBounds((int) cellLeft,
+                                (int) (top + mLayout.getTop(cell)),
+                                (int) cellRight,
+                                (int) (top + mLayout.getBottom(cell)));
+                        timeBackground.draw(canvas);
+                    }
+                    break;
+                case CountdownLayoutEngine.CELL_DIGIT:
+                    if ((parts & DRAW_DIGITS) != 0) {
+                        drawTimeText(canvas, mTimeChars[mFormat.getTokenType(token)], mLayout.getCellChar(cell),
+                                left + mLayout.getTextX(cell), top + mLayout.getBaseline(cell));
+                    }
+                    break;
+                case CountdownLayoutEngine.CELL_SUFFIX:
+                    //Suffixes never change between ticks.
+                    if ((parts & DRAW_STATIC) != 0) {
+                        drawSuffix(canvas, cell, left, top);
+                    }
+                    break;
+            }
         }
+    }
 
-        //Width values.
-        if (mSuffixBackgroundWidth > 0) {
-            if (mSuffixBackgroundWidth < suffixTextWidth) {
-                drawSuffixBackgroundWidth = suffixTextWidth;
-                drawSuffixBackgroundPaddingLeft = drawSuffixBackgroundPaddingRight = 0;
-            } else {
-                /*
-                 * If the size of @suffixBackgroundWidth has been specified by users,
-                 * the paddings will be recalculated.
-                 */
-                drawSuffixBackgroundWidth = mSuffixBackgroundWidth;
-                drawSuffixBackgroundPaddingLeft = drawSuffixBackgroundPaddingRight = (mSuffixBackgroundWidth - suffixTextWidth) / 2;
-            }
+    private void drawTimeText(Canvas canvas, char[] timeChars, int index, float x, float y) {
+        if (mTimeTextAtlas != null) {
+            mTimeTextAtlas.drawText(canvas, timeChars[index] - '0', x, y);
         } else {
-            /*
-             * If the size of @suffixBackgroundWidth has not been specified,
-             * the @suffixBackground will be drawn according to its @suffixTextWidth and @paddings.
-             */
-            drawSuffixBackgroundWidth = suffixTextWidth + mSuffixBackgroundPaddingLeft + mSuffixBackgroundPaddingRight;
+            canvas.drawText(timeChars, index, 1, x, y, mStyle.getTimeTextPaint());
         }
+    }
+
+    /**
+     * @param cell A {@link CountdownLayoutEngine#CELL_SUFFIX} cell of {@link #mLayout}.
+     */
+    private void drawSuffix(Canvas canvas, int cell, float left, float top) {
+        int index = mLayout.getCellToken(cell);
 
         //Draw suffix background.
-        if (mSuffixBackground != null) {
-            mSuffixBackground.setBounds((int) left,
-                    (int) (canvas.getHeight() - drawSuffixBackgroundHeight) / 2,
-                    (int) (left + drawSuffixBackgroundWidth),
-                    (int) (canvas.getHeight() + drawSuffixBackgroundHeight) / 2);
-            mSuffixBackground.draw(canvas);
+        Drawable suffixBackground = mSuffixBackground;
+        if (suffixBackground != null) {
+            suffixBackground.setBounds((int) (left + mLayout.getLeft(cell)),
+                    (int) (top + mLayout.getTop(cell)),
+                    (int) (left + mLayout.getRight(cell)),
+                    (int) (top + mLayout.getBottom(cell)));
+            suffixBackground.draw(canvas);
         }
 
         //Draw suffix text.
-        float suffixBaseline = mSuffixTextBaseline + (canvas.getHeight() - drawSuffixBackgroundHeight) / 2;
-        if (":".equals(suffix)) {//If the suffix text is ":", it will be centered.
-            float deltY = 0;
-
-            if (!Utils.isNullOrEmpty(suffix)) {
-                Rect minRect = getTextBounds(suffix, mSuffixTextPaint);
-
-                /*
-                 * The size of Rect is different between different languages.
-                 */
-                if (mSuffixTextMeasuredHeight < minRect.height()) {
-                    mSuffixTextMeasuredHeight = minRect.height();
-                }
-
-                /*
-                 * The position of baseline is different between different languages.
-                 */
-                deltY = minRect.height() / 2 + minRect.top;
-            }
-
-            suffixBaseline = mMeasureTotalHeight / 2 - deltY;
+        float x = left + mLayout.getTextX(cell);
+        float baseline = top + mLayout.getBaseline(cell);
+        if (mSuffixTextAtlas != null) {
+            mSuffixTextAtlas.drawText(canvas, mSuffixAtlasIndexes[index], x, baseline);
+        } else {
+            canvas.drawText(mFormat.getLiteral(index), x, baseline, mStyle.getSuffixTextPaint());
         }
-        canvas.drawText(suffix,
-                left + drawSuffixBackgroundPaddingLeft + suffixTextWidth / 2,
-                suffixBaseline,
-                mSuffixTextPaint);
+    }
 
-        left += drawSuffixBackgroundWidth + mSuffixTextMargin;
+    private void refresh() {
+        //Most ticks do not change the width, avoid a layout pass up the whole parent chain.
+        if (isStyleChanged || mMeasuredVisibleMask != mVisibleMask || mMeasuredCharCount != getVisibleCharCount()) {
+            requestLayout();
+            invalidate();
+        } else if (isAllDirty) {
+            invalidate();
+        } else if (mDirtyLeft < mDirtyRight) {
+            //Only redraw the digits that changed, the glyphs may overflow their cells by a little.
+            float contentLeft = (getWidth() - mLayout.getWidth()) / 2;
+            invalidate((int) (contentLeft + mDirtyLeft) - DIRTY_REGION_INSET, 0,
+                    (int) Math.ceil(contentLeft + mDirtyRight) + DIRTY_REGION_INSET, getHeight());
+        }
 
-        return left;
+        isAllDirty = false;
+        mDirtyLeft = Float.MAX_VALUE;
+        mDirtyRight = -Float.MAX_VALUE;
     }
 
-    private float measureTimeWidthWhenWhole(int letterCount) {
-        if (mTimeBackgroundWidth > 0) {
-            if (mTimeBackgroundWidth < letterCount * mTimeTextLetterMeasuredWidth + (letterCount - 1) * mTimeTextLetterSpacing) {
-                drawTimeBackgroundWidth = letterCount * mTimeTextLetterMeasuredWidth + (letterCount - 1) * mTimeTextLetterSpacing;
-                drawTimeBackgroundPaddingLeft = drawTimeBackgroundPaddingRight = 0;
-            } else {
-                /*
-                 * If the size of @timeBackgroundWidth has been specified by users,
-                 * the paddings will be recalculated regardless of the values specified by users.
-                 */
-                drawTimeBackgroundWidth = mTimeBackgroundWidth;
-                drawTimeBackgroundPaddingLeft = drawTimeBackgroundPaddingRight
-                        = (mTimeBackgroundWidth - letterCount * mTimeTextLetterMeasuredWidth - (letterCount - 1) * mTimeTextLetterSpacing) / 2;
+    /**
+     * Only the largest unit has a variable digit count, so the sum tells whether the width changed.
+     */
+    private int getVisibleCharCount() {
+        int charCount = 0;
+        for (int i = 0, count = mFormat.getTokenCount(); i < count; i++) {
+            int unit = mFormat.getTokenType(i);
+            if (unit != TimeFormat.TYPE_LITERAL && (mVisibleMask & (1L << i)) != 0) {
+                charCount += mTimeCharCounts[unit];
             }
-        } else {
-            /*
-             * If the size of @timeBackgroundWidth has not been specified,
-             * the @timeBackground will be drawn according to its @mTimeTextLetterMeasuredWidth and @paddings.
-             */
-            drawTimeBackgroundWidth = letterCount * mTimeTextLetterMeasuredWidth
-                    + (letterCount - 1) * mTimeTextLetterSpacing
-                    + mTimeBackgroundPaddingLeft + mTimeBackgroundPaddingRight;
         }
+        return charCount;
+    }
 
-        return drawTimeBackgroundWidth;
+    private void onStyleChanged() {
+        isStyleChanged = true;
+        isStaticLayerValid = false;
+        requestLayout();
+        invalidate();
     }
 
-    class MyCountDownTimer extends CountDownTimer {
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        //The screen state is only dispatched to attached views.
+        isScreenOn = Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT_WATCH
+                || getDisplay() == null || getDisplay().getState() != Display.STATE_OFF;
+        //Restart counting from the deadline, e.g. a recycled list item scrolled back in.
+        updateTicking();
+    }
 
-        long diffTime = 0;
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        //Keep the deadline, so re-attaching resumes the countdown.
+        pauseTicking();
+        releaseGlyphAtlases();
+    }
 
-        MyCountDownTimer(long millisInFuture, long countDownInterval) {
-            super(millisInFuture, countDownInterval);
-            refresh();
-        }
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateTicking();
+    }
 
-        @Override
-        public void onFinish() {
-            //todo
-            resetZero();
-            refresh();
-            cancel();
-        }
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateTicking();
+    }
 
-        @Override
-        public void onTick(long millisUntilFinished) {
-            getTimeByMillis(millisUntilFinished);
+    /**
+     * Only dispatched since Jelly Bean, earlier the window visibility still pauses ticking when the screen is off.
+     */
+    @Override
+    public void onScreenStateChanged(int screenState) {
+        super.onScreenStateChanged(screenState);
+        isScreenOn = screenState == SCREEN_STATE_ON;
+        updateTicking();
+    }
 
-            refresh();
+    /**
+     * Draw digits and suffixes from pre-rendered bitmaps shared by views with the same style,
+     * instead of drawing the text every frame.
+     * Styles with a custom text paint always draw the text, see {@link CountdownStyle#hasCustomTextPaint()}.
+     */
+    public void setGlyphAtlasEnabled(boolean glyphAtlasEnabled) {
+        this.isGlyphAtlasEnabled = glyphAtlasEnabled;
+        if (!glyphAtlasEnabled) {
+            releaseGlyphAtlases();
         }
+        invalidate();
     }
 
-    private void refresh() {
-        postInvalidate();
-        requestLayout();
+    /**
+     * Record the backgrounds and suffixes once per layout and only draw the digits on each tick.
+     * Falls back to drawing everything on hardware accelerated canvases before Android M.
+     */
+    public void setStaticLayerEnabled(boolean staticLayerEnabled) {
+        this.isStaticLayerEnabled = staticLayerEnabled;
+        isStaticLayerValid = false;
+        if (!staticLayerEnabled) {
+            mStaticLayer = null;
+        }
+        invalidate();
     }
 
-    private void resetZero() {
-        mDays = 0;
-        mHours = 0;
-        mMinutes = 0;
-        mSeconds = 0;
+    /**
+     * Show the "SS"/"SSS" fields of the format and redraw them on every display frame
+     * once the remaining time is at most the threshold. Above it they are hidden and the view ticks as usual.
+     * <p>
+     * 剩余时间不超过该值时显示"SS/SSS"，并每帧刷新；超过时隐藏，按秒刷新。
+     *
+     * @param highPrecisionThreshold Remaining time in milliseconds, 10 seconds by default.
+     */
+    public void setHighPrecisionThreshold(long highPrecisionThreshold) {
+        this.mHighPrecisionThreshold = highPrecisionThreshold;
+        if (isTicking) {
+            //Tick again now, the next tick may be earlier.
+            pauseTicking();
+            updateTicking();
+        }
     }
 
-    @Override
-    protected void onDetachedFromWindow() {
-        super.onDetachedFromWindow();
-        stopCountdown();
+    /**
+     * Use a style shared with other views, Eg:when binding a recycled view.
+     * Only the layout is recomputed, the paints and text metrics come with the style.
+     * <p>
+     * 设置与其他控件共享的样式，例：复用列表项时。只重新计算布局，画笔、文字尺寸由样式提供。
+     */
+    public void setStyle(CountdownStyle style) {
+        if (style == mStyle) {
+            return;
+        }
+        mStyle = style;
+        initBackgrounds();
+        onStyleChanged();
     }
 
-    private void stopCountdown() {
-        if (myCountDownTimer != null) {
-            myCountDownTimer.cancel();
-        }
+    public CountdownStyle getStyle() {
+        return mStyle;
     }
 
     public void setTimeTextPaint(Paint timeTextPaint) {
-        this.mTimeTextPaint = timeTextPaint;
+        setStyle(mStyle.buildUpon().setTimeTextPaint(timeTextPaint).build());
     }
 
     public void setSuffixTextPaint(Paint suffixTextPaint) {
-        this.mSuffixTextPaint = suffixTextPaint;
+        setStyle(mStyle.buildUpon().setSuffixTextPaint(suffixTextPaint).build());
     }
 
     public void setIncludePad(boolean includePad) {
-        this.mIncludePad = includePad;
+        setStyle(mStyle.buildUpon().setIncludePad(includePad).build());
     }
 
     public void setTimeTextSize(int timeTextSize) {
-        this.mTimeTextSize = timeTextSize;
+        setStyle(mStyle.buildUpon().setTimeTextSize(timeTextSize).build());
     }
 
     public void setTimeTextColor(int timeTextColor) {
-        this.mTimeTextColor = timeTextColor;
+        setStyle(mStyle.buildUpon().setTimeTextColor(timeTextColor).build());
     }
 
     public void setTimeTextBold(boolean timeTextBold) {
-        isTimeTextBold = timeTextBold;
+        setStyle(mStyle.buildUpon().setTimeTextBold(timeTextBold).build());
     }
 
     public void setTimeTextLetterSpacing(float timeTextLetterSpacing) {
-        this.mTimeTextLetterSpacing = timeTextLetterSpacing;
+        setStyle(mStyle.buildUpon().setTimeTextLetterSpacing(timeTextLetterSpacing).build());
     }
 
     public void setTimeTextLetterBackgroundSpacing(float timeTextLetterBackgroundSpacing) {
-        this.mTimeTextLetterBackgroundSpacing = timeTextLetterBackgroundSpacing;
+        setStyle(mStyle.buildUpon().setTimeTextLetterBackgroundSpacing(timeTextLetterBackgroundSpacing).build());
     }
 
     public void setTimeBackground(Drawable timeBackground) {
-        this.mTimeBackground = timeBackground;
+        setStyle(mStyle.buildUpon().setTimeBackground(timeBackground).build());
     }
 
     public void setTimeBackgroundWidth(float timeBackgroundWidth) {
-        this.mTimeBackgroundWidth = timeBackgroundWidth;
+        setStyle(mStyle.buildUpon().setTimeBackgroundWidth(timeBackgroundWidth).build());
     }
 
     public void setTimeBackgroundHeight(float timeBackgroundHeight) {
-        this.mTimeBackgroundHeight = timeBackgroundHeight;
+        setStyle(mStyle.buildUpon().setTimeBackgroundHeight(timeBackgroundHeight).build());
     }
 
     public void setTimeBackgroundPadding(float timeBackgroundPadding) {
-        this.mTimeBackgroundPadding = timeBackgroundPadding;
+        setStyle(mStyle.buildUpon().setTimeBackgroundPadding(timeBackgroundPadding).build());
     }
 
     public void setTimeBackgroundPaddingX(float timeBackgroundPaddingX) {
-        this.mTimeBackgroundPaddingX = timeBackgroundPaddingX;
+        setStyle(mStyle.buildUpon().setTimeBackgroundPaddingX(timeBackgroundPaddingX).build());
     }
 
     public void setTimeBackgroundPaddingY(float timeBackgroundPaddingY) {
-        this.mTimeBackgroundPaddingY = timeBackgroundPaddingY;
+        setStyle(mStyle.buildUpon().setTimeBackgroundPaddingY(timeBackgroundPaddingY).build());
     }
 
     public void setTimeBackgroundPaddingLeft(float timeBackgroundPaddingLeft) {
-        this.mTimeBackgroundPaddingLeft = timeBackgroundPaddingLeft;
+        setStyle(mStyle.buildUpon().setTimeBackgroundPaddingLeft(timeBackgroundPaddingLeft).build());
     }
 
     public void setTimeBackgroundPaddingRight(float timeBackgroundPaddingRight) {
-        this.mTimeBackgroundPaddingRight = timeBackgroundPaddingRight;
+        setStyle(mStyle.buildUpon().setTimeBackgroundPaddingRight(timeBackgroundPaddingRight).build());
     }
 
     public void setTimeBackgroundPaddingTop(float timeBackgroundPaddingTop) {
-        this.mTimeBackgroundPaddingTop = timeBackgroundPaddingTop;
+        setStyle(mStyle.buildUpon().setTimeBackgroundPaddingTop(timeBackgroundPaddingTop).build());
     }
 
     public void setTimeBackgroundPaddingBottom(float timeBackgroundPaddingBottom) {
-        this.mTimeBackgroundPaddingBottom = timeBackgroundPaddingBottom;
+        setStyle(mStyle.buildUpon().setTimeBackgroundPaddingBottom(timeBackgroundPaddingBottom).build());
     }
 
     public void setSuffixTextSize(int suffixTextSize) {
-        this.mSuffixTextSize = suffixTextSize;
+        setStyle(mStyle.buildUpon().setSuffixTextSize(suffixTextSize).build());
     }
 
     public void setSuffixTextColor(int suffixTextColor) {
-        this.mSuffixTextColor = suffixTextColor;
+        setStyle(mStyle.buildUpon().setSuffixTextColor(suffixTextColor).build());
     }
 
     public void setSuffixTextBold(boolean suffixTextBold) {
-        isSuffixTextBold = suffixTextBold;
+        setStyle(mStyle.buildUpon().setSuffixTextBold(suffixTextBold).build());
     }
 
     public void setSuffixTextMargin(float suffixTextMargin) {
-        this.mSuffixTextMargin = suffixTextMargin;
+        setStyle(mStyle.buildUpon().setSuffixTextMargin(suffixTextMargin).build());
     }
 
     public void setSuffixBackground(Drawable suffixBackground) {
-        this.mSuffixBackground = suffixBackground;
+        setStyle(mStyle.buildUpon().setSuffixBackground(suffixBackground).build());
     }
 
     public void setSuffixBackgroundWidth(float suffixBackgroundWidth) {
-        this.mSuffixBackgroundWidth = suffixBackgroundWidth;
+        setStyle(mStyle.buildUpon().setSuffixBackgroundWidth(suffixBackgroundWidth).build());
     }
 
     public void setSuffixBackgroundHeight(float suffixBackgroundHeight) {
-        this.mSuffixBackgroundHeight = suffixBackgroundHeight;
+        setStyle(mStyle.buildUpon().setSuffixBackgroundHeight(suffixBackgroundHeight).build());
     }
 
     public void setSuffixBackgroundPadding(float suffixBackgroundPadding) {
-        this.mSuffixBackgroundPadding = suffixBackgroundPadding;
+        setStyle(mStyle.buildUpon().setSuffixBackgroundPadding(suffixBackgroundPadding).build());
     }
 
     public void setSuffixBackgroundPaddingX(float suffixBackgroundPaddingX) {
-        this.mSuffixBackgroundPaddingX = suffixBackgroundPaddingX;
+        setStyle(mStyle.buildUpon().setSuffixBackgroundPaddingX(suffixBackgroundPaddingX).build());
     }
 
     public void setSuffixBackgroundPaddingY(float suffixBackgroundPaddingY) {
-        this.mSuffixBackgroundPaddingY = suffixBackgroundPaddingY;
+        setStyle(mStyle.buildUpon().setSuffixBackgroundPaddingY(suffixBackgroundPaddingY).build());
     }
 
     public void setSuffixBackgroundPaddingLeft(float suffixBackgroundPaddingLeft) {
-        this.mSuffixBackgroundPaddingLeft = suffixBackgroundPaddingLeft;
+        setStyle(mStyle.buildUpon().setSuffixBackgroundPaddingLeft(suffixBackgroundPaddingLeft).build());
     }
 
     public void setSuffixBackgroundPaddingRight(float suffixBackgroundPaddingRight) {
-        this.mSuffixBackgroundPaddingRight = suffixBackgroundPaddingRight;
+        setStyle(mStyle.buildUpon().setSuffixBackgroundPaddingRight(suffixBackgroundPaddingRight).build());
     }
 
     public void setSuffixBackgroundPaddingTop(float suffixBackgroundPaddingTop) {
-        this.mSuffixBackgroundPaddingTop = suffixBackgroundPaddingTop;
+        setStyle(mStyle.buildUpon().setSuffixBackgroundPaddingTop(suffixBackgroundPaddingTop).build());
     }
 
     public void setSuffixBackgroundPaddingBottom(float suffixBackgroundPaddingBottom) {
-        this.mSuffixBackgroundPaddingBottom = suffixBackgroundPaddingBottom;
+        setStyle(mStyle.buildUpon().setSuffixBackgroundPaddingBottom(suffixBackgroundPaddingBottom).build());
     }
 }
\ No newline at end of file
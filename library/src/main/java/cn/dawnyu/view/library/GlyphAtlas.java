@@ -0,0 +1,167 @@
+package cn.dawnyu.view.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * description: Texts pre-rendered once into a shared bitmap, then drawn as bitmap blits.
+ * Used by {@link CountdownView} to draw digits and suffixes without shaping and rasterizing text every frame.
+ * Atlases are shared by all views with the same paint configuration and texts, and reference-counted.
+ * The last release only drops the atlas from the cache: a recorded {@link android.graphics.Picture}
+ * or display list may still draw its bitmap, so the bitmap is left to the garbage collector instead of being recycled.
+ * Must be used on the main thread.
+ * <p>
+ * 预先渲染到共享位图中的文字，绘制时只需拷贝位图。按样式共享并引用计数，没有控件使用时移出缓存，位图由垃圾回收释放。
+ * date: 26/10/17
+ * version:
+ */
+final class GlyphAtlas {
+    /**
+     * Spare pixels around each text, so anti-aliased edges are not clipped.
+     */
+    private static final int CELL_PADDING = 2;
+    private static final String[] DIGITS = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+
+    private static final HashMap<Key, GlyphAtlas> sAtlases = new HashMap<>();
+
+    private final Key mKey;
+    private final Bitmap mBitmap;
+    private final Rect[] mCells;
+    /**
+     * Distance from the top of a cell to the baseline of its text.
+     */
+    private final float mBaseline;
+    private final Paint mBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final RectF mDst = new RectF();
+    private int mRefCount;
+
+    private GlyphAtlas(Key key, Paint paint, GlyphMetrics metrics) {
+        mKey = key;
+
+        String[] texts = key.texts;
+        float[] widths = new float[texts.length];
+        int totalWidth = 0;
+        for (int i = 0; i < texts.length; i++) {
+            widths[i] = metrics.measureText(texts[i]);
+            totalWidth += (int) Math.ceil(widths[i]) + CELL_PADDING * 2;
+        }
+        //Cells span the whole font box, the text height without the font padding would clip tall glyphs.
+        Paint.FontMetrics fontMetrics = paint.getFontMetrics();
+        int height = (int) Math.ceil(fontMetrics.bottom - fontMetrics.top) + CELL_PADDING * 2;
+        mBaseline = -fontMetrics.top + CELL_PADDING;
+
+        mBitmap = Bitmap.createBitmap(Math.max(totalWidth, 1), height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(mBitmap);
+        mCells = new Rect[texts.length];
+        int left = 0;
+        for (int i = 0; i < texts.length; i++) {
+            int width = (int) Math.ceil(widths[i]) + CELL_PADDING * 2;
+            mCells[i] = new Rect(left, 0, left + width, height);
+            //The paints of CountdownView are center aligned.
+            canvas.drawText(texts[i], left + width / 2f, mBaseline, paint);
+            left += width;
+        }
+    }
+
+    /**
+     * Atlas of the digits "0" to "9", the index of a digit is its value.
+     */
+    static GlyphAtlas acquireDigits(Paint paint, boolean includePad) {
+        return acquire(paint, includePad, DIGITS);
+    }
+
+    /**
+     * Get a shared atlas of the texts, rendering it only if no view holds one already.
+     * Every call must be paired with a {@link #release()}.
+     *
+     * @param paint A center aligned paint built by {@link CountdownStyle}, the key only holds what such paints set.
+     */
+    static GlyphAtlas acquire(Paint paint, boolean includePad, String[] texts) {
+        Key key = new Key(paint, includePad, texts);
+        GlyphAtlas atlas = sAtlases.get(key);
+        if (atlas == null) {
+            atlas = new GlyphAtlas(key, paint, GlyphMetrics.obtain(paint, includePad));
+            sAtlases.put(key, atlas);
+        }
+        atlas.mRefCount++;
+        return atlas;
+    }
+
+    /**
+     * Drop the atlas from the cache after the last release. The bitmap is not recycled,
+     * a picture or display list recorded before may still reference it.
+     */
+    void release() {
+        if (--mRefCount <= 0) {
+            sAtlases.remove(mKey);
+        }
+    }
+
+    /**
+     * Draw a text like {@link Canvas#drawText(String, float, float, Paint)} with a center aligned paint.
+     *
+     * @param index    Index of the text in the atlas.
+     * @param x        Horizontal center of the text.
+     * @param baseline Baseline of the text.
+     */
+    void drawText(Canvas canvas, int index, float x, float baseline) {
+        Rect cell = mCells[index];
+        float left = x - cell.width() / 2f;
+        float top = baseline - mBaseline;
+        mDst.set(left, top, left + cell.width(), top + cell.height());
+        canvas.drawBitmap(mBitmap, cell, mDst, mBitmapPaint);
+    }
+
+    private static final class Key {
+        private final Typeface typeface;
+        private final float textSize;
+        private final boolean isFakeBold;
+        private final int color;
+        private final boolean includePad;
+        private final String[] texts;
+
+        Key(Paint paint, boolean includePad, String[] texts) {
+            this.typeface = paint.getTypeface();
+            this.textSize = paint.getTextSize();
+            this.isFakeBold = paint.isFakeBoldText();
+            this.color = paint.getColor();
+            this.includePad = includePad;
+            this.texts = texts;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return (typeface == null ? key.typeface == null : typeface.equals(key.typeface))
+                    && Float.compare(textSize, key.textSize) == 0
+                    && isFakeBold == key.isFakeBold
+                    && color == key.color
+                    && includePad == key.includePad
+                    && Arrays.equals(texts, key.texts);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = typeface != null ? typeface.hashCode() : 0;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + (isFakeBold ? 1 : 0);
+            result = 31 * result + color;
+            result = 31 * result + (includePad ? 1 : 0);
+            result = 31 * result + Arrays.hashCode(texts);
+            return result;
+        }
+    }
+}
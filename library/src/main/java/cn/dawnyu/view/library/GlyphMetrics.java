@@ -0,0 +1,166 @@
+package cn.dawnyu.view.library;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * description: Text metrics of one paint configuration, shared by all views drawing with it.
+ * Keyed by (typeface, text size, fake bold, include font padding), so identically styled views
+ * measure their digits and suffixes once instead of once per view and per layout pass.
+ * <p>
+ * 按画笔配置（字体、字号、粗体、是否包含字体内边距）共享的文字尺寸缓存。
+ * date: 26/10/17
+ * version:
+ */
+final class GlyphMetrics {
+    private static final int CACHE_SIZE = 16;
+    /**
+     * Upper bound of the cached text widths of one configuration.
+     */
+    private static final int TEXT_WIDTH_CACHE_SIZE = 64;
+
+    private static final LinkedHashMap<Key, GlyphMetrics> sCache =
+            new LinkedHashMap<Key, GlyphMetrics>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, GlyphMetrics> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    /**
+     * Width of the widest digit.
+     */
+    final float maxDigitWidth;
+    /**
+     * Height of a text line, with or without the font padding.
+     */
+    final float textHeight;
+    /**
+     * Distance from the top of a text line to its baseline.
+     */
+    final float baseline;
+    /**
+     * Bounds of ":" relative to the baseline, used to center it vertically.
+     */
+    final int colonTop;
+    final int colonHeight;
+
+    private final Paint mPaint;
+    private final HashMap<String, Float> mTextWidths = new HashMap<>();
+
+    private GlyphMetrics(Paint paint, boolean includePad) {
+        //Keep a private copy, the paint of the view may be changed later.
+        mPaint = new Paint(paint);
+
+        Rect bounds = new Rect();
+        char[] digit = new char[1];
+        float maxDigitWidth = 0;
+        for (int i = 0; i < 10; i++) {
+            digit[0] = (char) ('0' + i);
+            mPaint.getTextBounds(digit, 0, 1, bounds);
+            maxDigitWidth = Math.max(maxDigitWidth, bounds.width());
+        }
+        this.maxDigitWidth = maxDigitWidth;
+
+        Paint.FontMetrics fontMetrics = mPaint.getFontMetrics();
+        if (includePad) {
+            textHeight = fontMetrics.bottom - fontMetrics.top;
+            baseline = -fontMetrics.top;
+        } else {
+            textHeight = fontMetrics.descent - fontMetrics.ascent;
+            baseline = -fontMetrics.ascent;
+        }
+
+        mPaint.getTextBounds(":", 0, 1, bounds);
+        colonTop = bounds.top;
+        colonHeight = bounds.height();
+    }
+
+    /**
+     * Get the metrics of a paint, measuring them only on the first use of its configuration.
+     * Only for paints that differ in nothing but the key, Eg:the paints built by {@link CountdownStyle},
+     * use {@link #create(Paint, boolean)} for any other paint.
+     */
+    static GlyphMetrics obtain(Paint paint, boolean includePad) {
+        Key key = new Key(paint.getTypeface(), paint.getTextSize(), paint.isFakeBoldText(), includePad);
+        synchronized (sCache) {
+            GlyphMetrics metrics = sCache.get(key);
+            if (metrics != null) {
+                return metrics;
+            }
+        }
+
+        GlyphMetrics metrics = new GlyphMetrics(paint, includePad);
+        synchronized (sCache) {
+            sCache.put(key, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Measure a paint without sharing the metrics, for a custom paint the key does not describe.
+     */
+    static GlyphMetrics create(Paint paint, boolean includePad) {
+        return new GlyphMetrics(paint, includePad);
+    }
+
+    /**
+     * Same as {@link Paint#measureText(String)}, cached.
+     */
+    float measureText(String text) {
+        synchronized (mTextWidths) {
+            Float width = mTextWidths.get(text);
+            if (width == null) {
+                if (mTextWidths.size() >= TEXT_WIDTH_CACHE_SIZE) {
+                    mTextWidths.clear();
+                }
+                width = mPaint.measureText(text);
+                mTextWidths.put(text, width);
+            }
+            return width;
+        }
+    }
+
+    private static final class Key {
+        private final Typeface typeface;
+        private final float textSize;
+        private final boolean isFakeBold;
+        private final boolean includePad;
+
+        Key(Typeface typeface, float textSize, boolean isFakeBold, boolean includePad) {
+            this.typeface = typeface;
+            this.textSize = textSize;
+            this.isFakeBold = isFakeBold;
+            this.includePad = includePad;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return (typeface == null ? key.typeface == null : typeface.equals(key.typeface))
+                    && Float.compare(textSize, key.textSize) == 0
+                    && isFakeBold == key.isFakeBold
+                    && includePad == key.includePad;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = typeface != null ? typeface.hashCode() : 0;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + (isFakeBold ? 1 : 0);
+            result = 31 * result + (includePad ? 1 : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package cn.dawnyu.view.library;
+
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * description: Wall clock of the server, kept as an offset from the monotonic clock of {@link TimeSource#getDefault()}.
+ * Once a server time sample is set, {@link CountdownView#startUntil(long, String)} counts down from
+ * elapsedRealtime plus the offset, so a wrong or changed device clock no longer moves the countdowns.
+ * Setting a new sample re-aligns every running countdown in one pass of the shared ticker.
+ * Until the first sample, the device clock is used.
+ * <p>
+ * 服务器时间：保存服务器时间与单调时钟的差值，倒计时按单调时钟加差值计算，不受设备时间错误或修改的影响。
+ * 更新服务器时间后，所有正在倒计时的控件一次性重新对齐。未设置服务器时间时使用设备时间。
+ * date: 26/10/17
+ * version:
+ */
+public final class ServerClock {
+    private static final long NO_OFFSET = Long.MIN_VALUE;
+
+    /**
+     * Server time minus {@link TimeSource#elapsedRealtime()}, {@link #NO_OFFSET} before the first sample.
+     */
+    private static volatile long sOffset = NO_OFFSET;
+
+    /**
+     * Countdowns with an absolute deadline, only used on the main thread.
+     */
+    private static final WeakHashMap<OnOffsetChangedListener, Boolean> sListeners = new WeakHashMap<>();
+
+    /**
+     * {@link #sDispatchRunnable} is posted and has not started yet, later samples share that run.
+     */
+    private static final AtomicBoolean sDispatchPending = new AtomicBoolean();
+
+    private static final Runnable sDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            //Cleared before reading the offset, a sample set during the dispatch posts the next one.
+            sDispatchPending.set(false);
+            dispatchOffsetChanged();
+        }
+    };
+
+    interface OnOffsetChangedListener {
+        /**
+         * @param offset The new {@link #getOffset()}.
+         */
+        void onOffsetChanged(long offset);
+    }
+
+    private ServerClock() {
+    }
+
+    /**
+     * Set the server time, read from a response received just now.
+     * May be called from any thread, the countdowns are re-aligned on the main thread.
+     *
+     * @param serverTimeMillis Milliseconds since epoch.
+     */
+    public static void setServerTime(long serverTimeMillis) {
+        long now = TimeSource.getDefault().elapsedRealtime();
+        setServerTime(serverTimeMillis, now, now);
+    }
+
+    /**
+     * Set the server time, assuming the server read it halfway through the request.
+     * May be called from any thread, the countdowns are re-aligned on the main thread.
+     *
+     * @param serverTimeMillis        Milliseconds since epoch.
+     * @param requestElapsedRealtime  {@link TimeSource#elapsedRealtime()} when the request was sent.
+     * @param responseElapsedRealtime {@link TimeSource#elapsedRealtime()} when the response was received.
+     */
+    public static void setServerTime(long serverTimeMillis, long requestElapsedRealtime, long responseElapsedRealtime) {
+        long elapsedRealtime = requestElapsedRealtime + (responseElapsedRealtime - requestElapsedRealtime) / 2;
+        setOffset(serverTimeMillis - elapsedRealtime);
+    }
+
+    /**
+     * Forget the server time and use the device clock again.
+     */
+    public static void reset() {
+        setOffset(NO_OFFSET);
+    }
+
+    private static void setOffset(long offset) {
+        if (sOffset == offset) {
+            return;
+        }
+        sOffset = offset;
+
+        //A burst of samples re-aligns the countdowns once, with the latest offset.
+        if (sDispatchPending.compareAndSet(false, true)) {
+            TimeSource timeSource = TimeSource.getDefault();
+            timeSource.postAt(sDispatchRunnable, timeSource.elapsedRealtime());
+        }
+    }
+
+    /**
+     * @return Whether a server time sample is set.
+     */
+    public static boolean isSynced() {
+        return sOffset != NO_OFFSET;
+    }
+
+    /**
+     * @return The server time in milliseconds since epoch, or the device time before the first sample.
+     */
+    public static long currentTimeMillis() {
+        return TimeSource.getDefault().elapsedRealtime() + getOffset();
+    }
+
+    /**
+     * @return Wall clock time minus {@link TimeSource#elapsedRealtime()}, from the server if synced.
+     */
+    static long getOffset() {
+        long offset = sOffset;
+        if (offset != NO_OFFSET) {
+            return offset;
+        }
+        TimeSource timeSource = TimeSource.getDefault();
+        return timeSource.currentTimeMillis() - timeSource.elapsedRealtime();
+    }
+
+    static void addListener(OnOffsetChangedListener listener) {
+        sListeners.put(listener, Boolean.TRUE);
+    }
+
+    static void removeListener(OnOffsetChangedListener listener) {
+        sListeners.remove(listener);
+    }
+
+    /**
+     * Move the deadlines of all countdowns first, then tick the running ones once, all in the same pass.
+     */
+    private static void dispatchOffsetChanged() {
+        long offset = getOffset();
+        OnOffsetChangedListener[] listeners = sListeners.keySet().toArray(new OnOffsetChangedListener[sListeners.size()]);
+        for (OnOffsetChangedListener listener : listeners) {
+            if (listener != null) {
+                listener.onOffsetChanged(offset);
+            }
+        }
+
+        if (listeners.length > 0) {
+            CountdownTicker.getInstance().tickNow();
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package cn.dawnyu.view.library;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * description: Compiled countdown time format, an immutable program of unit fields and literal suffix runs.
+ * Syntax:
+ * "dd", "hh", "mm", "ss" are the day/hour/minute/second fields, in any order.
+ * "SS" and "SSS" are the centisecond and millisecond fields, Eg:"mm:ss.SS".
+ * They are only shown in the precise mode, see {@link #getValues(long, boolean, long[])}.
+ * Text inside single quotes is literal, "''" is a single quote. Eg:"hh'hh'mm".
+ * "[...]" marks an optional section, it is hidden while its fields and every field before it are zero.
+ * An unbracketed "dd" field and the text following it form an optional section too, Eg:"dd天hh:mm:ss".
+ * Any other text is a literal suffix of the field before it.
+ * The largest field in the format absorbs the larger units, Eg:"hh:mm:ss" shows 50 hours as "50:00:00".
+ * <p>
+ * Compiled formats are kept in a bounded LRU cache shared by all views, see {@link #compile(String)}.
+ * <p>
+ * 编译后的倒计时格式，不可变。支持任意顺序的"dd/hh/mm/ss"，"SS/SSS"（百分之一秒/毫秒），单引号转义，以及"[...]"可选区段。
+ * 所有控件共用一个有上限的 LRU 缓存，相同格式只解析一次。
+ * date: 26/10/17
+ * version:
+ */
+final class TimeFormat {
+    static final int TYPE_LITERAL = -1;
+    static final int UNIT_DAY = 0;
+    static final int UNIT_HOUR = 1;
+    static final int UNIT_MINUTE = 2;
+    static final int UNIT_SECOND = 3;
+    static final int UNIT_CENTISECOND = 4;
+    static final int UNIT_MILLISECOND = 5;
+    static final int UNIT_COUNT = 6;
+
+    /**
+     * The visibility of tokens is kept in a long mask.
+     */
+    private static final int MAX_TOKEN_COUNT = 64;
+    private static final char[] UNIT_LETTERS = {'d', 'h', 'm', 's'};
+    private static final long[] UNIT_MILLIS = {1000 * 60 * 60 * 24, 1000 * 60 * 60, 1000 * 60, 1000, 10, 1};
+    private static final int CACHE_SIZE = 32;
+
+    private static final LinkedHashMap<String, TimeFormat> sCache =
+            new LinkedHashMap<String, TimeFormat>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TimeFormat> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private final String mPattern;
+    /**
+     * Unit of each token, or {@link #TYPE_LITERAL}.
+     */
+    private final int[] mTypes;
+    /**
+     * Text of each literal token, null for units.
+     */
+    private final String[] mLiterals;
+    /**
+     * Token index ranges of the sections, [start, end).
+     */
+    private final int[] mSectionStarts;
+    private final int[] mSectionEnds;
+    private final boolean[] mSectionOptional;
+    private final int mLargestUnit;
+    /**
+     * The smallest unit in the format, {@link #TYPE_LITERAL} if there is none.
+     */
+    private final int mSmallestUnit;
+    /**
+     * The smallest unit in the format shown outside the precise mode, {@link #TYPE_LITERAL} if there is none.
+     */
+    private final int mSmallestSecondUnit;
+    /**
+     * Bit i is set if token i is hidden outside the precise mode,
+     * a sub-second field and the separator between it and the field before it.
+     */
+    private final long mSubSecondMask;
+
+    private TimeFormat(String pattern, ArrayList<Object> tokens, ArrayList<int[]> sections) {
+        mPattern = pattern;
+
+        int count = tokens.size();
+        mTypes = new int[count];
+        mLiterals = new String[count];
+        int largestUnit = UNIT_COUNT;
+        int smallestUnit = TYPE_LITERAL;
+        int smallestSecondUnit = TYPE_LITERAL;
+        long subSecondMask = 0;
+        for (int i = 0; i < count; i++) {
+            Object token = tokens.get(i);
+            if (token instanceof String) {
+                mTypes[i] = TYPE_LITERAL;
+                mLiterals[i] = (String) token;
+            } else {
+                mTypes[i] = (Integer) token;
+                largestUnit = Math.min(largestUnit, mTypes[i]);
+                smallestUnit = Math.max(smallestUnit, mTypes[i]);
+                if (!isSubSecond(mTypes[i])) {
+                    smallestSecondUnit = Math.max(smallestSecondUnit, mTypes[i]);
+                    continue;
+                }
+
+                subSecondMask |= 1L << i;
+                if (i >= 2 && mTypes[i - 1] == TYPE_LITERAL && mTypes[i - 2] != TYPE_LITERAL) {
+                    subSecondMask |= 1L << (i - 1);
+                }
+            }
+        }
+        mLargestUnit = largestUnit == UNIT_COUNT || isSubSecond(largestUnit) ? UNIT_SECOND : largestUnit;
+        mSmallestUnit = smallestUnit;
+        mSmallestSecondUnit = smallestSecondUnit;
+        mSubSecondMask = subSecondMask;
+
+        int sectionCount = sections.size();
+        mSectionStarts = new int[sectionCount];
+        mSectionEnds = new int[sectionCount];
+        mSectionOptional = new boolean[sectionCount];
+        for (int i = 0; i < sectionCount; i++) {
+            int[] section = sections.get(i);
+            mSectionStarts[i] = section[0];
+            mSectionEnds[i] = section[1];
+            mSectionOptional[i] = section[2] != 0;
+        }
+    }
+
+    /**
+     * Get the compiled program of a format, parsing it only on the first use.
+     *
+     * @param pattern Eg:"dd天hh:mm:ss", "hh小时mm分钟ss秒"
+     * @throws IllegalArgumentException If the format is malformed.
+     */
+    static TimeFormat compile(String pattern) {
+        synchronized (sCache) {
+            TimeFormat format = sCache.get(pattern);
+            if (format != null) {
+                return format;
+            }
+        }
+
+        TimeFormat format = parse(pattern);
+        synchronized (sCache) {
+            sCache.put(pattern, format);
+        }
+        return format;
+    }
+
+    private static TimeFormat parse(String pattern) {
+        ArrayList<Object> tokens = new ArrayList<>();
+        // {start, end, optional}
+        ArrayList<int[]> sections = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int[] section = null;
+        boolean inBrackets = false;
+
+        int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            char c = pattern.charAt(i);
+
+            if (c == '\'') {
+                int end = i + 1;
+                while (true) {
+                    if (end >= length) {
+                        throw new IllegalArgumentException("Unterminated quote in time format: " + pattern);
+                    }
+                    if (pattern.charAt(end) == '\'') {
+                        if (end + 1 < length && pattern.charAt(end + 1) == '\'') {
+                            literal.append('\'');
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    literal.append(pattern.charAt(end));
+                    end++;
+                }
+                if (end == i + 1) {//"''" is a single quote.
+                    literal.append('\'');
+                }
+                i = end + 1;
+                continue;
+            }
+
+            if (c == '[' || c == ']') {
+                if (inBrackets == (c == '[')) {
+                    throw new IllegalArgumentException("Unbalanced brackets in time format: " + pattern);
+                }
+                section = flushLiteral(tokens, sections, section, literal, inBrackets);
+                closeSection(tokens, section);
+                section = null;
+                if (c == '[') {
+                    section = new int[]{tokens.size(), tokens.size(), 1};
+                    sections.add(section);
+                }
+                inBrackets = c == '[';
+                i++;
+                continue;
+            }
+
+            int unit = getUnit(pattern, i);
+            if (unit != TYPE_LITERAL) {
+                section = flushLiteral(tokens, sections, section, literal, inBrackets);
+                if (!inBrackets) {
+                    //Outside brackets every field starts a section, holding the field and its suffix.
+                    closeSection(tokens, section);
+                    section = new int[]{tokens.size(), tokens.size(), unit == UNIT_DAY ? 1 : 0};
+                    sections.add(section);
+                }
+                tokens.add(unit);
+                i += unit == UNIT_MILLISECOND ? 3 : 2;
+                continue;
+            }
+
+            literal.append(c);
+            i++;
+        }
+
+        if (inBrackets) {
+            throw new IllegalArgumentException("Unbalanced brackets in time format: " + pattern);
+        }
+        section = flushLiteral(tokens, sections, section, literal, false);
+        closeSection(tokens, section);
+
+        if (tokens.size() > MAX_TOKEN_COUNT) {
+            throw new IllegalArgumentException("Too many fields in time format: " + pattern);
+        }
+        return new TimeFormat(pattern, tokens, sections);
+    }
+
+    private static int getUnit(String pattern, int index) {
+        if (index + 1 >= pattern.length()) {
+            return TYPE_LITERAL;
+        }
+
+        char c = pattern.charAt(index);
+        if (c != pattern.charAt(index + 1)) {
+            return TYPE_LITERAL;
+        }
+        if (c == 'S') {
+            return index + 2 < pattern.length() && pattern.charAt(index + 2) == 'S' ? UNIT_MILLISECOND : UNIT_CENTISECOND;
+        }
+        //"SS" and "SSS" are matched above, the letters only cover the units down to seconds.
+        for (int unit = 0; unit < UNIT_LETTERS.length; unit++) {
+            if (UNIT_LETTERS[unit] == c) {
+                return unit;
+            }
+        }
+        return TYPE_LITERAL;
+    }
+
+    /**
+     * Add the pending literal text as a token, merged with a literal token right before it.
+     *
+     * @return The current section.
+     */
+    private static int[] flushLiteral(ArrayList<Object> tokens, ArrayList<int[]> sections, int[] section,
+                                      StringBuilder literal, boolean inBrackets) {
+        if (literal.length() == 0) {
+            return section;
+        }
+
+        if (section == null && !inBrackets) {//A leading literal, always shown.
+            section = new int[]{tokens.size(), tokens.size(), 0};
+            sections.add(section);
+        }
+
+        int last = tokens.size() - 1;
+        if (last >= 0 && last >= section[0] && tokens.get(last) instanceof String) {
+            tokens.set(last, tokens.get(last) + literal.toString());
+        } else {
+            tokens.add(literal.toString());
+        }
+        literal.setLength(0);
+        return section;
+    }
+
+    private static void closeSection(ArrayList<Object> tokens, int[] section) {
+        if (section != null) {
+            section[1] = tokens.size();
+        }
+    }
+
+    String getPattern() {
+        return mPattern;
+    }
+
+    int getTokenCount() {
+        return mTypes.length;
+    }
+
+    /**
+     * @return The unit of the token, or {@link #TYPE_LITERAL}.
+     */
+    int getTokenType(int index) {
+        return mTypes[index];
+    }
+
+    /**
+     * @return The text of a literal token, null for units.
+     */
+    String getLiteral(int index) {
+        return mLiterals[index];
+    }
+
+    /**
+     * @return The largest unit in the format, which absorbs the larger units. {@link #UNIT_SECOND} if there is none.
+     */
+    int getLargestUnit() {
+        return mLargestUnit;
+    }
+
+    /**
+     * @return The smallest unit in the format, {@link #TYPE_LITERAL} if there is none.
+     */
+    int getSmallestUnit() {
+        return mSmallestUnit;
+    }
+
+    static boolean isSubSecond(int unit) {
+        return unit == UNIT_CENTISECOND || unit == UNIT_MILLISECOND;
+    }
+
+    /**
+     * @return Whether the format has a "SS" or "SSS" field.
+     */
+    boolean hasSubSecond() {
+        return mSubSecondMask != 0;
+    }
+
+    /**
+     * @return Bit i is set if token i is hidden outside the precise mode.
+     */
+    long getSubSecondMask() {
+        return mSubSecondMask;
+    }
+
+    /**
+     * The displayed values and the visible tokens only change with the value of the smallest unit,
+     * Eg:once per minute for "hh:mm", so a countdown only needs to wake up then.
+     *
+     * @param millisUntilFinished Remaining time, greater than 0.
+     * @param precise             The mode passed to {@link #getValues(long, boolean, long[])}.
+     * @return The remaining time at which the displayed values change next, 0 when only the end is left.
+     */
+    long getNextChangeMillis(long millisUntilFinished, boolean precise) {
+        int unit = precise ? mSmallestUnit : mSmallestSecondUnit;
+        if (unit == TYPE_LITERAL) {
+            return 0;
+        }
+
+        long unitMillis = UNIT_MILLIS[unit];
+        if (precise) {
+            //Rounded down, the value drops right below a whole unit.
+            return Math.max(0, millisUntilFinished / unitMillis * unitMillis - 1);
+        }
+        //The value of the smallest unit drops when the rounded up seconds fall below a whole unit.
+        long unitSeconds = unitMillis / 1000;
+        long seconds = (millisUntilFinished + 999) / 1000;
+        return Math.max(0, (seconds / unitSeconds * unitSeconds - 1) * 1000);
+    }
+
+    /**
+     * The minimum digit count of a unit.
+     */
+    static int getMinLength(int unit) {
+        return unit == UNIT_DAY ? 0 : (unit == UNIT_MILLISECOND ? 3 : 2);
+    }
+
+    /**
+     * Write the decimal digits of a unit value, padded with "0" to the minimum length, without allocating.
+     * Negative values are written as 0, a countdown never shows them.
+     *
+     * @param value     A value of {@link #getValues(long, boolean, long[])}.
+     * @param minLength Eg:{@link #getMinLength(int)}.
+     * @param buffer    At least 20 chars.
+     * @return The number of chars written.
+     */
+    static int getChars(long value, int minLength, char[] buffer) {
+        value = Math.max(0, value);
+        int length = 1;
+        for (long t = value / 10; t > 0; t /= 10) {
+            length++;
+        }
+        if (length < minLength) {
+            length = minLength;
+        }
+
+        long t = value;
+        for (int i = length - 1; i >= 0; i--) {
+            buffer[i] = (char) ('0' + t % 10);
+            t /= 10;
+        }
+        return length;
+    }
+
+    /**
+     * Split a time length into the values of the units, the largest unit in the format absorbs the larger units.
+     * Outside the precise mode the seconds are rounded up, so the last second shows "1" until the end,
+     * and the sub-second values are 0.
+     * In the precise mode the seconds are rounded down, Eg:"00.50" for 500ms.
+     *
+     * @param millis  Remaining time, 0 if it is over.
+     * @param precise Whether the sub-second fields are shown.
+     * @param values  Output, indexed by unit.
+     */
+    void getValues(long millis, boolean precise, long[] values) {
+        millis = Math.max(0, millis);
+        long seconds = precise ? millis / 1000 : (millis + 999) / 1000;
+        values[UNIT_CENTISECOND] = precise ? millis % 1000 / 10 : 0;
+        values[UNIT_MILLISECOND] = precise ? millis % 1000 : 0;
+
+        long minutes = seconds / 60;
+        long hours = seconds / (60 * 60);
+        values[UNIT_DAY] = mLargestUnit <= UNIT_DAY ? seconds / (60 * 60 * 24) : 0;
+        values[UNIT_HOUR] = mLargestUnit < UNIT_HOUR ? hours % 24 : (mLargestUnit == UNIT_HOUR ? hours : 0);
+        values[UNIT_MINUTE] = mLargestUnit < UNIT_MINUTE ? minutes % 60 : (mLargestUnit == UNIT_MINUTE ? minutes : 0);
+        values[UNIT_SECOND] = mLargestUnit < UNIT_SECOND ? seconds % 60 : seconds;
+    }
+
+    /**
+     * Resolve which tokens are shown for the unit values.
+     *
+     * @param values Indexed by unit.
+     * @return Bit i is set if token i is shown.
+     */
+    long getVisibleMask(long[] values) {
+        long mask = 0;
+        boolean hasNonZeroBefore = false;
+        for (int section = 0; section < mSectionStarts.length; section++) {
+            int start = mSectionStarts[section];
+            int end = mSectionEnds[section];
+
+            boolean hasNonZero = false;
+            for (int i = start; i < end; i++) {
+                if (mTypes[i] != TYPE_LITERAL && values[mTypes[i]] != 0) {
+                    hasNonZero = true;
+                    break;
+                }
+            }
+
+            if (!mSectionOptional[section] || hasNonZero || hasNonZeroBefore) {
+                for (int i = start; i < end; i++) {
+                    mask |= 1L << i;
+                }
+                hasNonZeroBefore |= hasNonZero;
+            }
+        }
+        return mask;
+    }
+}
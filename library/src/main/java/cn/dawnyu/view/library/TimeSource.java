@@ -0,0 +1,92 @@
+package cn.dawnyu.view.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * description: Clocks and timer of the countdowns, a monotonic clock, a wall clock and delayed tasks on it.
+ * {@link CountdownView}, its ticker and {@link TimeUtils} read the time only from {@link #getDefault()},
+ * so tests can replace it with a {@link VirtualTimeSource} and simulate days of countdown in milliseconds.
+ * <p>
+ * 倒计时使用的时间源：单调时钟、系统时间，以及按单调时钟执行的延时任务。
+ * 可以通过 {@link #setDefault(TimeSource)} 替换为 {@link VirtualTimeSource}，测试时手动推进时间。
+ * date: 26/10/17
+ * version:
+ */
+public abstract class TimeSource {
+    /**
+     * {@link SystemClock} and {@link System#currentTimeMillis()}, tasks run on the main thread.
+     */
+    public static final TimeSource SYSTEM = new SystemTimeSource();
+
+    private static volatile TimeSource sDefault = SYSTEM;
+
+    public static TimeSource getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * Replace the time source of all countdowns, set it before starting any countdown.
+     *
+     * @param timeSource Null to restore {@link #SYSTEM}.
+     */
+    public static void setDefault(TimeSource timeSource) {
+        sDefault = timeSource != null ? timeSource : SYSTEM;
+    }
+
+    /**
+     * @return Monotonic time in milliseconds, counting while the device sleeps, Eg:{@link SystemClock#elapsedRealtime()}.
+     */
+    public abstract long elapsedRealtime();
+
+    /**
+     * @return Wall clock time in milliseconds since epoch, Eg:{@link System#currentTimeMillis()}. It may jump.
+     */
+    public abstract long currentTimeMillis();
+
+    /**
+     * Run a task once at a time of {@link #elapsedRealtime()}, replacing the pending run of the same task.
+     */
+    public abstract void postAt(Runnable task, long elapsedRealtime);
+
+    /**
+     * Remove the pending run of a task, if any.
+     */
+    public abstract void cancel(Runnable task);
+
+    private static final class SystemTimeSource extends TimeSource {
+        private Handler mHandler;
+
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void postAt(Runnable task, long elapsedRealtime) {
+            Handler handler = getHandler();
+            handler.removeCallbacks(task);
+            // Handler works on the uptime clock, convert the delay.
+            long delay = Math.max(0, elapsedRealtime - SystemClock.elapsedRealtime());
+            handler.postAtTime(task, SystemClock.uptimeMillis() + delay);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            getHandler().removeCallbacks(task);
+        }
+
+        private synchronized Handler getHandler() {
+            if (mHandler == null) {
+                mHandler = new Handler(Looper.getMainLooper());
+            }
+            return mHandler;
+        }
+    }
+}
@@ -1,11 +1,21 @@
 package cn.dawnyu.view.library;
 
 import java.text.DateFormat;
-import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.RandomAccess;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * description:
@@ -14,6 +24,60 @@ import java.util.Locale;
  */
 
 public class TimeUtils {
+    /**
+     * {@link #parseMillis(CharSequence, String)} 解析失败时的返回值
+     */
+    public static final long INVALID_MILLIS = Long.MIN_VALUE;
+
+    private static final String PATTERN_DATE_TIME = "yyyy-MM-dd HH:mm:ss";
+    private static final String PATTERN_DATE = "yyyy-MM-dd";
+    private static final String PATTERN_COMPACT_DATE = "yyyyMMdd";
+
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final long MILLIS_PER_DAY = SECONDS_PER_DAY * MILLIS_PER_SECOND;
+    /**
+     * 0000-03-01 到 1970-01-01 的天数
+     */
+    private static final long DAYS_0000_TO_1970 = 719468;
+    private static final long DAYS_PER_400_YEARS = 146097;
+    /**
+     * 批量计算时每个线程至少处理的个数，更小的批量在调用线程上直接计算
+     */
+    static final int BATCH_CHUNK_SIZE = 8192;
+
+    private static ExecutorService sBatchExecutor;
+    /**
+     * 批量计算最多分几段，默认为 CPU 核数
+     */
+    private static volatile int sBatchParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 每个线程缓存的格式化对象上限
+     */
+    private static final int DATE_FORMAT_CACHE_SIZE = 16;
+    /**
+     * SimpleDateFormat 不是线程安全的，每个线程各自缓存，按 locale、pattern 查找
+     */
+    private static final ThreadLocal<HashMap<Locale, HashMap<String, SimpleDateFormat>>> sDateFormats =
+            new ThreadLocal<HashMap<Locale, HashMap<String, SimpleDateFormat>>>() {
+                @Override
+                protected HashMap<Locale, HashMap<String, SimpleDateFormat>> initialValue() {
+                    return new HashMap<>();
+                }
+            };
+    /**
+     * 解析用的格式化对象，每个线程各自缓存，按需修改时区
+     * 不对外提供，避免修改 {@link #getDateFormat(String, Locale)} 返回的对象的时区
+     */
+    private static final ThreadLocal<HashMap<Locale, HashMap<String, SimpleDateFormat>>> sParseFormats =
+            new ThreadLocal<HashMap<Locale, HashMap<String, SimpleDateFormat>>>() {
+                @Override
+                protected HashMap<Locale, HashMap<String, SimpleDateFormat>> initialValue() {
+                    return new HashMap<>();
+                }
+            };
+
     /**
      * 比较2个日期的大小
      *
@@ -26,20 +90,17 @@ public class TimeUtils {
         if (Utils.isNullOrEmpty(format)) {
             format = "yyyy-MM-dd";
         }
-        DateFormat df = new SimpleDateFormat(format, Locale.getDefault());
+        long millis1 = parseMillis(date1, format);
+        long millis2 = parseMillis(date2, format);
+        if (millis1 == INVALID_MILLIS || millis2 == INVALID_MILLIS) {
+            return 0;
+        }
 
-        try {
-            Date dt1 = df.parse(date1);
-            Date dt2 = df.parse(date2);
-            if (dt1.getTime() > dt2.getTime()) {
-                return 1;
-            } else if (dt1.getTime() < dt2.getTime()) {
-                return -1;
-            } else {
-                return 0;
-            }
-        } catch (Exception exception) {
-            exception.printStackTrace();
+        if (millis1 > millis2) {
+            return 1;
+        } else if (millis1 < millis2) {
+            return -1;
+        } else {
             return 0;
         }
     }
@@ -57,27 +118,8 @@ public class TimeUtils {
             format = "yyyy-MM-dd HH:mm:ss";
         }
 
-        SimpleDateFormat dateFormat = new SimpleDateFormat(format, Locale.getDefault());
-        Date nextDate;
-        Date previousDate;
-        Calendar nextCal = Calendar.getInstance();
-        Calendar previousCal = Calendar.getInstance();
-
-        try {
-            nextDate = dateFormat.parse(Utils.isNullOrEmpty(nextTime) ? getStringDate(format) : nextTime);
-            nextCal.setTime(nextDate);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-
-        try {
-            previousDate = dateFormat.parse(Utils.isNullOrEmpty(previousTime) ? getStringDate(format) : previousTime);
-            previousCal.setTime(previousDate);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-
-        return getTimeInterval(nextCal, previousCal);
+        int[] interval = getTimeIntervalArray(nextTime, previousTime, format);
+        return interval[0] + "年" + interval[1] + "月" + interval[2] + "天" + interval[3] + "小时" + interval[4] + "分钟" + interval[5] + "秒";
     }
 
     /**
@@ -111,27 +153,12 @@ public class TimeUtils {
             format = "yyyy-MM-dd HH:mm:ss";
         }
 
-        SimpleDateFormat dateFormat = new SimpleDateFormat(format, Locale.getDefault());
-        Date nextDate;
-        Date previousDate;
-        Calendar nextCal = Calendar.getInstance();
-        Calendar previousCal = Calendar.getInstance();
-
-        try {
-            nextDate = dateFormat.parse(Utils.isNullOrEmpty(nextTime) ? getStringDate(format) : nextTime);
-            nextCal.setTime(nextDate);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
+        long nextMillis = parseMillisOrNow(nextTime, format);
+        long previousMillis = parseMillisOrNow(previousTime, format);
 
-        try {
-            previousDate = dateFormat.parse(Utils.isNullOrEmpty(previousTime) ? getStringDate(format) : previousTime);
-            previousCal.setTime(previousDate);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-
-        return getTimeIntervalArray(nextCal, previousCal);
+        int[] interval = new int[6];
+        getTimeIntervalArray(nextMillis, previousMillis, interval);
+        return interval;
     }
 
     /**
@@ -142,39 +169,446 @@ public class TimeUtils {
      * @return "年、月、天、小时、分钟、秒"的数组形式
      */
     public static int[] getTimeIntervalArray(Calendar nextCal, Calendar previousCal) {
-        int year = nextCal.get(Calendar.YEAR) - previousCal.get(Calendar.YEAR);
+        int[] interval = new int[6];
+        getTimeIntervalArray(nextCal.getTimeInMillis(), previousCal.getTimeInMillis(), nextCal.getTimeZone(), interval);
+        return interval;
+    }
 
-        int month = nextCal.get(Calendar.MONTH) - previousCal.get(Calendar.MONTH);
-        if (month < 0 && year > 0) {
-            year--;
-            month += 12;
+    /**
+     * 获取2个时间相差多少年、月、天、小时、分钟、秒，按默认时区计算
+     *
+     * @see #getTimeIntervalArray(long, long, TimeZone, int[])
+     */
+    public static void getTimeIntervalArray(long nextMillis, long previousMillis, int[] interval) {
+        getTimeIntervalArray(nextMillis, previousMillis, TimeZone.getDefault(), interval);
+    }
+
+    /**
+     * 获取2个时间相差多少年、月、天、小时、分钟、秒，只用整数运算，不创建 Calendar 等对象
+     * 天数不够减时，借上一个月的实际天数，规则与 java.time.Period 一致
+     * nextMillis 早于 previousMillis 时，各项均为负数
+     *
+     * @param nextMillis     毫秒时间戳
+     * @param previousMillis 毫秒时间戳
+     * @param zone           按哪个时区的日期计算，传空则默认为当前时区
+     * @param interval       输出"年、月、天、小时、分钟、秒"，长度至少为 6
+     */
+    public static void getTimeIntervalArray(long nextMillis, long previousMillis, TimeZone zone, int[] interval) {
+        if (zone == null) {
+            zone = TimeZone.getDefault();
+        }
+
+        int sign = 1;
+        if (nextMillis < previousMillis) {
+            long millis = nextMillis;
+            nextMillis = previousMillis;
+            previousMillis = millis;
+            sign = -1;
+        }
+
+        long nextLocal = nextMillis + zone.getOffset(nextMillis);
+        long previousLocal = previousMillis + zone.getOffset(previousMillis);
+        if (nextLocal < previousLocal) {//夏令时回拨时，本地时间可能倒退
+            nextLocal = previousLocal;
+        }
+
+        long nextDay = floorDiv(nextLocal, MILLIS_PER_DAY);
+        long previousDay = floorDiv(previousLocal, MILLIS_PER_DAY);
+        long seconds = (nextLocal - nextDay * MILLIS_PER_DAY) / MILLIS_PER_SECOND
+                - (previousLocal - previousDay * MILLIS_PER_DAY) / MILLIS_PER_SECOND;
+        if (seconds < 0) {
+            seconds += SECONDS_PER_DAY;
+            nextDay--;
+        }
+
+        long next = getDateByEpochDay(nextDay);
+        long previous = getDateByEpochDay(previousDay);
+        long previousYear = getYear(previous);
+        int previousMonth = getMonth(previous);
+        int previousDayOfMonth = getDayOfMonth(previous);
+
+        long months = (getYear(next) - previousYear) * 12 + getMonth(next) - previousMonth;
+        long days = getDayOfMonth(next) - previousDayOfMonth;
+        if (months > 0 && days < 0) {
+            //借一个月：从 previous 加上整月后的日期开始数天数，即借上一个月的实际天数
+            months--;
+            long monthIndex = previousYear * 12 + previousMonth - 1 + months;
+            long year = floorDiv(monthIndex, 12);
+            int month = (int) (monthIndex - year * 12) + 1;
+            int dayOfMonth = Math.min(previousDayOfMonth, getMonthLength(year, month));
+            days = nextDay - getEpochDay(year, month, dayOfMonth);
         }
 
-        int day = nextCal.get(Calendar.DAY_OF_MONTH) - previousCal.get(Calendar.DAY_OF_MONTH);
-        if (day < 0 && month > 0) {
-            month--;
-            day += nextCal.get(Calendar.DAY_OF_MONTH);
+        interval[0] = sign * (int) (months / 12);
+        interval[1] = sign * (int) (months % 12);
+        interval[2] = sign * (int) days;
+        interval[3] = sign * (int) (seconds / 3600);
+        interval[4] = sign * (int) (seconds / 60 % 60);
+        interval[5] = sign * (int) (seconds % 60);
+    }
+
+    /**
+     * 批量计算多个截止时间距离 now 的剩余天、小时、分钟、秒，结果按数组下标对应写入
+     * 秒数向上取整，和倒计时控件的显示一致；已经过去的截止时间各项均为 0
+     * 数量较多时分段在多个线程上并行计算
+     *
+     * @param deadlines 截止时间，毫秒时间戳
+     * @param now       当前时间，毫秒时间戳
+     * @param days      输出，长度不小于 deadlines
+     */
+    public static void getRemainingTimes(final long[] deadlines, final long now,
+                                         final int[] days, final int[] hours, final int[] minutes, final int[] seconds) {
+        checkBatchLength(deadlines.length, days, hours, minutes, seconds);
+
+        runBatch(deadlines.length, new BatchTask() {
+            @Override
+            void compute(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    long millis = deadlines[i] - now;
+                    long remaining = millis <= 0 ? 0 : (millis + MILLIS_PER_SECOND - 1) / MILLIS_PER_SECOND;
+                    days[i] = (int) (remaining / SECONDS_PER_DAY);
+                    hours[i] = (int) (remaining / 3600 % 24);
+                    minutes[i] = (int) (remaining / 60 % 60);
+                    seconds[i] = (int) (remaining % 60);
+                }
+            }
+        });
+    }
+
+    /**
+     * 批量计算多个截止时间和 now 相差多少年、月、天、小时、分钟、秒，结果按数组下标对应写入
+     * 数量较多时分段在多个线程上并行计算
+     *
+     * @param deadlines 截止时间，毫秒时间戳
+     * @param now       当前时间，毫秒时间戳
+     * @param zone      按哪个时区的日期计算，传空则默认为当前时区
+     * @param years     输出，长度不小于 deadlines
+     * @see #getTimeIntervalArray(long, long, TimeZone, int[])
+     */
+    public static void getTimeIntervals(final long[] deadlines, final long now, TimeZone zone,
+                                        final int[] years, final int[] months, final int[] days,
+                                        final int[] hours, final int[] minutes, final int[] seconds) {
+        checkBatchLength(deadlines.length, years, months, days, hours, minutes, seconds);
+        final TimeZone timeZone = zone == null ? TimeZone.getDefault() : zone;
+
+        runBatch(deadlines.length, new BatchTask() {
+            @Override
+            void compute(int from, int to) {
+                int[] interval = new int[6];
+                for (int i = from; i < to; i++) {
+                    getTimeIntervalArray(deadlines[i], now, timeZone, interval);
+                    years[i] = interval[0];
+                    months[i] = interval[1];
+                    days[i] = interval[2];
+                    hours[i] = interval[3];
+                    minutes[i] = interval[4];
+                    seconds[i] = interval[5];
+                }
+            }
+        });
+    }
+
+    /**
+     * 将日期字符串各解析一次，作为排序用的 key，避免用 {@link #compareDate(String, String, String)} 排序时反复解析
+     * 数量较多时分段在多个线程上并行解析
+     * LinkedList 等不能随机访问的列表先复制一份，避免每次 get(i) 都从头遍历
+     *
+     * @param format 日期格式，传空则默认为"yyyy-MM-dd"
+     * @return 毫秒时间戳，解析失败的为 {@link #INVALID_MILLIS}
+     * @see #getSortedIndexes(long[])
+     */
+    public static long[] getDateKeys(List<? extends CharSequence> dates, String format) {
+        final String pattern = Utils.isNullOrEmpty(format) ? "yyyy-MM-dd" : format;
+        final List<? extends CharSequence> texts = dates instanceof RandomAccess ? dates : new ArrayList<>(dates);
+        final long[] keys = new long[texts.size()];
+
+        runBatch(keys.length, new BatchTask() {
+            @Override
+            void compute(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    keys[i] = parseMillis(texts.get(i), pattern);
+                }
+            }
+        });
+        return keys;
+    }
+
+    /**
+     * 按 key 从小到大排序的下标，key 相同时保持原来的顺序
+     * 解析失败的行（{@link #INVALID_MILLIS}）排在最后，个数见 {@link #getInvalidCount(long[])}
+     * 数量较多时分段在多个线程上并行排序
+     *
+     * @param keys 见 {@link #getDateKeys(List, String)}
+     */
+    public static int[] getSortedIndexes(final long[] keys) {
+        int count = keys.length;
+        final int[] indexes = new int[count];
+        final int[] buffer = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = i;
         }
 
-        int hour = nextCal.get(Calendar.HOUR_OF_DAY) - previousCal.get(Calendar.HOUR_OF_DAY);
-        if (hour < 0 && day > 0) {
-            day--;
-            hour += 24;
+        int chunkSize = runBatch(count, new BatchTask() {
+            @Override
+            void compute(int from, int to) {
+                mergeSort(keys, indexes, buffer, from, to);
+            }
+        });
+
+        //合并各段排好序的结果
+        int[] source = indexes;
+        int[] target = buffer;
+        for (int width = chunkSize; width < count; width *= 2) {
+            for (int from = 0; from < count; from += width * 2) {
+                int middle = Math.min(from + width, count);
+                int to = Math.min(from + width * 2, count);
+                merge(keys, source, target, from, middle, to);
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
         }
+        return source;
+    }
 
-        int min = nextCal.get(Calendar.MINUTE) - previousCal.get(Calendar.MINUTE);
-        if (min < 0 && hour > 0) {
-            hour--;
-            min += 60;
+    /**
+     * @return 解析失败的个数
+     */
+    public static int getInvalidCount(long[] keys) {
+        int count = 0;
+        for (long key : keys) {
+            if (key == INVALID_MILLIS) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 稳定排序 indexes 的 [from, to)，buffer 的同一区间作为临时空间
+     */
+    private static void mergeSort(long[] keys, int[] indexes, int[] buffer, int from, int to) {
+        if (to - from <= 16) {
+            //插入排序
+            for (int i = from + 1; i < to; i++) {
+                int index = indexes[i];
+                int j = i - 1;
+                while (j >= from && compareKey(keys, indexes[j], index) > 0) {
+                    indexes[j + 1] = indexes[j];
+                    j--;
+                }
+                indexes[j + 1] = index;
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSort(keys, indexes, buffer, from, middle);
+        mergeSort(keys, indexes, buffer, middle, to);
+        if (compareKey(keys, indexes[middle - 1], indexes[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(indexes, from, buffer, from, to - from);
+        merge(keys, buffer, indexes, from, middle, to);
+    }
+
+    /**
+     * 合并 source 中排好序的 [from, middle)、[middle, to) 到 target 的 [from, to)
+     */
+    private static void merge(long[] keys, int[] source, int[] target, int from, int middle, int to) {
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compareKey(keys, source[left], source[right]) <= 0)) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
         }
+    }
 
-        int second = nextCal.get(Calendar.SECOND) - previousCal.get(Calendar.SECOND);
-        if (second < 0 && min > 0) {
-            min--;
-            second += 60;
+    /**
+     * {@link #INVALID_MILLIS} 最大
+     */
+    private static int compareKey(long[] keys, int index1, int index2) {
+        long key1 = keys[index1];
+        long key2 = keys[index2];
+        if (key1 == key2) {
+            return 0;
+        }
+        if (key1 == INVALID_MILLIS) {
+            return 1;
+        }
+        if (key2 == INVALID_MILLIS) {
+            return -1;
         }
+        return key1 < key2 ? -1 : 1;
+    }
 
-        return new int[]{year, month, day, hour, min, second};
+    private static void checkBatchLength(int length, int[]... outputs) {
+        for (int[] output : outputs) {
+            if (output.length < length) {
+                throw new IllegalArgumentException("Output array is shorter than the deadlines: " + output.length + " < " + length);
+            }
+        }
+    }
+
+    private abstract static class BatchTask {
+        /**
+         * 计算下标 [from, to) 的部分
+         */
+        abstract void compute(int from, int to);
+    }
+
+    /**
+     * 将 [0, count) 分段，除第一段在调用线程上计算外，其余提交到共享线程池，全部完成后返回
+     * ForkJoinPool 需要 API 21，这里用固定大小的线程池代替
+     *
+     * @return 每段的长度，最后一段可能更短
+     */
+    private static int runBatch(int count, final BatchTask task) {
+        int chunkCount = Math.min(sBatchParallelism, count / BATCH_CHUNK_SIZE);
+        if (chunkCount < 2) {
+            task.compute(0, count);
+            return count;
+        }
+
+        int chunkSize = (count + chunkCount - 1) / chunkCount;
+        ExecutorService executor = getBatchExecutor();
+        Future<?>[] futures = new Future<?>[chunkCount - 1];
+        for (int chunk = 1; chunk < chunkCount; chunk++) {
+            final int from = chunk * chunkSize;
+            final int to = Math.min(count, from + chunkSize);
+            futures[chunk - 1] = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    task.compute(from, to);
+                }
+            });
+        }
+
+        task.compute(0, chunkSize);
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing the batch", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        return chunkSize;
+    }
+
+    /**
+     * 修改批量计算最多分几段，测试时在单核机器上也能分段计算
+     *
+     * @param parallelism 小于 1 时恢复为 CPU 核数
+     */
+    static void setBatchParallelism(int parallelism) {
+        sBatchParallelism = parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+
+    private static synchronized ExecutorService getBatchExecutor() {
+        if (sBatchExecutor == null) {
+            //调用线程也参与计算，所以少建一个线程
+            int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            sBatchExecutor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+                private int mCount;
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "TimeUtils-batch-" + mCount++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sBatchExecutor;
+    }
+
+    /**
+     * 1970-01-01 起的天数转换为日期
+     *
+     * @return 年、月、日按 {@link #getYear(long)}、{@link #getMonth(long)}、{@link #getDayOfMonth(long)} 读取
+     */
+    private static long getDateByEpochDay(long epochDay) {
+        //以3月1日为一年的开始，闰日落在年末
+        long days = epochDay + DAYS_0000_TO_1970;
+        long era = floorDiv(days, DAYS_PER_400_YEARS);
+        long dayOfEra = days - era * DAYS_PER_400_YEARS;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthFromMarch = (5 * dayOfYear + 2) / 153;
+        int dayOfMonth = (int) (dayOfYear - (153 * monthFromMarch + 2) / 5 + 1);
+        int month = (int) (monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (year << 9) | (month << 5) | dayOfMonth;
+    }
+
+    private static long getYear(long date) {
+        return date >> 9;
+    }
+
+    private static int getMonth(long date) {
+        return (int) (date >> 5) & 0xF;
+    }
+
+    private static int getDayOfMonth(long date) {
+        return (int) date & 0x1F;
+    }
+
+    /**
+     * 日期转换为 1970-01-01 起的天数
+     *
+     * @param month 1-12
+     */
+    private static long getEpochDay(long year, int month, int dayOfMonth) {
+        if (month <= 2) {
+            year--;
+        }
+        long era = floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * @param month 1-12
+     */
+    private static int getMonthLength(long year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * 向下取整的除法，{@link Math} 中的同名方法需要 API 24
+     */
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
     }
 
     /**
@@ -187,7 +621,195 @@ public class TimeUtils {
         if (Utils.isNullOrEmpty(template)) {
             template = "yyyy-MM-dd HH:mm:ss";
         }
-        SimpleDateFormat formatter = new SimpleDateFormat(template, Locale.getDefault());
-        return formatter.format(new Date());
+        return getDateFormat(template, Locale.getDefault()).format(new Date(TimeSource.getDefault().currentTimeMillis()));
+    }
+
+    /**
+     * 获取当前线程缓存的格式化对象，同一线程内相同 pattern、locale 只创建一次
+     * 返回的对象只能在当前线程使用，也不要修改它的设置
+     *
+     * @param pattern 日期格式
+     * @param locale  传空则默认为当前 locale
+     */
+    public static DateFormat getDateFormat(String pattern, Locale locale) {
+        if (locale == null) {
+            locale = Locale.getDefault();
+        }
+
+        //和每次新建一样，使用当前的默认时区
+        return getCachedFormat(sDateFormats, pattern, locale, TimeZone.getDefault());
+    }
+
+    /**
+     * 从当前线程的缓存中取出格式化对象，没有则创建，并设置为 zone 时区
+     */
+    private static SimpleDateFormat getCachedFormat(ThreadLocal<HashMap<Locale, HashMap<String, SimpleDateFormat>>> cache,
+                                                    String pattern, Locale locale, TimeZone zone) {
+        HashMap<Locale, HashMap<String, SimpleDateFormat>> localeFormats = cache.get();
+        HashMap<String, SimpleDateFormat> formats = localeFormats.get(locale);
+        if (formats == null) {
+            formats = new HashMap<>();
+            localeFormats.put(locale, formats);
+        }
+
+        SimpleDateFormat format = formats.get(pattern);
+        if (format == null) {
+            if (formats.size() >= DATE_FORMAT_CACHE_SIZE) {
+                formats.clear();
+            }
+            format = new SimpleDateFormat(pattern, locale);
+            formats.put(pattern, format);
+        }
+        if (!zone.equals(format.getTimeZone())) {
+            format.setTimeZone(zone);
+        }
+        return format;
+    }
+
+    /**
+     * @param time 传空则默认为当前时间
+     * @return 毫秒时间戳，解析失败时为当前时间
+     */
+    private static long parseMillisOrNow(String time, String format) {
+        long millis = parseMillis(Utils.isNullOrEmpty(time) ? getStringDate(format) : time, format);
+        return millis == INVALID_MILLIS ? TimeSource.getDefault().currentTimeMillis() : millis;
+    }
+
+    /**
+     * 按默认时区将日期字符串解析为毫秒时间戳，结果和 {@link SimpleDateFormat#parse(String)} 一致，失败时不抛出异常
+     * "yyyy-MM-dd HH:mm:ss"、"yyyy-MM-dd"、"yyyyMMdd" 三种格式直接按位读取数字，不创建对象；
+     * 其它格式，或不完全符合这三种格式的字符串，交给缓存的 SimpleDateFormat 解析
+     *
+     * @param pattern 日期格式，传空则默认为"yyyy-MM-dd HH:mm:ss"
+     * @return 毫秒时间戳，解析失败时为 {@link #INVALID_MILLIS}
+     */
+    public static long parseMillis(CharSequence text, String pattern) {
+        if (text == null) {
+            return INVALID_MILLIS;
+        }
+        return parseMillis(text, null, 0, text.length(), pattern, TimeZone.getDefault());
+    }
+
+    /**
+     * 同 {@link #parseMillis(CharSequence, String)}，按指定时区解析
+     */
+    public static long parseMillis(CharSequence text, String pattern, TimeZone zone) {
+        if (text == null) {
+            return INVALID_MILLIS;
+        }
+        return parseMillis(text, null, 0, text.length(), pattern, zone);
+    }
+
+    /**
+     * 同 {@link #parseMillis(CharSequence, String)}，解析 chars 中 [offset, offset + length) 的部分
+     */
+    public static long parseMillis(char[] chars, int offset, int length, String pattern) {
+        return parseMillis(null, chars, offset, length, pattern, TimeZone.getDefault());
+    }
+
+    /**
+     * text、chars 只传其中一个
+     */
+    private static long parseMillis(CharSequence text, char[] chars, int offset, int length, String pattern, TimeZone zone) {
+        if (Utils.isNullOrEmpty(pattern)) {
+            pattern = PATTERN_DATE_TIME;
+        }
+        if (zone == null) {
+            zone = TimeZone.getDefault();
+        }
+
+        long localMillis = parseLocalMillis(text, chars, offset, length, pattern);
+        if (localMillis != INVALID_MILLIS) {
+            return getUtcMillis(localMillis, zone);
+        }
+
+        //其它格式交给 SimpleDateFormat
+        String string = text != null ? text.subSequence(offset, offset + length).toString() : new String(chars, offset, length);
+        DateFormat dateFormat = getCachedFormat(sParseFormats, pattern, Locale.getDefault(), zone);
+        Date date = dateFormat.parse(string, new ParsePosition(0));
+        return date == null ? INVALID_MILLIS : date.getTime();
+    }
+
+    /**
+     * 本地时间转换为毫秒时间戳，和 GregorianCalendar 一样：
+     * 夏令时开始时跳过的本地时间按切换前的偏移计算，即往后顺延；重复的本地时间取按标准时间计算的时刻
+     */
+    private static long getUtcMillis(long localMillis, TimeZone zone) {
+        int offset = zone.getOffset(localMillis - zone.getRawOffset());
+        int offsetAtResult = zone.getOffset(localMillis - offset);
+        return localMillis - offsetAtResult;
+    }
+
+    /**
+     * 按位读取三种固定格式的日期
+     *
+     * @return 本地时间的毫秒数，格式不符或字段超出范围时为 {@link #INVALID_MILLIS}
+     */
+    private static long parseLocalMillis(CharSequence text, char[] chars, int offset, int length, String pattern) {
+        int year, month, dayOfMonth;
+        int hour = 0, minute = 0, second = 0;
+        if (PATTERN_DATE_TIME.equals(pattern)) {
+            if (length != 19
+                    || getChar(text, chars, offset + 4) != '-' || getChar(text, chars, offset + 7) != '-'
+                    || getChar(text, chars, offset + 10) != ' '
+                    || getChar(text, chars, offset + 13) != ':' || getChar(text, chars, offset + 16) != ':') {
+                return INVALID_MILLIS;
+            }
+            year = getDigits(text, chars, offset, 4);
+            month = getDigits(text, chars, offset + 5, 2);
+            dayOfMonth = getDigits(text, chars, offset + 8, 2);
+            hour = getDigits(text, chars, offset + 11, 2);
+            minute = getDigits(text, chars, offset + 14, 2);
+            second = getDigits(text, chars, offset + 17, 2);
+        } else if (PATTERN_DATE.equals(pattern)) {
+            if (length != 10 || getChar(text, chars, offset + 4) != '-' || getChar(text, chars, offset + 7) != '-') {
+                return INVALID_MILLIS;
+            }
+            year = getDigits(text, chars, offset, 4);
+            month = getDigits(text, chars, offset + 5, 2);
+            dayOfMonth = getDigits(text, chars, offset + 8, 2);
+        } else if (PATTERN_COMPACT_DATE.equals(pattern)) {
+            if (length != 8) {
+                return INVALID_MILLIS;
+            }
+            year = getDigits(text, chars, offset, 4);
+            month = getDigits(text, chars, offset + 4, 2);
+            dayOfMonth = getDigits(text, chars, offset + 6, 2);
+        } else {
+            return INVALID_MILLIS;
+        }
+
+        //超出范围的字段由 SimpleDateFormat 按宽松模式处理
+        if (year < 0 || month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > getMonthLength(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID_MILLIS;
+        }
+
+        //儒略历改为格里高利历之前的日期交给 SimpleDateFormat
+        if (year <= 1582) {
+            return INVALID_MILLIS;
+        }
+
+        return getEpochDay(year, month, dayOfMonth) * MILLIS_PER_DAY
+                + ((hour * 60 + minute) * 60 + second) * MILLIS_PER_SECOND;
+    }
+
+    private static char getChar(CharSequence text, char[] chars, int index) {
+        return text != null ? text.charAt(index) : chars[index];
+    }
+
+    /**
+     * @return 十进制数字的值，有非数字时为 -1
+     */
+    private static int getDigits(CharSequence text, char[] chars, int index, int count) {
+        int value = 0;
+        for (int i = index; i < index + count; i++) {
+            char c = getChar(text, chars, i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
     }
 }
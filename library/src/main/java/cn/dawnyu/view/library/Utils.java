@@ -1,8 +1,12 @@
 package cn.dawnyu.view.library;
 
 import android.content.Context;
+import android.util.DisplayMetrics;
 import android.util.TypedValue;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * description:
  * date: 17/11/24
@@ -10,6 +14,37 @@ import android.util.TypedValue;
  */
 
 public class Utils {
+    /**
+     * 10 的 0-22 次方都能用 double 精确表示
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    /**
+     * 不超过 15 位有效数字的整数都能用 double 精确表示
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /**
+     * 缓存的转换结果上限，超出时移除最久没用过的
+     */
+    private static final int DIMENSION_CACHE_SIZE = 256;
+    /**
+     * 尺寸字符串转换为 px 的缓存，按字符串、单位和对应的屏幕密度或字体缩放查找，
+     * 密度变化后旧的结果不会再被用到，随后逐渐被移除
+     */
+    private static final LinkedHashMap<DimensionKey, Integer> sDimensionCache =
+            new LinkedHashMap<DimensionKey, Integer>(DIMENSION_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<DimensionKey, Integer> eldest) {
+                    return size() > DIMENSION_CACHE_SIZE;
+                }
+            };
+    /**
+     * 查找缓存用的 key，持有 sDimensionCache 的锁时才能使用，避免每次查找都创建对象
+     */
+    private static final DimensionKey sLookupKey = new DimensionKey();
+
     public static boolean isNullOrEmpty(String s) {
         if (s == null || "".equals(s.trim()) || s.trim().length() == 0) {
             return true;
@@ -22,22 +57,128 @@ public class Utils {
      * 验证一个字符串是否能解析成双精度浮点数
      */
     public static boolean canParseDouble(String numberStr) {
-        try {
-            Double.parseDouble(numberStr);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        } catch (NullPointerException e) {
-            return false;
-        }
+        return numberStr != null && !Double.isNaN(parseDouble(numberStr, Double.NaN));
     }
 
-    public static int getDip2Px(Context context, String dip) {
-        if (!isNullOrEmpty(dip) && canParseDouble(dip)) {
-            return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, Float.parseFloat(dip), context.getResources().getDisplayMetrics());
+    /**
+     * 解析十进制数，如"12"、"-1.5"、".5"、"1e3"，首尾可以有空格，不抛出异常
+     * 不超过 15 位有效数字、指数不超过 22 时直接计算，不创建对象
+     *
+     * @param defaultValue 不是十进制数时的返回值
+     */
+    public static double parseDouble(CharSequence text, double defaultValue) {
+        if (text == null) {
+            return defaultValue;
+        }
+
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        int index = start;
+        boolean isNegative = false;
+        if (index < end && (text.charAt(index) == '-' || text.charAt(index) == '+')) {
+            isNegative = text.charAt(index) == '-';
+            index++;
+        }
+
+        long mantissa = 0;
+        int digitCount = 0;
+        int significantCount = 0;
+        int exponent = 0;
+        boolean hasPoint = false;
+        for (; index < end; index++) {
+            char c = text.charAt(index);
+            if (c == '.' && !hasPoint) {
+                hasPoint = true;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                break;
+            }
+            digitCount++;
+            if (mantissa == 0 && c == '0') {//前导 0
+                if (hasPoint) {
+                    exponent--;
+                }
+                continue;
+            }
+            if (significantCount < MAX_EXACT_DIGITS + 3) {
+                mantissa = mantissa * 10 + c - '0';
+                if (hasPoint) {
+                    exponent--;
+                }
+            } else if (!hasPoint) {//超出的整数位只计入指数
+                exponent++;
+            }
+            significantCount++;
+        }
+        if (digitCount == 0) {
+            return defaultValue;
+        }
+
+        if (index < end && (text.charAt(index) == 'e' || text.charAt(index) == 'E')) {
+            index++;
+            boolean isExponentNegative = false;
+            if (index < end && (text.charAt(index) == '-' || text.charAt(index) == '+')) {
+                isExponentNegative = text.charAt(index) == '-';
+                index++;
+            }
+            int exponentStart = index;
+            int value = 0;
+            for (; index < end; index++) {
+                char c = text.charAt(index);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                if (value < 100000) {
+                    value = value * 10 + c - '0';
+                }
+            }
+            if (index == exponentStart) {
+                return defaultValue;
+            }
+            exponent += isExponentNegative ? -value : value;
+        }
+        if (index != end) {
+            return defaultValue;
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (significantCount <= MAX_EXACT_DIGITS && exponent >= -22 && exponent <= 22) {
+            value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
         } else {
-            return 0;
+            //很少见的长数字，已确认格式正确，交给 Double.parseDouble 保证精度
+            value = Math.abs(Double.parseDouble(text.subSequence(start, end).toString()));
+        }
+        return isNegative ? -value : value;
+    }
+
+    /**
+     * 同 {@link #parseDouble(CharSequence, double)}，小数部分舍去
+     *
+     * @param defaultValue 不是十进制数，或超出 int 范围时的返回值
+     */
+    public static int parseInt(CharSequence text, int defaultValue) {
+        double value = parseDouble(text, Double.NaN);
+        if (Double.isNaN(value) || value >= Integer.MAX_VALUE + 1d || value <= Integer.MIN_VALUE - 1d) {
+            return defaultValue;
         }
+        return (int) value;
+    }
+
+    /**
+     * 尺寸字符串转换为 px，相同的字符串在屏幕密度、字体缩放不变时只计算一次
+     */
+    public static int getDip2Px(Context context, String dip) {
+        return getCachedPx(context, dip, TypedValue.COMPLEX_UNIT_DIP);
     }
 
     public static int getDip2Px(Context context, int dip) {
@@ -48,12 +189,36 @@ public class Utils {
         }
     }
 
+    /**
+     * 同 {@link #getDip2Px(Context, String)}
+     */
     public static int getSp2Px(Context context, String sp) {
-        if (!isNullOrEmpty(sp) && canParseDouble(sp)) {
-            return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, Float.parseFloat(sp), context.getResources().getDisplayMetrics());
-        } else {
+        return getCachedPx(context, sp, TypedValue.COMPLEX_UNIT_SP);
+    }
+
+    /**
+     * @param unit {@link TypedValue#COMPLEX_UNIT_DIP} 或 {@link TypedValue#COMPLEX_UNIT_SP}
+     * @return 不是十进制数时为 0
+     */
+    private static int getCachedPx(Context context, String dimension, int unit) {
+        if (dimension == null) {
             return 0;
         }
+
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        float density = unit == TypedValue.COMPLEX_UNIT_SP ? metrics.scaledDensity : metrics.density;
+        synchronized (sDimensionCache) {
+            sLookupKey.set(dimension, unit, density);
+            Integer px = sDimensionCache.get(sLookupKey);
+            if (px == null) {
+                double value = parseDouble(dimension, 0);
+                px = value == 0 ? 0 : (int) TypedValue.applyDimension(unit, (float) value, metrics);
+                DimensionKey key = new DimensionKey();
+                key.set(dimension, unit, density);
+                sDimensionCache.put(key, px);
+            }
+            return px;
+        }
     }
 
     public static int getSp2Px(Context context, int sp) {
@@ -64,12 +229,11 @@ public class Utils {
         }
     }
 
+    /**
+     * 小数部分舍去，如"1.5"为 1；不是数字或超出 int 范围时为 0
+     */
     public static int getInt(String num) {
-        if (!isNullOrEmpty(num) && canParseDouble(num)) {
-            return Integer.parseInt(num);
-        } else {
-            return 0;
-        }
+        return parseInt(num, 0);
     }
 
     /**
@@ -104,4 +268,41 @@ public class Utils {
         }
         return min;
     }
+
+    /**
+     * 尺寸字符串、单位和换算时的密度
+     */
+    private static final class DimensionKey {
+        private String dimension;
+        private int unit;
+        private float density;
+
+        void set(String dimension, int unit, float density) {
+            this.dimension = dimension;
+            this.unit = unit;
+            this.density = density;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DimensionKey)) {
+                return false;
+            }
+            DimensionKey key = (DimensionKey) o;
+            return unit == key.unit
+                    && Float.compare(density, key.density) == 0
+                    && dimension.equals(key.dimension);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = dimension.hashCode();
+            result = 31 * result + unit;
+            result = 31 * result + Float.floatToIntBits(density);
+            return result;
+        }
+    }
 }
@@ -0,0 +1,115 @@
+package cn.dawnyu.view.library;
+
+import java.util.ArrayList;
+
+/**
+ * description: Manually advanced {@link TimeSource} for deterministic tests and simulations.
+ * Time only moves in {@link #advanceBy(long)} and {@link #advanceTo(long)}, which run the due tasks
+ * in time order, each with the clock set to its own time, on the calling thread.
+ * The wall clock moves with the monotonic clock, and can jump on its own with {@link #setCurrentTimeMillis(long)}.
+ * Not thread safe, use it from one thread.
+ * <p>
+ * 手动推进的虚拟时间源，用于测试和模拟：推进时间时按时间顺序在当前线程执行到期的任务。
+ * date: 26/10/17
+ * version:
+ */
+public class VirtualTimeSource extends TimeSource {
+    private long mElapsedRealtime;
+    /**
+     * {@link #currentTimeMillis()} minus {@link #elapsedRealtime()}.
+     */
+    private long mWallClockOffset;
+
+    private final ArrayList<Runnable> mTasks = new ArrayList<>();
+    private final ArrayList<Long> mTaskTimes = new ArrayList<>();
+
+    /**
+     * Start at monotonic time 0 and the current wall clock time.
+     */
+    public VirtualTimeSource() {
+        this(0, System.currentTimeMillis());
+    }
+
+    public VirtualTimeSource(long elapsedRealtime, long currentTimeMillis) {
+        mElapsedRealtime = elapsedRealtime;
+        mWallClockOffset = currentTimeMillis - elapsedRealtime;
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return mElapsedRealtime;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return mElapsedRealtime + mWallClockOffset;
+    }
+
+    /**
+     * Set the wall clock without moving the monotonic clock, Eg:the user changed the device time.
+     */
+    public void setCurrentTimeMillis(long currentTimeMillis) {
+        mWallClockOffset = currentTimeMillis - mElapsedRealtime;
+    }
+
+    @Override
+    public void postAt(Runnable task, long elapsedRealtime) {
+        cancel(task);
+        mTasks.add(task);
+        mTaskTimes.add(elapsedRealtime);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        int index = mTasks.indexOf(task);
+        if (index >= 0) {
+            mTasks.remove(index);
+            mTaskTimes.remove(index);
+        }
+    }
+
+    /**
+     * @return The number of pending tasks.
+     */
+    public int getPendingTaskCount() {
+        return mTasks.size();
+    }
+
+    /**
+     * @return The number of tasks run, see {@link #advanceTo(long)}.
+     */
+    public int advanceBy(long millis) {
+        return advanceTo(mElapsedRealtime + millis);
+    }
+
+    /**
+     * Move the monotonic clock forward, running every task due until then.
+     * Tasks posted by the running tasks run too if they are due.
+     *
+     * @return The number of tasks run.
+     */
+    public int advanceTo(long elapsedRealtime) {
+        int runCount = 0;
+        while (true) {
+            int next = -1;
+            for (int i = 0, size = mTaskTimes.size(); i < size; i++) {
+                if (mTaskTimes.get(i) <= elapsedRealtime
+                        && (next < 0 || mTaskTimes.get(i) < mTaskTimes.get(next))) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+
+            mElapsedRealtime = Math.max(mElapsedRealtime, mTaskTimes.get(next));
+            Runnable task = mTasks.remove(next);
+            mTaskTimes.remove(next);
+            task.run();
+            runCount++;
+        }
+
+        mElapsedRealtime = Math.max(mElapsedRealtime, elapsedRealtime);
+        return runCount;
+    }
+}
@@ -0,0 +1,176 @@
+package cn.dawnyu.view.library;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * description: {@link CountdownLayoutEngine} cell rects for fixed text metrics and digit counts.
+ * <p>
+ * 布局计算的测试：给定文字尺寸和数字位数，检查每个格子的位置。
+ * date: 26/10/17
+ * version:
+ */
+public class CountdownLayoutEngineTest {
+    private static final int BACKGROUND = CountdownLayoutEngine.CELL_TIME_BACKGROUND;
+    private static final int DIGIT = CountdownLayoutEngine.CELL_DIGIT;
+    private static final int SUFFIX = CountdownLayoutEngine.CELL_SUFFIX;
+    private static final long ALL = -1;
+
+    /**
+     * Digits 10 wide, time text 20 high with a baseline at 15, in a background padded by 1 and 2,
+     * so the time backgrounds are 24 high with the baseline at 17.
+     * Suffix text 12 high with a baseline at 9, in a background padded by 2 and 1, so the suffix backgrounds
+     * are 14 high, centered at 5, with the baseline at 15. The ":" bounds are 7 high, 9 above the baseline.
+     */
+    private static CountdownLayoutEngine.Builder newBuilder() {
+        return new CountdownLayoutEngine.Builder()
+                .setTimeTextMetrics(10, 20, 15)
+                .setSuffixTextMetrics(12, 9, -9, 7)
+                .setTimeTextLetterSpacing(1)
+                .setTimeBackgroundPadding(1, 2, 1, 2)
+                .setSuffixBackgroundPadding(2, 1, 2, 1)
+                .setSuffixTextMargin(3);
+    }
+
+    @Test
+    public void itemsAreSeparatedByTheMargin() {
+        TimeFormat format = TimeFormat.compile("hh:mm分");
+        CountdownLayoutEngine.Layout layout = newBuilder().build()
+                .layout(format, ALL, getCharCounts(0, 2, 2), getSuffixWidths(format, 4));
+
+        assertEquals(8, layout.getCellCount());
+        //Two digits 1 apart, padded by 1 on both sides.
+        assertCell(layout, 0, BACKGROUND, 0, 0, 0, 0, 23, 24, 0, 0);
+        assertCell(layout, 1, DIGIT, 0, 0, 1, 0, 11, 24, 6, 17);
+        assertCell(layout, 2, DIGIT, 0, 1, 12, 0, 22, 24, 17, 17);
+        //The ":" is centered on the content, the other suffixes sit on the suffix baseline.
+        assertCell(layout, 3, SUFFIX, 1, 0, 26, 5, 34, 19, 30, 18);
+        assertCell(layout, 4, BACKGROUND, 2, 0, 37, 0, 60, 24, 0, 0);
+        assertCell(layout, 5, DIGIT, 2, 0, 38, 0, 48, 24, 43, 17);
+        assertCell(layout, 6, DIGIT, 2, 1, 49, 0, 59, 24, 54, 17);
+        assertCell(layout, 7, SUFFIX, 3, 0, 63, 5, 71, 19, 67, 15);
+        //No margin after the last item.
+        assertEquals(71, layout.getWidth(), 0);
+        assertEquals(24, layout.getHeight(), 0);
+    }
+
+    @Test
+    public void hiddenTokensTakeNoSpaceOrMargin() {
+        TimeFormat format = TimeFormat.compile("[dd天]hh:mm");
+        CountdownLayoutEngine engine = newBuilder().build();
+        int[] charCounts = getCharCounts(1, 2, 2);
+        float[] suffixWidths = getSuffixWidths(format, 4);
+
+        //The day section is hidden, the hours start at 0 without a margin before them.
+        CountdownLayoutEngine.Layout layout = engine.layout(format, 0x1C, charCounts, suffixWidths);
+        assertEquals(7, layout.getCellCount());
+        assertCell(layout, 0, BACKGROUND, 2, 0, 0, 0, 23, 24, 0, 0);
+        assertCell(layout, 3, SUFFIX, 3, 0, 26, 5, 34, 19, 30, 18);
+        assertCell(layout, 4, BACKGROUND, 4, 0, 37, 0, 60, 24, 0, 0);
+        assertEquals(60, layout.getWidth(), 0);
+
+        //A hidden token in the middle leaves a single margin between its neighbours.
+        layout = engine.layout(format, 0x1F & ~(1L << 3), charCounts, suffixWidths);
+        assertCell(layout, 0, BACKGROUND, 0, 0, 0, 0, 12, 24, 0, 0);
+        assertCell(layout, 1, DIGIT, 0, 0, 1, 0, 11, 24, 6, 17);
+        assertCell(layout, 2, SUFFIX, 1, 0, 15, 5, 23, 19, 19, 15);
+        assertCell(layout, 3, BACKGROUND, 2, 0, 26, 0, 49, 24, 0, 0);
+        assertCell(layout, 6, BACKGROUND, 4, 0, 52, 0, 75, 24, 0, 0);
+        assertEquals(75, layout.getWidth(), 0);
+
+        assertEquals(0, engine.layout(format, 0, charCounts, suffixWidths).getCellCount());
+        assertEquals(0, engine.layout(format, 0, charCounts, suffixWidths).getWidth(), 0);
+    }
+
+    @Test
+    public void splitBackgroundsHoldOneDigitEach() {
+        TimeFormat format = TimeFormat.compile("hh:mm");
+        //The letter spacing only applies to the whole backgrounds.
+        CountdownLayoutEngine.Layout layout = newBuilder().setTimeTextLetterBackgroundSpacing(5).build()
+                .layout(format, ALL, getCharCounts(0, 3, 2), getSuffixWidths(format, 4));
+
+        assertEquals(11, layout.getCellCount());
+        assertCell(layout, 0, BACKGROUND, 0, 0, 0, 0, 12, 24, 0, 0);
+        assertCell(layout, 1, DIGIT, 0, 0, 0, 0, 12, 24, 6, 17);
+        assertCell(layout, 2, BACKGROUND, 0, 1, 17, 0, 29, 24, 0, 0);
+        assertCell(layout, 3, DIGIT, 0, 1, 17, 0, 29, 24, 23, 17);
+        assertCell(layout, 4, BACKGROUND, 0, 2, 34, 0, 46, 24, 0, 0);
+        assertCell(layout, 5, DIGIT, 0, 2, 34, 0, 46, 24, 40, 17);
+        assertCell(layout, 6, SUFFIX, 1, 0, 49, 5, 57, 19, 53, 18);
+        assertCell(layout, 7, BACKGROUND, 2, 0, 60, 0, 72, 24, 0, 0);
+        assertCell(layout, 10, DIGIT, 2, 1, 77, 0, 89, 24, 83, 17);
+        assertEquals(89, layout.getWidth(), 0);
+
+        //A fixed background width centers each digit.
+        layout = newBuilder().setTimeTextLetterBackgroundSpacing(5).setTimeBackgroundSize(16, 0).build()
+                .layout(format, ALL, getCharCounts(0, 2, 2), getSuffixWidths(format, 4));
+        assertCell(layout, 1, DIGIT, 0, 0, 0, 0, 16, 24, 8, 17);
+        assertCell(layout, 3, DIGIT, 0, 1, 21, 0, 37, 24, 29, 17);
+    }
+
+    @Test
+    public void fixedBackgroundSizesCenterTheText() {
+        TimeFormat format = TimeFormat.compile("hh:mm");
+        CountdownLayoutEngine.Layout layout = newBuilder()
+                .setTimeBackgroundSize(30, 30)
+                .setSuffixBackgroundSize(10, 16)
+                .build()
+                .layout(format, ALL, getCharCounts(0, 2, 2), getSuffixWidths(format, 4));
+
+        //The paddings are recalculated, the time text is centered in 30x30 and the suffix in 10x16.
+        assertEquals(30, layout.getHeight(), 0);
+        assertCell(layout, 0, BACKGROUND, 0, 0, 0, 0, 30, 30, 0, 0);
+        assertCell(layout, 1, DIGIT, 0, 0, 4.5f, 0, 14.5f, 30, 9.5f, 20);
+        assertCell(layout, 3, SUFFIX, 1, 0, 33, 7, 43, 23, 38, 21);
+        //Backgrounds smaller than the text grow to fit it.
+        layout = newBuilder()
+                .setTimeBackgroundSize(5, 5)
+                .setSuffixBackgroundSize(2, 2)
+                .build()
+                .layout(format, ALL, getCharCounts(0, 2, 2), getSuffixWidths(format, 4));
+        assertEquals(20, layout.getHeight(), 0);
+        assertCell(layout, 0, BACKGROUND, 0, 0, 0, 0, 21, 20, 0, 0);
+        assertCell(layout, 1, DIGIT, 0, 0, 0, 0, 10, 20, 5, 15);
+        assertCell(layout, 3, SUFFIX, 1, 0, 24, 4, 28, 16, 26, 16);
+    }
+
+    private static int[] getCharCounts(int days, int hours, int minutes) {
+        int[] charCounts = new int[TimeFormat.UNIT_COUNT];
+        charCounts[TimeFormat.UNIT_DAY] = days;
+        charCounts[TimeFormat.UNIT_HOUR] = hours;
+        charCounts[TimeFormat.UNIT_MINUTE] = minutes;
+        charCounts[TimeFormat.UNIT_SECOND] = 2;
+        return charCounts;
+    }
+
+    /**
+     * Every literal token of the format is the same width.
+     */
+    private static float[] getSuffixWidths(TimeFormat format, float width) {
+        float[] widths = new float[format.getTokenCount()];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = format.getTokenType(i) == TimeFormat.TYPE_LITERAL ? width : 0;
+        }
+        return widths;
+    }
+
+    /**
+     * @param bounds left, top, right, bottom, text x and baseline, the text is not checked for backgrounds.
+     */
+    private static void assertCell(CountdownLayoutEngine.Layout layout, int cell, int type, int token, int charIndex,
+                                   float... bounds) {
+        String message = "Cell " + cell;
+        assertEquals(message, type, layout.getCellType(cell));
+        assertEquals(message, token, layout.getCellToken(cell));
+        assertEquals(message, charIndex, layout.getCellChar(cell));
+        assertEquals(message, bounds[0], layout.getLeft(cell), 0);
+        assertEquals(message, bounds[1], layout.getTop(cell), 0);
+        assertEquals(message, bounds[2], layout.getRight(cell), 0);
+        assertEquals(message, bounds[3], layout.getBottom(cell), 0);
+        if (type != BACKGROUND) {
+            assertEquals(message, bounds[4], layout.getTextX(cell), 0);
+            assertEquals(message, bounds[5], layout.getBaseline(cell), 0);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package cn.dawnyu.view.library;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * description: {@link CountdownScheduler} delivering timers on the first advance past their expiry, in time order,
+ * and timers of the same millisecond in registration order, whatever level of the wheel they were registered on.
+ * <p>
+ * 时间轮调度器的测试：计时在到期后的第一次推进时按时间顺序回调，同一毫秒到期的按添加顺序回调。
+ * date: 26/10/17
+ * version:
+ */
+public class CountdownSchedulerTest {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    public void timersOfTheSameMillisecondExpireInRegistrationOrder() {
+        Recorder recorder = new Recorder(new CountdownScheduler(new VirtualTimeSource(0, 0)));
+
+        //Registered at once, the timers of one second all share a slot from the start.
+        for (int i = 0; i < 1000; i++) {
+            recorder.schedule((1 + i % 10) * SECOND, 0);
+        }
+        assertEquals(1000, recorder.advanceTo(10 * SECOND));
+        assertEquals(10, recorder.batchCount);
+        recorder.assertDelivered();
+    }
+
+    @Test
+    public void cascadedAndCancelledTimersExpireOnTimeAndInOrder() {
+        Recorder recorder = new Recorder(new CountdownScheduler(new VirtualTimeSource(0, 0)));
+
+        //Deadlines rounded to whole seconds, registered while the time goes on, so timers of the same millisecond
+        //are registered on different levels and meet after cascading. Some are threshold events before the
+        //deadline, and some are already due.
+        Random random = new Random(7);
+        long[] millisLefts = {0, 0, 10 * SECOND, MINUTE};
+        while (recorder.now < 2 * HOUR) {
+            for (int i = 0, count = random.nextInt(20); i < count; i++) {
+                long deadline = (recorder.now + random.nextInt((int) HOUR)) / SECOND * SECOND;
+                if (random.nextInt(20) == 0) {
+                    deadline = recorder.now - random.nextInt(1000);
+                }
+                recorder.schedule(deadline, millisLefts[random.nextInt(millisLefts.length)]);
+            }
+            //Cancel some, including the tails of their slots.
+            for (int i = 0, count = random.nextInt(3); i < count && !recorder.timers.isEmpty(); i++) {
+                recorder.timers.get(recorder.timers.size() - 1 - random.nextInt(Math.min(recorder.timers.size(), 20)))
+                        .cancel();
+            }
+
+            recorder.advanceTo(recorder.now + 1 + random.nextInt(2000));
+        }
+        recorder.advanceTo(Long.MAX_VALUE);
+
+        assertEquals(0, recorder.scheduler.size());
+        recorder.assertDelivered();
+    }
+
+    @Test
+    public void thresholdEventsExpireBeforeTheDeadline() {
+        Recorder recorder = new Recorder(new CountdownScheduler(new VirtualTimeSource(0, 0)));
+        CountdownScheduler.Timer finish = recorder.schedule(HOUR, 0);
+        recorder.schedule(HOUR, 10 * SECOND).cancel();
+        CountdownScheduler.Timer tenSecondsLeft = recorder.schedule(HOUR, 10 * SECOND);
+        assertTrue(finish.isFinish());
+        assertFalse(tenSecondsLeft.isFinish());
+        assertEquals(10 * SECOND, tenSecondsLeft.getMillisLeft());
+
+        assertEquals(0, recorder.advanceTo(HOUR - 10 * SECOND - 1));
+        assertEquals(1, recorder.advanceTo(HOUR - 10 * SECOND));
+        assertFalse(tenSecondsLeft.isPending());
+        assertTrue(finish.isPending());
+        assertEquals(0, recorder.advanceTo(HOUR - 1));
+        assertEquals(1, recorder.advanceTo(HOUR));
+        recorder.assertDelivered();
+    }
+
+    @Test
+    public void startedSchedulerAdvancesOnTheTimeSource() {
+        final VirtualTimeSource timeSource = new VirtualTimeSource(HOUR, 0);
+        CountdownScheduler scheduler = new CountdownScheduler(timeSource);
+        final List<Long> deliveryTimes = new ArrayList<>();
+        CountdownScheduler.Callback callback = new CountdownScheduler.Callback() {
+            @Override
+            public void onExpired(List<CountdownScheduler.Timer> timers) {
+                for (int i = 0; i < timers.size(); i++) {
+                    deliveryTimes.add(timeSource.elapsedRealtime());
+                }
+            }
+        };
+        scheduler.start();
+        assertEquals(0, timeSource.getPendingTaskCount());
+
+        scheduler.schedule(HOUR + 10 * SECOND, null, callback);
+        scheduler.schedule(HOUR + 10 * SECOND, 5 * SECOND, null, callback);
+        scheduler.schedule(HOUR + MINUTE, null, callback);
+        //One pending task, for the next occupied slot.
+        assertEquals(1, timeSource.getPendingTaskCount());
+
+        timeSource.advanceTo(HOUR + 10 * SECOND);
+        assertEquals(Arrays.asList(HOUR + 5 * SECOND, HOUR + 10 * SECOND), deliveryTimes);
+        assertEquals(1, timeSource.getPendingTaskCount());
+
+        //Stopped, the last timer waits for the next start.
+        scheduler.stop();
+        assertEquals(0, timeSource.getPendingTaskCount());
+        timeSource.advanceTo(HOUR + 2 * MINUTE);
+        assertEquals(2, deliveryTimes.size());
+
+        scheduler.start();
+        timeSource.advanceBy(0);
+        assertEquals(Arrays.asList(HOUR + 5 * SECOND, HOUR + 10 * SECOND, HOUR + 2 * MINUTE), deliveryTimes);
+        assertEquals(0, scheduler.size());
+        assertEquals(0, timeSource.getPendingTaskCount());
+    }
+
+    /**
+     * Schedules timers tagged with their index, and checks every delivery against the advances of the test.
+     */
+    private static final class Recorder implements CountdownScheduler.Callback {
+        final CountdownScheduler scheduler;
+        final List<CountdownScheduler.Timer> timers = new ArrayList<>();
+        /**
+         * The time the scheduler was advanced to when each timer was registered.
+         */
+        private final List<Long> mRegisterTimes = new ArrayList<>();
+        private final List<Long> mDeliveryTimes = new ArrayList<>();
+        /**
+         * Target of the running advance, or of the last one. The scheduler starts at 0.
+         */
+        long now;
+        private long mLastNow;
+        int batchCount;
+        private int mDeliveredCount;
+        private long mLastDeliveryTime = Long.MIN_VALUE;
+
+        Recorder(CountdownScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        CountdownScheduler.Timer schedule(long deadline, long millisLeft) {
+            CountdownScheduler.Timer timer = scheduler.schedule(deadline, millisLeft, timers.size(), this);
+            timers.add(timer);
+            mRegisterTimes.add(now);
+            mDeliveryTimes.add(null);
+            return timer;
+        }
+
+        int advanceTo(long time) {
+            mLastNow = now;
+            now = time;
+            return scheduler.advanceTo(time);
+        }
+
+        /**
+         * A timer expires at its expiry, or on the next millisecond if it was already due when registered.
+         */
+        private long getDeliveryTime(int index) {
+            CountdownScheduler.Timer timer = timers.get(index);
+            return Math.max(timer.getDeadline() - timer.getMillisLeft(), mRegisterTimes.get(index) + 1);
+        }
+
+        @Override
+        public void onExpired(List<CountdownScheduler.Timer> batch) {
+            batchCount++;
+            long time = getDeliveryTime((Integer) batch.get(0).getTag());
+            //Batches follow the time, each one in the first advance at or past its time.
+            assertTrue(time >= mLastDeliveryTime);
+            assertTrue("Expired at " + time + " in the advance from " + mLastNow + " to " + now,
+                    time > mLastNow && time <= now);
+            mLastDeliveryTime = time;
+
+            int lastTag = -1;
+            for (CountdownScheduler.Timer timer : batch) {
+                int tag = (Integer) timer.getTag();
+                assertTrue("Timer " + tag + " after " + lastTag, tag > lastTag);
+                assertEquals(time, getDeliveryTime(tag));
+                lastTag = tag;
+                mDeliveryTimes.set(tag, time);
+                mDeliveredCount++;
+            }
+        }
+
+        /**
+         * Every timer not cancelled was delivered once, on the first advance at or past its time.
+         */
+        void assertDelivered() {
+            int cancelledCount = 0;
+            for (int i = 0; i < timers.size(); i++) {
+                assertFalse(timers.get(i).isPending());
+                if (mDeliveryTimes.get(i) == null) {
+                    cancelledCount++;
+                }
+            }
+            assertTrue(cancelledCount < timers.size());
+            assertEquals(timers.size() - cancelledCount, mDeliveredCount);
+        }
+    }
+}
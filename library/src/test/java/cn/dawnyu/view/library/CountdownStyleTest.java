@@ -0,0 +1,155 @@
+package cn.dawnyu.view.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * description: Interning of {@link CountdownStyle}, and the per-view copies of its backgrounds.
+ * <p>
+ * 样式共享的测试：相同属性共用一个实例，不同属性各自一个实例，每个控件绘制自己的背景副本。
+ * date: 26/10/17
+ * version:
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class CountdownStyleTest {
+    private final Context mContext = RuntimeEnvironment.application;
+
+    @Test
+    public void equalBuildersShareOneStyle() {
+        Drawable background = new ColorDrawable(Color.RED);
+        CountdownStyle style = newBuilder(background).build();
+
+        //Another drawable with the same constant state is the same background.
+        assertSame(style, newBuilder(background.getConstantState().newDrawable()).build());
+        assertSame(style, style.buildUpon().build());
+        assertSame(style, style.buildUpon().setTimeTextSize(30).setTimeTextSize(40).build());
+        //Shared with the paints, metrics and layout engine.
+        CountdownStyle other = newBuilder(background).build();
+        assertSame(style.getTimeTextPaint(), other.getTimeTextPaint());
+        assertSame(style.getTimeTextMetrics(), other.getTimeTextMetrics());
+        assertSame(style.getLayoutEngine(), other.getLayoutEngine());
+
+        //Views with the same attributes share the style of the attributes.
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        assertSame(new CountdownView(activity).getStyle(), new CountdownView(activity).getStyle());
+    }
+
+    @Test
+    public void changedFieldsMakeAnotherStyle() {
+        Drawable background = new ColorDrawable(Color.RED);
+        CountdownStyle style = newBuilder(background).build();
+        CountdownStyle.Builder[] builders = {
+                style.buildUpon().setIncludePad(true),
+                style.buildUpon().setTimeTextSize(41),
+                style.buildUpon().setTimeTextColor(Color.BLUE),
+                style.buildUpon().setTimeTextBold(true),
+                style.buildUpon().setTimeTextLetterSpacing(2),
+                style.buildUpon().setTimeTextLetterBackgroundSpacing(3),
+                style.buildUpon().setTimeBackground(null),
+                style.buildUpon().setTimeBackground(new ColorDrawable(Color.RED)),
+                style.buildUpon().setTimeBackgroundWidth(50),
+                style.buildUpon().setTimeBackgroundHeight(50),
+                style.buildUpon().setTimeBackgroundPadding(6),
+                style.buildUpon().setTimeBackgroundPaddingX(6),
+                style.buildUpon().setTimeBackgroundPaddingY(6),
+                style.buildUpon().setTimeBackgroundPaddingLeft(6),
+                style.buildUpon().setTimeBackgroundPaddingRight(6),
+                style.buildUpon().setTimeBackgroundPaddingTop(6),
+                style.buildUpon().setTimeBackgroundPaddingBottom(6),
+                style.buildUpon().setTimeTextPaint(new Paint()),
+                style.buildUpon().setSuffixTextSize(21),
+                style.buildUpon().setSuffixTextColor(Color.BLUE),
+                style.buildUpon().setSuffixTextBold(true),
+                style.buildUpon().setSuffixTextMargin(7),
+                style.buildUpon().setSuffixBackground(new ColorDrawable(Color.GREEN)),
+                style.buildUpon().setSuffixBackgroundWidth(50),
+                style.buildUpon().setSuffixBackgroundHeight(50),
+                style.buildUpon().setSuffixBackgroundPadding(6),
+                style.buildUpon().setSuffixBackgroundPaddingX(6),
+                style.buildUpon().setSuffixBackgroundPaddingY(6),
+                style.buildUpon().setSuffixBackgroundPaddingLeft(6),
+                style.buildUpon().setSuffixBackgroundPaddingRight(6),
+                style.buildUpon().setSuffixBackgroundPaddingTop(6),
+                style.buildUpon().setSuffixBackgroundPaddingBottom(6),
+                style.buildUpon().setSuffixTextPaint(new Paint())};
+
+        CountdownStyle[] styles = new CountdownStyle[builders.length];
+        for (int i = 0; i < builders.length; i++) {
+            styles[i] = builders[i].build();
+            assertNotEquals("Builder " + i, style, styles[i]);
+            //Interned too, and the style it was built upon is unchanged.
+            assertSame("Builder " + i, styles[i], builders[i].build());
+            assertSame(style, newBuilder(background).build());
+            for (int j = 0; j < i; j++) {
+                assertNotSame("Builders " + j + " and " + i, styles[j], styles[i]);
+            }
+        }
+    }
+
+    @Test
+    public void viewsDrawTheirOwnCopiesOfTheBackgrounds() {
+        ColorDrawable timeBackground = new ColorDrawable(Color.RED);
+        ColorDrawable suffixBackground = new ColorDrawable(Color.GREEN);
+        CountdownStyle style = newBuilder(timeBackground).setSuffixBackground(suffixBackground).build();
+        Resources res = mContext.getResources();
+
+        Drawable copy1 = style.newTimeBackground(res);
+        Drawable copy2 = style.newTimeBackground(res);
+        assertNotSame(timeBackground, copy1);
+        assertNotSame(copy1, copy2);
+        assertEquals(Color.RED, ((ColorDrawable) copy1).getColor());
+        assertEquals(Color.GREEN, ((ColorDrawable) style.newSuffixBackground(res)).getColor());
+        //Mutated copies, the state of one is not seen by the others or the shared drawable.
+        copy1.setAlpha(0x10);
+        copy1.setBounds(1, 2, 3, 4);
+        assertEquals(0xFF, copy2.getAlpha());
+        assertEquals(0xFF, timeBackground.getAlpha());
+        assertEquals(0, copy2.getBounds().width());
+        assertSame(style, newBuilder(timeBackground).setSuffixBackground(suffixBackground).build());
+        assertNull(style.buildUpon().setTimeBackground(null).build().newTimeBackground(res));
+
+        //Each view with the style gets its own copies.
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        CountdownView view1 = new CountdownView(activity);
+        CountdownView view2 = new CountdownView(activity);
+        view1.setStyle(style);
+        view2.setStyle(style);
+        assertSame(view1.getStyle(), view2.getStyle());
+        for (String field : new String[]{"mTimeBackground", "mSuffixBackground"}) {
+            Drawable drawable1 = ReflectionHelpers.getField(view1, field);
+            Drawable drawable2 = ReflectionHelpers.getField(view2, field);
+            assertNotSame(field, drawable1, drawable2);
+            assertNotSame(field, timeBackground, drawable1);
+            assertNotSame(field, suffixBackground, drawable1);
+            assertEquals(field, ((ColorDrawable) drawable1).getColor(), ((ColorDrawable) drawable2).getColor());
+        }
+    }
+
+    private CountdownStyle.Builder newBuilder(Drawable timeBackground) {
+        return new CountdownStyle.Builder(mContext)
+                .setTimeTextSize(40)
+                .setSuffixTextSize(20)
+                .setTimeBackground(timeBackground)
+                .setTimeBackgroundPadding(4);
+    }
+}
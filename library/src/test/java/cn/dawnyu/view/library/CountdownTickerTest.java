@@ -0,0 +1,109 @@
+package cn.dawnyu.view.library;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * description: {@link CountdownTicker} on a {@link VirtualTimeSource}:
+ * one message per second however many listeners share the second boundaries.
+ * <p>
+ * 共用计时器的测试：无论多少个控件，每秒只有一条消息。
+ * date: 26/10/17
+ * version:
+ */
+public class CountdownTickerTest {
+    private static final long SECOND = 1000;
+    private static final long HOUR = 60 * 60 * SECOND;
+
+    private VirtualTimeSource mTimeSource;
+
+    @Before
+    public void setUp() {
+        mTimeSource = new VirtualTimeSource(10 * HOUR, 0);
+        TimeSource.setDefault(mTimeSource);
+    }
+
+    @After
+    public void tearDown() {
+        TimeSource.setDefault(null);
+    }
+
+    @Test
+    public void oneMessagePerSecondForAnyListenerCount() {
+        for (int count : new int[]{10, 100, 1000}) {
+            SecondListener[] listeners = register(count);
+
+            assertEquals(count + " listeners", 60, mTimeSource.advanceBy(60 * SECOND));
+            for (SecondListener listener : listeners) {
+                assertEquals(60, listener.tickCount);
+            }
+
+            unregister(listeners);
+        }
+    }
+
+    @Test
+    public void unregisteredListenersAreDropped() {
+        SecondListener[] listeners = register(10);
+        mTimeSource.advanceBy(5 * SECOND);
+
+        CountdownTicker.getInstance().unregister(listeners[0]);
+        mTimeSource.advanceBy(5 * SECOND);
+        assertEquals(5, listeners[0].tickCount);
+        assertEquals(10, listeners[1].tickCount);
+
+        unregister(listeners);
+        assertEquals(0, mTimeSource.getPendingTaskCount());
+    }
+
+    @Test
+    public void finishedListenersStopTicking() {
+        SecondListener listener = new SecondListener(mTimeSource.elapsedRealtime() + 3 * SECOND);
+        CountdownTicker.getInstance().register(listener, mTimeSource.elapsedRealtime() + SECOND);
+
+        assertEquals(3, mTimeSource.advanceBy(HOUR));
+        assertEquals(3, listener.tickCount);
+        assertEquals(0, mTimeSource.getPendingTaskCount());
+    }
+
+    /**
+     * Listeners counting down to deadlines on whole seconds, a minute apart.
+     */
+    private SecondListener[] register(int count) {
+        long now = mTimeSource.elapsedRealtime();
+        SecondListener[] listeners = new SecondListener[count];
+        for (int i = 0; i < count; i++) {
+            listeners[i] = new SecondListener(now + HOUR + i * 60 * SECOND);
+            CountdownTicker.getInstance().register(listeners[i], now + SECOND);
+        }
+        return listeners;
+    }
+
+    private void unregister(SecondListener[] listeners) {
+        for (SecondListener listener : listeners) {
+            CountdownTicker.getInstance().unregister(listener);
+        }
+    }
+
+    private static final class SecondListener implements CountdownTicker.OnTickListener {
+        private final long mDeadline;
+        int tickCount;
+
+        SecondListener(long deadline) {
+            mDeadline = deadline;
+        }
+
+        @Override
+        public long onTick(long now) {
+            tickCount++;
+            long millisUntilFinished = mDeadline - now;
+            if (millisUntilFinished <= 0) {
+                return -1;
+            }
+            return mDeadline - (millisUntilFinished + SECOND - 1) / SECOND * SECOND + SECOND;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package cn.dawnyu.view.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Picture;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.ColorDrawable;
+import android.view.ViewGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * description: Drawing of an attached {@link CountdownView} into a recording canvas.
+ * <p>
+ * 倒计时控件绘制的测试：绘制到记录绘制操作的画布。
+ * date: 26/10/17
+ * version:
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class CountdownViewDrawTest {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    /**
+     * Frames that may allocate while measuring, see {@link #assertDrawAllocatesNothing()}.
+     */
+    private static final int MAX_ALLOCATING_FRAMES = 2;
+
+    private VirtualTimeSource mTimeSource;
+    private DirtyRegionView mView;
+    private RecordingCanvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mTimeSource = new VirtualTimeSource(DAY, 0);
+        TimeSource.setDefault(mTimeSource);
+
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        mView = new DirtyRegionView(activity);
+        activity.setContentView(mView);
+        //Robolectric does not show the window of the activity, the view would stay paused.
+        ReflectionHelpers.callInstanceMethod(mView.getRootView().getParent(), "dispatchAppVisibility",
+                ReflectionHelpers.ClassParameter.from(boolean.class, true));
+        ShadowLooper.idleMainLooper();
+    }
+
+    @After
+    public void tearDown() {
+        ((ViewGroup) mView.getParent()).removeView(mView);
+        TimeSource.setDefault(null);
+    }
+
+    @Test
+    public void drawAllocatesNothing() {
+        start(3 * DAY + 500, "dd天hh:mm:ss");
+        assertDrawAllocatesNothing();
+    }
+
+    @Test
+    public void drawWithGlyphAtlasAndStaticLayerAllocatesNothing() {
+        mView.setGlyphAtlasEnabled(true);
+        mView.setStaticLayerEnabled(true);
+        start(3 * DAY + 500, "dd天hh:mm:ss");
+        assertDrawAllocatesNothing();
+    }
+
+    @Test
+    public void customTextPaintsDoNotShareAtlasesOrMetrics() {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setTextSize(40);
+        Paint scaledPaint = new Paint(paint);
+        scaledPaint.setTextScaleX(2);
+        Paint shadedPaint = new Paint(paint);
+        shadedPaint.setShader(new LinearGradient(0, 0, 0, 40, Color.RED, Color.BLUE, Shader.TileMode.CLAMP));
+
+        //Paints that differ only in the text scale or the shader are measured apart.
+        CountdownStyle style = new CountdownStyle.Builder(mView.getContext()).setTimeTextPaint(paint).build();
+        CountdownStyle scaledStyle = new CountdownStyle.Builder(mView.getContext()).setTimeTextPaint(scaledPaint).build();
+        CountdownStyle shadedStyle = new CountdownStyle.Builder(mView.getContext()).setTimeTextPaint(shadedPaint).build();
+        assertNotSame(style.getTimeTextMetrics(), scaledStyle.getTimeTextMetrics());
+        assertNotSame(style.getTimeTextMetrics(), shadedStyle.getTimeTextMetrics());
+        assertNotSame(scaledStyle.getTimeTextMetrics(), shadedStyle.getTimeTextMetrics());
+
+        //And draw their own text instead of the bitmaps rendered with another paint.
+        for (Paint timeTextPaint : new Paint[]{scaledPaint, shadedPaint}) {
+            mView.setGlyphAtlasEnabled(true);
+            mView.setTimeTextPaint(timeTextPaint);
+            start(2 * HOUR, "hh:mm:ss");
+            mView.onDraw(mCanvas);
+            assertEquals(0, mCanvas.bitmapCount);
+            assertEquals(6, mCanvas.digitCount);
+        }
+
+        //Styles built from the attributes share the metrics and the atlases.
+        mView.setTimeTextPaint(null);
+        start(2 * HOUR, "hh:mm:ss");
+        mView.onDraw(mCanvas);
+        assertEquals(0, mCanvas.digitCount);
+        assertTrue(mCanvas.bitmapCount > 0);
+        assertSame(mView.getStyle().getTimeTextMetrics(),
+                mView.getStyle().buildUpon().setTimeTextColor(Color.RED).build().getTimeTextMetrics());
+    }
+
+    @Test
+    public void ticksRedrawOnlyTheChangedDigits() {
+        //A background per digit, so each digit has a cell of its own. The cells are kept apart by more than
+        //the inset of the dirty region, Robolectric measures the glyphs as 0 or 1 pixel wide.
+        mView.setTimeBackground(new ColorDrawable(Color.BLACK));
+        mView.setTimeBackgroundPadding(8);
+        mView.setTimeTextLetterBackgroundSpacing(8);
+        mView.setSuffixTextMargin(8);
+        start(2 * HOUR + 30 * SECOND, "hh:mm:ss");
+
+        //"02:00:30", a full frame draws the 6 digits with their backgrounds and the 2 suffixes.
+        mCanvas.setClip(null);
+        mView.onDraw(mCanvas);
+        assertEquals(6, mCanvas.digitCount);
+        assertEquals(6, mCanvas.rectCount);
+        assertEquals(2, mCanvas.suffixCount);
+
+        int digitCount = 0;
+        for (int i = 0; i < 60; i++) {
+            long seconds = mView.mSeconds;
+            mCanvas.reset();
+            mView.dirtyRegion.setEmpty();
+            mTimeSource.advanceBy(SECOND);
+
+            mCanvas.setClip(mView.dirtyRegion);
+            mView.onDraw(mCanvas);
+            digitCount += mCanvas.digitCount;
+            if (seconds > 0) {
+                //The tens digit changes every 10 seconds.
+                assertEquals(seconds % 10 == 0 ? 2 : 1, mCanvas.digitCount);
+                assertEquals(mCanvas.digitCount, mCanvas.rectCount);
+                assertEquals(0, mCanvas.suffixCount);
+            }
+        }
+
+        //"01:59:30", the tick of "02:00:00" to "01:59:59" redraws every digit between the hours and the seconds.
+        assertEquals(1, mView.mHours);
+        assertEquals(59, mView.mMinutes);
+        assertEquals(30, mView.mSeconds);
+        assertEquals(59 + 5 + 5, digitCount);
+    }
+
+    private void start(long millisInFuture, String timeFormat) {
+        mView.start(millisInFuture, timeFormat);
+        ShadowLooper.idleMainLooper();
+        mCanvas = new RecordingCanvas(mView.getWidth(), mView.getHeight());
+    }
+
+    /**
+     * Tick and draw for a while, counting the bytes allocated by the first {@link CountdownView#onDraw(Canvas)}
+     * after each tick. The framework part of {@link android.view.View#draw(Canvas)} is left out,
+     * it does not draw the content here. The long warm up lets the JIT compile the draw path first,
+     * a deoptimization while measuring may still rebuild eliminated objects once, so at most
+     * {@link #MAX_ALLOCATING_FRAMES} frames may allocate: an allocation on every tick, or on every
+     * change of a digit, shows on far more frames.
+     */
+    private void assertDrawAllocatesNothing() {
+        //Warm up, the first draw acquires the atlases and records the static layer.
+        for (int i = 0; i < 5000; i++) {
+            tickAndDraw();
+        }
+
+        long overhead = getAllocatedBytes();
+        overhead = getAllocatedBytes() - overhead;
+
+        int allocatingFrames = 0;
+        for (int i = 0; i < 1000; i++) {
+            mTimeSource.advanceBy(SECOND);
+            long before = getAllocatedBytes();
+            mView.onDraw(mCanvas);
+            if (getAllocatedBytes() - before - overhead > 0) {
+                allocatingFrames++;
+            }
+        }
+        assertTrue(mCanvas.digitCount + mCanvas.bitmapCount > 0);
+        assertTrue(allocatingFrames + " of 1000 frames allocated", allocatingFrames <= MAX_ALLOCATING_FRAMES);
+    }
+
+    private void tickAndDraw() {
+        mTimeSource.advanceBy(SECOND);
+        mView.onDraw(mCanvas);
+    }
+
+    private static long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Invalidating with a region only sets the dirty region of the parent, keep it for the next draw.
+     */
+    private static final class DirtyRegionView extends CountdownView {
+        final Rect dirtyRegion = new Rect();
+
+        DirtyRegionView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void invalidate() {
+            super.invalidate();
+            dirtyRegion.set(0, 0, getWidth(), getHeight());
+        }
+
+        @Override
+        public void invalidate(int l, int t, int r, int b) {
+            super.invalidate(l, t, r, b);
+            dirtyRegion.union(l, t, r, b);
+        }
+    }
+
+    /**
+     * Counts the draw calls of the view instead of rasterizing them, rejecting the draws outside of a clip.
+     */
+    private static final class RecordingCanvas extends Canvas {
+        private final int mWidth;
+        private final int mHeight;
+        private final Rect mClip = new Rect();
+
+        int digitCount;
+        int suffixCount;
+        int bitmapCount;
+        int rectCount;
+        int pictureCount;
+
+        RecordingCanvas(int width, int height) {
+            mWidth = width;
+            mHeight = height;
+            mClip.set(0, 0, width, height);
+        }
+
+        /**
+         * @param clip Null to draw the whole canvas.
+         */
+        void setClip(Rect clip) {
+            if (clip == null) {
+                mClip.set(0, 0, mWidth, mHeight);
+            } else {
+                mClip.set(clip);
+            }
+        }
+
+        void reset() {
+            digitCount = 0;
+            suffixCount = 0;
+            bitmapCount = 0;
+            rectCount = 0;
+            pictureCount = 0;
+        }
+
+        @Override
+        public int getWidth() {
+            return mWidth;
+        }
+
+        @Override
+        public int getHeight() {
+            return mHeight;
+        }
+
+        @Override
+        public boolean isHardwareAccelerated() {
+            return false;
+        }
+
+        @Override
+        public boolean quickReject(float left, float top, float right, float bottom, EdgeType type) {
+            return left >= mClip.right || right <= mClip.left || top >= mClip.bottom || bottom <= mClip.top;
+        }
+
+        @Override
+        public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+            digitCount++;
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            suffixCount++;
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+            bitmapCount++;
+        }
+
+        @Override
+        public void drawRect(Rect r, Paint paint) {
+            rectCount++;
+        }
+
+        @Override
+        public void drawRect(RectF rect, Paint paint) {
+            rectCount++;
+        }
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+            rectCount++;
+        }
+
+        @Override
+        public void drawPicture(Picture picture) {
+            pictureCount++;
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package cn.dawnyu.view.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Color;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * description: Ticking of attached {@link CountdownView}s on a virtual clock.
+ * <p>
+ * 倒计时控件在虚拟时钟上的计时测试。
+ * date: 26/10/17
+ * version:
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class CountdownViewTest {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final long WALL_CLOCK = 1509000000000L;
+
+    private RecordingTimeSource mTimeSource;
+    private Activity mActivity;
+    private final List<CountdownView> mViews = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mTimeSource = new RecordingTimeSource(new Random(2));
+        TimeSource.setDefault(mTimeSource);
+        mActivity = Robolectric.setupActivity(Activity.class);
+    }
+
+    @After
+    public void tearDown() {
+        //Detached views leave the shared ticker.
+        for (CountdownView view : mViews) {
+            ((ViewGroup) view.getParent()).removeView(view);
+        }
+        TimeSource.setDefault(null);
+    }
+
+    @Test
+    public void lateTicksShowTheExactRemainingTime() {
+        mTimeSource.setMaxDelay(900);
+        long deadline = mTimeSource.elapsedRealtime() + 10 * MINUTE + 500;
+        CountdownView view = addView();
+        view.startUntil(WALL_CLOCK + (deadline - mTimeSource.elapsedRealtime()), "hh:mm:ss");
+
+        Random random = new Random(3);
+        long lastRunTime = mTimeSource.lastRunTime;
+        while (mTimeSource.elapsedRealtime() < deadline + SECOND) {
+            mTimeSource.advanceBy(1 + random.nextInt(700));
+            if (mTimeSource.lastRunTime != lastRunTime) {
+                lastRunTime = mTimeSource.lastRunTime;
+                assertEquals("At " + (deadline - lastRunTime) + "ms left",
+                        getExpectedSeconds(deadline - lastRunTime), getShownSeconds(view));
+            }
+        }
+
+        //Late ticks are not replayed, but every second boundary still gets a tick.
+        assertEquals(10 * 60 + 1, mTimeSource.runTimes.size());
+        assertEquals(0, getShownSeconds(view));
+    }
+
+    @Test
+    public void ticksLandOnSecondBoundaries() {
+        long deadline = mTimeSource.elapsedRealtime() + 3 * MINUTE + 250;
+        CountdownView view = addView();
+        view.startUntil(WALL_CLOCK + (deadline - mTimeSource.elapsedRealtime()), "mm:ss");
+
+        mTimeSource.advanceBy(4 * MINUTE);
+
+        List<Long> runTimes = mTimeSource.runTimes;
+        assertEquals(3 * 60 + 1, runTimes.size());
+        for (long runTime : runTimes) {
+            assertEquals(0, (deadline - runTime) % SECOND);
+        }
+        assertEquals(0, getShownSeconds(view));
+    }
+
+    @Test
+    public void fixedWidthCountdownRequestsLayoutOnce() {
+        LayoutCountingView view = addView(new LayoutCountingView(mActivity));
+        view.start(24 * HOUR, "hh:mm:ss");
+        mTimeSource.advanceBy(24 * HOUR + SECOND);
+
+        assertEquals(24 * 60 * 60, mTimeSource.runTimes.size());
+        assertEquals(1, view.layoutRequestCount);
+
+        view.setTimeTextColor(Color.RED);
+        assertEquals(2, view.layoutRequestCount);
+    }
+
+    @Test
+    public void dayDigitCountChangeRequestsLayout() {
+        LayoutCountingView view = addView(new LayoutCountingView(mActivity));
+        view.start(10 * DAY + 12 * HOUR, "dd天hh:mm:ss");
+        mTimeSource.advanceBy(24 * HOUR);
+
+        //"10天" to "9天".
+        assertEquals(9, view.mDays);
+        assertEquals(2, view.layoutRequestCount);
+    }
+
+    @Test
+    public void hiddenDaysRequestLayout() {
+        LayoutCountingView view = addView(new LayoutCountingView(mActivity));
+        view.start(DAY + 12 * HOUR, "dd天hh:mm:ss");
+        mTimeSource.advanceBy(24 * HOUR);
+
+        assertEquals(0, view.mDays);
+        assertEquals(2, view.layoutRequestCount);
+    }
+
+    @Test
+    public void minuteFormatWakesOncePerMinute() {
+        long deadline = mTimeSource.elapsedRealtime() + 2 * HOUR;
+        CountdownView view = addView();
+        view.start(2 * HOUR, "hh:mm");
+        mTimeSource.advanceBy(3 * HOUR);
+
+        assertWakeups(deadline, MINUTE, 2 * 60);
+        assertEquals(0, view.mMinutes);
+    }
+
+    @Test
+    public void hourFormatWakesOncePerHour() {
+        long deadline = mTimeSource.elapsedRealtime() + 3 * DAY;
+        CountdownView view = addView();
+        view.start(3 * DAY, "dd天hh小时");
+        mTimeSource.advanceBy(4 * DAY);
+
+        assertWakeups(deadline, HOUR, 3 * 24);
+        assertEquals(0, view.mHours);
+    }
+
+    @Test
+    public void subSecondFieldsWakeOncePerSecondAboveTheThreshold() {
+        long deadline = mTimeSource.elapsedRealtime() + MINUTE;
+        CountdownView view = addView();
+        view.setHighPrecisionThreshold(10 * SECOND);
+        view.start(MINUTE, "mm:ss:SS");
+        mTimeSource.advanceBy(2 * MINUTE);
+
+        int secondWakeups = 0;
+        int frameWakeups = 0;
+        for (long runTime : mTimeSource.runTimes) {
+            long millisUntilFinished = deadline - runTime;
+            if (millisUntilFinished >= 10 * SECOND) {
+                secondWakeups++;
+                assertEquals(0, millisUntilFinished % SECOND);
+            } else if (millisUntilFinished > 0) {
+                //The sub-second fields are rounded down, Eg:"09:99" from 9999ms left.
+                frameWakeups++;
+                assertEquals(0, (millisUntilFinished + 1) % 10);
+            }
+        }
+        //"SS" changes every 10ms in the last 10 seconds.
+        assertEquals(50, secondWakeups);
+        assertEquals(10 * SECOND / 10, frameWakeups);
+        assertEquals(50 + 1000 + 1, mTimeSource.runTimes.size());
+        assertEquals(0, getShownSeconds(view));
+    }
+
+    @Test
+    public void goneViewsLeaveTheTickerAndResumeAtTheDeadline() {
+        final CountdownView view = addView();
+        assertPausesAndResumes(view, new Runnable() {
+            @Override
+            public void run() {
+                view.setVisibility(View.GONE);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                view.setVisibility(View.VISIBLE);
+            }
+        });
+    }
+
+    @Test
+    public void hiddenWindowsLeaveTheTickerAndResumeAtTheDeadline() {
+        final CountdownView view = addView();
+        assertPausesAndResumes(view, new Runnable() {
+            @Override
+            public void run() {
+                setAppVisibility(view, false);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                setAppVisibility(view, true);
+            }
+        });
+    }
+
+    @Test
+    public void screenOffLeavesTheTickerAndResumesAtTheDeadline() {
+        final CountdownView view = addView();
+        assertPausesAndResumes(view, new Runnable() {
+            @Override
+            public void run() {
+                view.onScreenStateChanged(View.SCREEN_STATE_OFF);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                view.onScreenStateChanged(View.SCREEN_STATE_ON);
+            }
+        });
+    }
+
+    @Test
+    public void detachedViewsResumeFromTheDeadlineWhenAttachedAgain() {
+        final CountdownView view = addView();
+        assertPausesAndResumes(view, new Runnable() {
+            @Override
+            public void run() {
+                ((ViewGroup) view.getParent()).removeView(view);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                mActivity.setContentView(view);
+                ShadowLooper.idleMainLooper();
+            }
+        });
+    }
+
+    /**
+     * Count down, pause for a minute and resume: a paused view has no pending tick, and a resumed one
+     * shows the time left at the deadline right away, then ticks on the next second boundary without catching up.
+     */
+    private void assertPausesAndResumes(CountdownView view, Runnable pause, Runnable resume) {
+        long deadline = mTimeSource.elapsedRealtime() + 10 * MINUTE + 500;
+        view.startUntil(WALL_CLOCK + (deadline - mTimeSource.elapsedRealtime()), "mm:ss");
+        mTimeSource.advanceBy(5 * SECOND);
+        assertEquals(getExpectedSeconds(deadline - mTimeSource.elapsedRealtime()), getShownSeconds(view));
+        long shownSeconds = getShownSeconds(view);
+
+        pause.run();
+        assertEquals(0, mTimeSource.getPendingTaskCount());
+        int runCount = mTimeSource.runTimes.size();
+        mTimeSource.advanceBy(MINUTE + 300);
+        assertEquals(runCount, mTimeSource.runTimes.size());
+        assertEquals(shownSeconds, getShownSeconds(view));
+
+        resume.run();
+        assertEquals(getExpectedSeconds(deadline - mTimeSource.elapsedRealtime()), getShownSeconds(view));
+        assertEquals(1, mTimeSource.getPendingTaskCount());
+        assertEquals(0, mTimeSource.advanceBy(0));
+
+        //The next tick is the next second boundary, 200ms later.
+        assertEquals(0, mTimeSource.advanceBy(199));
+        assertEquals(1, mTimeSource.advanceBy(1));
+        assertEquals(0, (deadline - mTimeSource.lastRunTime) % SECOND);
+        assertEquals(getExpectedSeconds(deadline - mTimeSource.elapsedRealtime()), getShownSeconds(view));
+
+        mTimeSource.advanceBy(10 * MINUTE);
+        assertEquals(0, getShownSeconds(view));
+    }
+
+    /**
+     * The view woke up once per changed value of its smallest unit, and once at the end.
+     * The shown seconds are rounded up, so the units change a second before their boundaries,
+     * Eg:"01:00" at 59.5s left, "00:59" from 59s left.
+     */
+    private void assertWakeups(long deadline, long unitMillis, int unitCount) {
+        List<Long> runTimes = mTimeSource.runTimes;
+        assertEquals(unitCount + 1, runTimes.size());
+        for (int i = 0; i < unitCount; i++) {
+            assertEquals(0, (deadline - runTimes.get(i) + SECOND) % unitMillis);
+        }
+        assertEquals(deadline, (long) runTimes.get(unitCount));
+    }
+
+    private CountdownView addView() {
+        return addView(new CountdownView(mActivity));
+    }
+
+    private <T extends CountdownView> T addView(T view) {
+        mActivity.setContentView(view);
+        //Robolectric does not show the window of the activity, the view would stay paused.
+        setAppVisibility(view, true);
+        mViews.add(view);
+        //Only count the requests of the countdown.
+        if (view instanceof LayoutCountingView) {
+            ((LayoutCountingView) view).layoutRequestCount = 0;
+        }
+        return view;
+    }
+
+    private static void setAppVisibility(CountdownView view, boolean visible) {
+        ReflectionHelpers.callInstanceMethod(view.getRootView().getParent(), "dispatchAppVisibility",
+                ReflectionHelpers.ClassParameter.from(boolean.class, visible));
+        ShadowLooper.idleMainLooper();
+    }
+
+    private static long getShownSeconds(CountdownView view) {
+        return view.mDays * 24 * 60 * 60 + view.mHours * 60 * 60 + view.mMinutes * 60 + view.mSeconds;
+    }
+
+    private static long getExpectedSeconds(long millisUntilFinished) {
+        return Math.max(0, (millisUntilFinished + SECOND - 1) / SECOND);
+    }
+
+    private static final class LayoutCountingView extends CountdownView {
+        int layoutRequestCount;
+
+        LayoutCountingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            super.requestLayout();
+            layoutRequestCount++;
+        }
+    }
+
+    /**
+     * Runs every task up to a random delay late, like a busy main thread, and records when the tasks ran.
+     * The main looper is idled after each task, so the frames requested by a tick are done before the next one.
+     */
+    private static final class RecordingTimeSource extends VirtualTimeSource {
+        private final Random mRandom;
+        private final Map<Runnable, Runnable> mRecordingTasks = new IdentityHashMap<>();
+        private int mMaxDelay;
+
+        final List<Long> runTimes = new ArrayList<>();
+        long lastRunTime = -1;
+
+        RecordingTimeSource(Random random) {
+            super(HOUR, WALL_CLOCK);
+            mRandom = random;
+        }
+
+        void setMaxDelay(int maxDelay) {
+            mMaxDelay = maxDelay;
+        }
+
+        @Override
+        public void postAt(final Runnable task, long elapsedRealtime) {
+            Runnable recordingTask = mRecordingTasks.get(task);
+            if (recordingTask == null) {
+                recordingTask = new Runnable() {
+                    @Override
+                    public void run() {
+                        lastRunTime = elapsedRealtime();
+                        runTimes.add(lastRunTime);
+                        task.run();
+                        //Measure and draw the requested frame before the next tick.
+                        ShadowLooper.idleMainLooper();
+                    }
+                };
+                mRecordingTasks.put(task, recordingTask);
+            }
+            long delay = mMaxDelay > 0 ? mRandom.nextInt(mMaxDelay + 1) : 0;
+            super.postAt(recordingTask, elapsedRealtime + delay);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            Runnable recordingTask = mRecordingTasks.get(task);
+            if (recordingTask != null) {
+                super.cancel(recordingTask);
+            }
+        }
+    }
+}
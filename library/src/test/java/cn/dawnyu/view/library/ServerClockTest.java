@@ -0,0 +1,230 @@
+package cn.dawnyu.view.library;
+
+import android.app.Activity;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * description: {@link CountdownView#startUntil(long, String)} synced with a fake time server on a virtual clock,
+ * while the device clock and the server clock jump.
+ * <p>
+ * 倒计时控件与模拟的时间服务器同步的测试：设备时间和服务器时间跳变时倒计时保持正确。
+ * date: 26/10/17
+ * version:
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class ServerClockTest {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final long WALL_CLOCK = 1509000000000L;
+    private static final String FORMAT = "hh:mm:ss";
+
+    private CountingTimeSource mTimeSource;
+    private FakeTimeServer mServer;
+    private LinearLayout mContainer;
+    private final List<CountdownView> mViews = new ArrayList<>();
+    private final List<Long> mDeadlines = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mTimeSource = new CountingTimeSource();
+        TimeSource.setDefault(mTimeSource);
+        //The device clock is 37 seconds behind the server.
+        mServer = new FakeTimeServer(mTimeSource, WALL_CLOCK + 37 * SECOND);
+
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        mContainer = new LinearLayout(activity);
+        activity.setContentView(mContainer);
+        //Robolectric does not show the window of the activity, the views would stay paused.
+        ReflectionHelpers.callInstanceMethod(mContainer.getRootView().getParent(), "dispatchAppVisibility",
+                ReflectionHelpers.ClassParameter.from(boolean.class, true));
+        ShadowLooper.idleMainLooper();
+    }
+
+    @After
+    public void tearDown() {
+        //Detached views leave the shared ticker and the server clock.
+        ((ViewGroup) mContainer.getParent()).removeView(mContainer);
+        ServerClock.reset();
+        mTimeSource.advanceBy(0);
+        TimeSource.setDefault(null);
+    }
+
+    @Test
+    public void deviceClockJumpsDoNotMoveSyncedCountdowns() {
+        mServer.sync(400);
+        addView(mServer.currentTimeMillis() + 10 * MINUTE + 500);
+        addView(mServer.currentTimeMillis() + 2 * HOUR);
+
+        Random random = new Random(5);
+        while (mServer.currentTimeMillis() < mDeadlines.get(0) + SECOND) {
+            mTimeSource.advanceBy(1 + random.nextInt(3000));
+            if (random.nextInt(10) == 0) {
+                //The user sets the device time a few days forward or back.
+                mTimeSource.setCurrentTimeMillis(WALL_CLOCK + (random.nextInt(7) - 3) * DAY + random.nextInt(1000));
+            }
+            assertViewsShowTheServerTime();
+        }
+        assertEquals(0, getShownSeconds(mViews.get(0)));
+        assertTrue(getShownSeconds(mViews.get(1)) > 0);
+    }
+
+    @Test
+    public void serverClockCorrectionRealignsEveryCountdown() {
+        mServer.sync(400);
+        for (int i = 0; i < 5; i++) {
+            addView(mServer.currentTimeMillis() + (i + 1) * 10 * MINUTE);
+            mTimeSource.advanceBy(SECOND + 250);
+        }
+        assertViewsShowTheServerTime();
+
+        //The server corrects its own clock, the next samples move the countdowns forward and back.
+        mServer.setCurrentTimeMillis(mServer.currentTimeMillis() + 90 * SECOND + 300);
+        mServer.sync(250);
+        assertEquals(1, mTimeSource.advanceBy(0));
+        assertViewsShowTheServerTime();
+
+        mServer.setCurrentTimeMillis(mServer.currentTimeMillis() - 2 * MINUTE);
+        mServer.sync(1200);
+        mTimeSource.advanceBy(0);
+        assertViewsShowTheServerTime();
+
+        //The ticks follow the new second boundaries to the end.
+        Random random = new Random(6);
+        while (mServer.currentTimeMillis() < mDeadlines.get(mDeadlines.size() - 1) + SECOND) {
+            mTimeSource.advanceBy(1 + random.nextInt(5000));
+            assertViewsShowTheServerTime();
+        }
+    }
+
+    @Test
+    public void samplesBeforeTheDispatchAreCoalesced() {
+        mServer.sync(0);
+        for (int i = 0; i < 3; i++) {
+            addView(mServer.currentTimeMillis() + HOUR);
+        }
+        mTimeSource.advanceBy(SECOND);
+
+        //Several responses arrive before the main thread runs, the countdowns are re-aligned once, with the latest.
+        mTimeSource.postCount = 0;
+        for (int i = 1; i <= 3; i++) {
+            mServer.setCurrentTimeMillis(mServer.currentTimeMillis() + i * SECOND);
+            ServerClock.setServerTime(mServer.currentTimeMillis());
+        }
+        assertEquals(1, mTimeSource.postCount);
+        assertEquals(1, mTimeSource.advanceBy(0));
+        assertViewsShowTheServerTime();
+
+        //The next sample dispatches again.
+        mTimeSource.postCount = 0;
+        mServer.setCurrentTimeMillis(mServer.currentTimeMillis() - 5 * SECOND);
+        ServerClock.setServerTime(mServer.currentTimeMillis());
+        assertEquals(1, mTimeSource.postCount);
+        mTimeSource.advanceBy(0);
+        assertViewsShowTheServerTime();
+    }
+
+    private void addView(long deadlineEpochMillis) {
+        CountdownView view = new CountdownView(mContainer.getContext());
+        mContainer.addView(view);
+        view.startUntil(deadlineEpochMillis, FORMAT);
+        ShadowLooper.idleMainLooper();
+        mViews.add(view);
+        mDeadlines.add(deadlineEpochMillis);
+    }
+
+    private void assertViewsShowTheServerTime() {
+        long now = mServer.currentTimeMillis();
+        for (int i = 0; i < mViews.size(); i++) {
+            long millisUntilFinished = mDeadlines.get(i) - now;
+            assertEquals("View " + i + " at " + millisUntilFinished + "ms left",
+                    getExpectedSeconds(millisUntilFinished), getShownSeconds(mViews.get(i)));
+        }
+    }
+
+    private static long getShownSeconds(CountdownView view) {
+        return view.mDays * 24 * 60 * 60 + view.mHours * 60 * 60 + view.mMinutes * 60 + view.mSeconds;
+    }
+
+    private static long getExpectedSeconds(long millisUntilFinished) {
+        return Math.max(0, (millisUntilFinished + SECOND - 1) / SECOND);
+    }
+
+    /**
+     * A time server with a clock of its own, moving with the virtual monotonic clock.
+     * It reads its clock halfway through a request, like {@link ServerClock#setServerTime(long, long, long)} assumes.
+     */
+    private static final class FakeTimeServer {
+        private final VirtualTimeSource mTimeSource;
+        /**
+         * Server time minus {@link VirtualTimeSource#elapsedRealtime()}.
+         */
+        private long mOffset;
+
+        FakeTimeServer(VirtualTimeSource timeSource, long currentTimeMillis) {
+            mTimeSource = timeSource;
+            setCurrentTimeMillis(currentTimeMillis);
+        }
+
+        long currentTimeMillis() {
+            return mTimeSource.elapsedRealtime() + mOffset;
+        }
+
+        /**
+         * The server clock jumps, Eg:it was corrected by NTP.
+         */
+        void setCurrentTimeMillis(long currentTimeMillis) {
+            mOffset = currentTimeMillis - mTimeSource.elapsedRealtime();
+        }
+
+        /**
+         * Request the server time, the countdowns keep ticking while the request is on the way.
+         *
+         * @param latency Round trip time, an even split between the request and the response.
+         */
+        void sync(long latency) {
+            long request = mTimeSource.elapsedRealtime();
+            mTimeSource.advanceBy(latency / 2);
+            long serverTimeMillis = currentTimeMillis();
+            mTimeSource.advanceBy(latency - latency / 2);
+            ServerClock.setServerTime(serverTimeMillis, request, mTimeSource.elapsedRealtime());
+        }
+    }
+
+    /**
+     * Counts the posted tasks.
+     */
+    private static final class CountingTimeSource extends VirtualTimeSource {
+        int postCount;
+
+        CountingTimeSource() {
+            super(HOUR, WALL_CLOCK);
+        }
+
+        @Override
+        public void postAt(Runnable task, long elapsedRealtime) {
+            super.postAt(task, elapsedRealtime);
+            postCount++;
+        }
+    }
+}
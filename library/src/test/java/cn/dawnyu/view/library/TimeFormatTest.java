@@ -0,0 +1,264 @@
+package cn.dawnyu.view.library;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * description: Compiling time formats and writing the unit values of {@link TimeFormat}.
+ * <p>
+ * 时间格式解析和时间值输出的测试。
+ * date: 26/10/17
+ * version:
+ */
+public class TimeFormatTest {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private final char[] mBuffer = new char[20];
+
+    @Test
+    public void getCharsPadsToMinLength() {
+        assertEquals("05", getChars(5, 2));
+        assertEquals("59", getChars(59, 2));
+        assertEquals("123", getChars(123, 2));
+        assertEquals("007", getChars(7, 3));
+        assertEquals("0", getChars(0, 0));
+        assertEquals(String.valueOf(Long.MAX_VALUE), getChars(Long.MAX_VALUE, 2));
+    }
+
+    @Test
+    public void getCharsWritesNegativesAsZero() {
+        assertEquals("00", getChars(-1, 2));
+        assertEquals("0", getChars(-12345, 0));
+        assertEquals("000", getChars(Long.MIN_VALUE, 3));
+    }
+
+    @Test
+    public void doubledLiteralCharsAreLiterals() {
+        assertTokens("hh  mm", "1", "  ", "2");
+        assertTokens("hh--mm", "1", "--", "2");
+        assertTokens("dd::hh", "0", "::", "1");
+        assertTokens("ss秒秒", "3", "秒秒");
+        assertTokens("mm:ss.SS", "2", ":", "3", ".", "4");
+    }
+
+    @Test
+    public void quotedTextIsLiteral() {
+        assertTokens("hh'hh'mm", "1", "hh", "2");
+        assertTokens("'dd'hh", "dd", "1");
+        assertTokens("hh''mm", "1", "'", "2");
+        assertTokens("ss'It''s'", "3", "It's");
+        assertTokens("'[ss]'ss", "[ss]", "3");
+        assertTokens("hh'h'mm'm'", "1", "h", "2", "m");
+    }
+
+    @Test
+    public void sectionsAndQuotesAreParsed() {
+        assertTokens("[dd天]hh:mm:ss", "0", "天", "1", ":", "2", ":", "3");
+        assertTokens("hh:[mm分]ss秒", "1", ":", "2", "分", "3", "秒");
+        assertTokens("[hh:][mm:]ss", "1", ":", "2", ":", "3");
+        assertMalformed("hh'mm");
+        assertMalformed("[hh:mm");
+        assertMalformed("hh]:mm");
+        assertMalformed("[[hh]]");
+        StringBuilder pattern = new StringBuilder();
+        for (int i = 0; i < 33; i++) {
+            pattern.append("ss ");
+        }
+        assertMalformed(pattern.toString());
+    }
+
+    @Test
+    public void largestUnitAbsorbsTheLargerUnits() {
+        //{pattern, millis, precise, days, hours, minutes, seconds, centiseconds, milliseconds}
+        assertValues("hh:mm:ss", 50 * HOUR, false, 0, 50, 0, 0, 0, 0);
+        assertValues("dd天hh:mm:ss", 50 * HOUR, false, 2, 2, 0, 0, 0, 0);
+        assertValues("dd", 50 * HOUR, false, 2, 2, 0, 0, 0, 0);
+        assertValues("mm:ss", 2 * HOUR + 5 * MINUTE + 3 * SECOND, false, 0, 0, 125, 3, 0, 0);
+        assertValues("ss", 90 * SECOND + 500, false, 0, 0, 0, 91, 0, 0);
+        //Fields after the largest one keep their remainders, shown or not.
+        assertValues("hh", 90 * MINUTE, false, 0, 1, 30, 0, 0, 0);
+        //A format of sub-second fields only counts whole seconds.
+        assertValues("SS", 90 * SECOND + 500, true, 0, 0, 0, 90, 50, 500);
+
+        assertShown("hh:mm:ss", 50 * HOUR, false, "50:00:00");
+        assertShown("mm:ss", 2 * HOUR + 5 * MINUTE + 3 * SECOND, false, "125:03");
+        assertShown("hh小时mm分钟ss秒", 3 * DAY + 1, false, "72小时00分钟01秒");
+    }
+
+    @Test
+    public void secondsRoundUpOutsideThePreciseMode() {
+        assertValues("mm:ss.SS", 500, false, 0, 0, 0, 1, 0, 0);
+        assertValues("mm:ss.SS", 500, true, 0, 0, 0, 0, 50, 500);
+        assertValues("mm:ss", MINUTE - 1, false, 0, 0, 1, 0, 0, 0);
+        assertValues("mm:ss", 0, false, 0, 0, 0, 0, 0, 0);
+        assertValues("mm:ss", -SECOND, true, 0, 0, 0, 0, 0, 0);
+
+        //The sub-second fields and the separator before them are only shown in the precise mode.
+        assertShown("mm:ss.SS", MINUTE + 1234, true, "01:01.23");
+        assertShown("mm:ss.SS", MINUTE + 1234, false, "01:02");
+        assertShown("ss.SSS", 1234, true, "01.234");
+        assertEquals(0x18, TimeFormat.compile("mm:ss.SS").getSubSecondMask());
+        assertEquals(0, TimeFormat.compile("hh:mm:ss").getSubSecondMask());
+    }
+
+    @Test
+    public void quotedLiteralsAreShown() {
+        assertShown("hh'h'mm'm'", 90 * MINUTE, false, "01h30m");
+        assertShown("'[ss]'ss", 5 * SECOND, false, "[ss]05");
+        assertShown("ss'It''s'", 5 * SECOND, false, "05It's");
+        assertShown("hh''mm", 90 * MINUTE, false, "01'30");
+    }
+
+    @Test
+    public void optionalSectionsHideWhileTheyAndTheFieldsBeforeAreZero() {
+        //An unbracketed "dd" and its suffix are optional, like a bracketed one.
+        for (String pattern : new String[]{"dd天hh:mm:ss", "[dd天]hh:mm:ss"}) {
+            assertShown(pattern, 50 * HOUR, false, "2天02:00:00");
+            assertShown(pattern, DAY, false, "1天00:00:00");
+            assertShown(pattern, DAY - 999, false, "1天00:00:00");
+            assertShown(pattern, DAY - 1000, false, "23:59:59");
+            assertShown(pattern, 59 * SECOND, false, "00:00:59");
+            assertEquals(0x7C, getVisibleMask(pattern, 59 * SECOND));
+            assertEquals(0x7F, getVisibleMask(pattern, DAY));
+        }
+
+        //A section in the middle shows while any field before it is not zero.
+        assertShown("hh:[mm分]ss秒", 5 * SECOND, false, "00:05秒");
+        assertShown("hh:[mm分]ss秒", 65 * SECOND, false, "00:01分05秒");
+        assertShown("hh:[mm分]ss秒", HOUR + 5 * SECOND, false, "01:00分05秒");
+        assertShown("[hh:][mm:]ss", 5 * SECOND, false, "05");
+        assertShown("[hh:][mm:]ss", 65 * SECOND, false, "01:05");
+        assertShown("[hh:][mm:]ss", HOUR + 5 * SECOND, false, "01:00:05");
+        assertShown("[hh:][mm:]ss", 0, false, "00");
+        assertEquals(0x33, getVisibleMask("hh:[mm分]ss秒", 5 * SECOND));
+    }
+
+    @Test
+    public void nextChangeFollowsTheSmallestShownUnit() {
+        //{pattern, millis, precise, next change}
+        assertNextChange("hh:mm:ss", 5500, false, 5000);
+        assertNextChange("hh:mm:ss", 5000, false, 4000);
+        assertNextChange("hh:mm:ss", 1001, false, 1000);
+        assertNextChange("hh:mm:ss", 1, false, 0);
+        //Rounded up seconds, a minute field changes once the seconds fall below a whole minute.
+        assertNextChange("hh:mm", 125 * SECOND, false, 119 * SECOND);
+        assertNextChange("hh:mm", 120 * SECOND, false, 119 * SECOND);
+        assertNextChange("hh:mm", 119 * SECOND, false, 59 * SECOND);
+        assertNextChange("hh:mm", 30 * SECOND, false, 0);
+        //Rounded down in the precise mode, the value drops right below a whole unit.
+        assertNextChange("hh:mm", 125 * SECOND, true, 120 * SECOND - 1);
+        assertNextChange("mm:ss.SS", 5555, true, 5549);
+        assertNextChange("mm:ss.SS", 5550, true, 5549);
+        assertNextChange("mm:ss.SS", 5549, true, 5539);
+        assertNextChange("mm:ss.SS", 5, true, 0);
+        assertNextChange("mm:ss.SSS", 5555, true, 5554);
+        //Outside the precise mode the sub-second fields are hidden, the seconds decide.
+        assertNextChange("mm:ss.SS", 5555, false, 5000);
+        assertNextChange("'done'", 5555, false, 0);
+        assertNextChange("'done'", 5555, true, 0);
+
+        //Nothing shown changes between two changes, and something does at each one but the end.
+        String[] patterns = {"hh:mm:ss", "dd天hh", "[hh:]mm", "mm:ss.SS", "ss.SSS"};
+        for (String pattern : patterns) {
+            for (boolean precise : new boolean[]{false, true}) {
+                for (long millis = 3 * DAY; millis > 0; ) {
+                    long next = TimeFormat.compile(pattern).getNextChangeMillis(millis, precise);
+                    String message = pattern + " at " + millis + (precise ? " precise" : "");
+                    assertEquals(message, render(pattern, millis, precise), render(pattern, next + 1, precise));
+                    if (next > 0) {
+                        assertNotEquals(message, render(pattern, millis, precise), render(pattern, next, precise));
+                    }
+                    //Skip ahead through the long runs of the day pattern.
+                    millis = next;
+                    if (millis > 2 * HOUR && millis % 7 == 0) {
+                        millis -= 3 * HOUR / 2;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param expected The unit of each field token, the text of each literal token.
+     */
+    private static void assertTokens(String pattern, String... expected) {
+        TimeFormat format = TimeFormat.compile(pattern);
+        String[] tokens = new String[format.getTokenCount()];
+        for (int i = 0; i < tokens.length; i++) {
+            int type = format.getTokenType(i);
+            tokens[i] = type == TimeFormat.TYPE_LITERAL ? format.getLiteral(i) : String.valueOf(type);
+        }
+        assertArrayEquals(pattern, expected, tokens);
+    }
+
+    private static void assertMalformed(String pattern) {
+        try {
+            TimeFormat.compile(pattern);
+            fail(pattern);
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    /**
+     * @param expected The value of each unit, from days to milliseconds.
+     */
+    private static void assertValues(String pattern, long millis, boolean precise, long... expected) {
+        long[] values = new long[TimeFormat.UNIT_COUNT];
+        TimeFormat.compile(pattern).getValues(millis, precise, values);
+        assertArrayEquals(pattern + " at " + millis, expected, values);
+    }
+
+    private static void assertNextChange(String pattern, long millis, boolean precise, long expected) {
+        assertEquals(pattern + " at " + millis, expected, TimeFormat.compile(pattern).getNextChangeMillis(millis, precise));
+    }
+
+    private void assertShown(String pattern, long millis, boolean precise, String expected) {
+        assertEquals(pattern + " at " + millis, expected, render(pattern, millis, precise));
+    }
+
+    private static long getVisibleMask(String pattern, long millis) {
+        TimeFormat format = TimeFormat.compile(pattern);
+        long[] values = new long[TimeFormat.UNIT_COUNT];
+        format.getValues(millis, false, values);
+        return format.getVisibleMask(values);
+    }
+
+    /**
+     * The visible tokens, like a countdown draws them.
+     */
+    private String render(String pattern, long millis, boolean precise) {
+        TimeFormat format = TimeFormat.compile(pattern);
+        long[] values = new long[TimeFormat.UNIT_COUNT];
+        format.getValues(millis, precise, values);
+        long mask = format.getVisibleMask(values);
+        if (!precise) {
+            mask &= ~format.getSubSecondMask();
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < format.getTokenCount(); i++) {
+            if ((mask & 1L << i) == 0) {
+                continue;
+            }
+            int type = format.getTokenType(i);
+            if (type == TimeFormat.TYPE_LITERAL) {
+                builder.append(format.getLiteral(i));
+            } else {
+                builder.append(mBuffer, 0, TimeFormat.getChars(values[type], TimeFormat.getMinLength(type), mBuffer));
+            }
+        }
+        return builder.toString();
+    }
+
+    private String getChars(long value, int minLength) {
+        int count = TimeFormat.getChars(value, minLength, mBuffer);
+        return new String(mBuffer, 0, count);
+    }
+}
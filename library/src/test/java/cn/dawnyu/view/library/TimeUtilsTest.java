@@ -0,0 +1,438 @@
+package cn.dawnyu.view.library;
+
+import org.junit.Test;
+
+import java.text.DateFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * description: Date arithmetic, formatting and parsing of {@link TimeUtils}, checked against {@link Calendar}
+ * and new {@link SimpleDateFormat}s on randomized dates and fuzzed strings.
+ * <p>
+ * 时间工具类的测试：随机日期、随机字符串下与 Calendar、新建的 SimpleDateFormat 的结果对比。
+ * date: 26/10/17
+ * version:
+ */
+public class TimeUtilsTest {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    /**
+     * 1900-01-01 to 2100-01-01, after the switch to the Gregorian calendar.
+     */
+    private static final long MIN_MILLIS = -2208988800000L;
+    private static final long MAX_MILLIS = 4102444800000L;
+    private static final TimeZone[] ZONES = {
+            TimeZone.getTimeZone("UTC"), TimeZone.getTimeZone("GMT+08:00"), TimeZone.getTimeZone("GMT-03:30")};
+
+    /**
+     * Parsed by the cached SimpleDateFormat, not by the fixed layout parser.
+     */
+    private static final String[] PATTERNS = {"yyyy/MM/dd HH:mm:ss", "dd.MM.yyyy HH:mm", "yyyy-MM-dd'T'HH:mm:ss.SSS"};
+    private static final int THREAD_COUNT = 8;
+    /**
+     * The layouts read by the fixed layout parser.
+     */
+    private static final String[] FIXED_PATTERNS = {"yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd", "yyyyMMdd"};
+    /**
+     * With and without daylight saving time, the parser must skip and repeat local times like GregorianCalendar.
+     */
+    private static final TimeZone[] PARSE_ZONES = {TimeZone.getTimeZone("UTC"), TimeZone.getTimeZone("GMT+08:00"),
+            TimeZone.getTimeZone("America/New_York"), TimeZone.getTimeZone("Europe/London"),
+            TimeZone.getTimeZone("Australia/Lord_Howe")};
+    private static final String FUZZ_CHARS = "0123456789-: +.T/a";
+
+    private final Random mRandom = new Random(12);
+
+    @Test
+    public void timeIntervalMatchesCalendar() {
+        int[] interval = new int[6];
+        int[] negated = new int[6];
+        for (int i = 0; i < 100000; i++) {
+            TimeZone zone = ZONES[i % ZONES.length];
+            long previousMillis = nextMillis(MIN_MILLIS, MAX_MILLIS);
+            //Mostly less than a year apart, so the month and day borrows are hit often.
+            long nextMillis = i % 4 == 0 ? nextMillis(MIN_MILLIS, MAX_MILLIS)
+                    : previousMillis + nextMillis(0, 400 * DAY);
+            if (nextMillis < previousMillis) {
+                long millis = nextMillis;
+                nextMillis = previousMillis;
+                previousMillis = millis;
+            }
+
+            int[] expected = getIntervalByCalendar(nextMillis, previousMillis, zone);
+            String message = zone.getID() + " " + previousMillis + " to " + nextMillis;
+            TimeUtils.getTimeIntervalArray(nextMillis, previousMillis, zone, interval);
+            assertArrayEquals(message, expected, interval);
+
+            TimeUtils.getTimeIntervalArray(previousMillis, nextMillis, zone, interval);
+            for (int j = 0; j < expected.length; j++) {
+                negated[j] = -expected[j];
+            }
+            assertArrayEquals(message, negated, interval);
+        }
+    }
+
+    @Test
+    public void timeIntervalBorrowsThePreviousMonthLength() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        //01-31 to 03-01: one month to 02-28, then one day.
+        assertInterval(new int[]{0, 1, 1, 0, 0, 0}, "2017-03-01 00:00:00", "2017-01-31 00:00:00", utc);
+        assertInterval(new int[]{0, 1, 1, 0, 0, 0}, "2016-03-01 00:00:00", "2016-01-31 00:00:00", utc);
+        //03-31 to 05-01: one month to 04-30, then one day.
+        assertInterval(new int[]{0, 1, 1, 0, 0, 0}, "2017-05-01 00:00:00", "2017-03-31 00:00:00", utc);
+        //The time of day borrows a day first, 02-28 is less than a month after 01-31.
+        assertInterval(new int[]{0, 0, 28, 23, 0, 0}, "2017-03-01 09:00:00", "2017-01-31 10:00:00", utc);
+        //02-29 to 02-28 of the next year is less than a year.
+        assertInterval(new int[]{0, 11, 30, 0, 0, 1}, "2017-02-28 00:00:01", "2016-02-29 00:00:00", utc);
+    }
+
+    @Test
+    public void dateFormatsAreCachedPerThread() throws Exception {
+        final DateFormat format = TimeUtils.getDateFormat(PATTERNS[0], Locale.US);
+        assertSame(format, TimeUtils.getDateFormat(PATTERNS[0], Locale.US));
+        assertNotSame(format, TimeUtils.getDateFormat(PATTERNS[0], Locale.CHINA));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertNotSame(format, executor.submit(new Callable<DateFormat>() {
+                @Override
+                public DateFormat call() {
+                    return TimeUtils.getDateFormat(PATTERNS[0], Locale.US);
+                }
+            }).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void heldDateFormatsKeepTheirZoneAfterParsing() throws Exception {
+        DateFormat format = TimeUtils.getDateFormat(PATTERNS[0], Locale.getDefault());
+        TimeZone defaultZone = format.getTimeZone();
+        SimpleDateFormat expectedFormat = new SimpleDateFormat(PATTERNS[0], Locale.getDefault());
+        Date date = new Date(nextMillis(MIN_MILLIS, MAX_MILLIS) / 1000 * 1000);
+        String text = expectedFormat.format(date);
+
+        for (TimeZone zone : ZONES) {
+            //Parsed by a SimpleDateFormat in another zone, not by the fixed layout parser.
+            SimpleDateFormat zoneFormat = new SimpleDateFormat(PATTERNS[0], Locale.getDefault());
+            zoneFormat.setTimeZone(zone);
+            assertEquals(zoneFormat.parse(text).getTime(), TimeUtils.parseMillis(text, PATTERNS[0], zone));
+
+            assertEquals(defaultZone, format.getTimeZone());
+            assertEquals(text, format.format(date));
+            assertEquals(date.getTime(), format.parse(text).getTime());
+        }
+        assertSame(format, TimeUtils.getDateFormat(PATTERNS[0], Locale.getDefault()));
+    }
+
+    @Test
+    public void concurrentFormattingMatchesNewFormats() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final Random random = new Random(t);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int i = 0; i < 5000; i++) {
+                        String pattern = PATTERNS[random.nextInt(PATTERNS.length)];
+                        Date date = new Date(MIN_MILLIS + (long) (random.nextDouble() * (MAX_MILLIS - MIN_MILLIS)));
+                        SimpleDateFormat expectedFormat = new SimpleDateFormat(pattern, Locale.getDefault());
+
+                        String text = TimeUtils.getDateFormat(pattern, null).format(date);
+                        assertEquals(expectedFormat.format(date), text);
+                        assertEquals(expectedFormat.parse(text).getTime(), TimeUtils.parseMillis(text, pattern));
+                        assertEquals(0, TimeUtils.compareDate(text, text, pattern));
+                    }
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            //Rethrows the first failure of a thread.
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void fixedLayoutParsingMatchesSimpleDateFormat() {
+        char[] buffer = new char[32];
+        for (int i = 0; i < 200000; i++) {
+            String pattern = FIXED_PATTERNS[i % FIXED_PATTERNS.length];
+            TimeZone zone = PARSE_ZONES[mRandom.nextInt(PARSE_ZONES.length)];
+            String text = fuzz(formatRandomDate(pattern, zone));
+            long expected = parseBySimpleDateFormat(text, pattern, zone);
+
+            assertEquals(pattern + " \"" + text + "\" " + zone.getID(), expected,
+                    TimeUtils.parseMillis(text, pattern, zone));
+            if (zone.equals(TimeZone.getDefault())) {
+                //Somewhere inside a larger buffer.
+                int offset = mRandom.nextInt(buffer.length - text.length() + 1);
+                text.getChars(0, text.length(), buffer, offset);
+                assertEquals(text, expected, TimeUtils.parseMillis(buffer, offset, text.length(), pattern));
+            }
+        }
+    }
+
+    @Test
+    public void fixedLayoutParsingWorksInTheDefaultZone() {
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            for (TimeZone zone : PARSE_ZONES) {
+                TimeZone.setDefault(zone);
+                for (int i = 0; i < 10000; i++) {
+                    String pattern = FIXED_PATTERNS[i % FIXED_PATTERNS.length];
+                    String text = fuzz(formatRandomDate(pattern, zone));
+                    long expected = parseBySimpleDateFormat(text, pattern, zone);
+                    assertEquals(text, expected, TimeUtils.parseMillis(text, pattern));
+                    assertEquals(text, expected, TimeUtils.parseMillis(text.toCharArray(), 0, text.length(), pattern));
+                }
+            }
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    @Test
+    public void dateKeysOfLinkedListsMatchArrayLists() {
+        //More than one batch, so the keys are parsed on several threads.
+        List<String> dates = new LinkedList<>();
+        for (int i = 0; i < 20000; i++) {
+            dates.add(i % 100 == 0 ? "invalid" : formatRandomDate("yyyy-MM-dd", TimeZone.getDefault()));
+        }
+
+        long[] keys = TimeUtils.getDateKeys(dates, null);
+        assertArrayEquals(TimeUtils.getDateKeys(new ArrayList<>(dates), null), keys);
+        assertEquals(200, TimeUtils.getInvalidCount(keys));
+
+        int[] indexes = TimeUtils.getSortedIndexes(keys);
+        for (int i = 1; i < indexes.length - 200; i++) {
+            assertTrue(keys[indexes[i - 1]] <= keys[indexes[i]]);
+        }
+    }
+
+    @Test
+    public void batchRemainingTimesMatchSingleDeadlines() {
+        //More than two chunks, split even on a single processor.
+        TimeUtils.setBatchParallelism(4);
+        try {
+            int count = 3 * TimeUtils.BATCH_CHUNK_SIZE + 123;
+            long now = nextMillis(MIN_MILLIS + 500 * DAY, MAX_MILLIS - 500 * DAY);
+            long[] deadlines = new long[count];
+            for (int i = 0; i < count; i++) {
+                switch (mRandom.nextInt(4)) {
+                    case 0://Past, or due right now.
+                        deadlines[i] = now - nextMillis(0, 500 * DAY);
+                        break;
+                    case 1://Within a few seconds, around the rounding of the seconds.
+                        deadlines[i] = now + mRandom.nextInt(5000) - 1000;
+                        break;
+                    default:
+                        deadlines[i] = now + nextMillis(0, 500 * DAY);
+                        break;
+                }
+            }
+
+            int[] days = new int[count];
+            int[] hours = new int[count];
+            int[] minutes = new int[count];
+            int[] seconds = new int[count];
+            TimeUtils.getRemainingTimes(deadlines, now, days, hours, minutes, seconds);
+            for (int i = 0; i < count; i++) {
+                //Rounded up to whole seconds like a countdown, 0 once past.
+                long expected = Math.max(0, (long) Math.ceil((deadlines[i] - now) / 1000d));
+                String message = "Deadline " + i + " at " + (deadlines[i] - now) + "ms";
+                assertEquals(message, expected, ((days[i] * 24L + hours[i]) * 60 + minutes[i]) * 60 + seconds[i]);
+                assertTrue(message, hours[i] < 24 && minutes[i] < 60 && seconds[i] < 60);
+            }
+
+            int[][] intervals = new int[6][count];
+            int[] interval = new int[6];
+            for (TimeZone zone : ZONES) {
+                TimeUtils.getTimeIntervals(deadlines, now, zone, intervals[0], intervals[1], intervals[2],
+                        intervals[3], intervals[4], intervals[5]);
+                for (int i = 0; i < count; i++) {
+                    TimeUtils.getTimeIntervalArray(deadlines[i], now, zone, interval);
+                    for (int field = 0; field < 6; field++) {
+                        assertEquals("Deadline " + i + " field " + field, interval[field], intervals[field][i]);
+                    }
+                }
+            }
+        } finally {
+            TimeUtils.setBatchParallelism(0);
+        }
+    }
+
+    @Test
+    public void batchOutputsShorterThanTheDeadlinesThrow() {
+        long[] deadlines = new long[10];
+        for (int shortOutput = 0; shortOutput < 6; shortOutput++) {
+            int[][] outputs = new int[6][];
+            for (int i = 0; i < 6; i++) {
+                outputs[i] = new int[i == shortOutput ? 9 : 10];
+            }
+            try {
+                TimeUtils.getTimeIntervals(deadlines, 0, null,
+                        outputs[0], outputs[1], outputs[2], outputs[3], outputs[4], outputs[5]);
+                fail("Output " + shortOutput);
+            } catch (IllegalArgumentException ignored) {
+            }
+            if (shortOutput < 4) {
+                try {
+                    TimeUtils.getRemainingTimes(deadlines, 0, outputs[0], outputs[1], outputs[2], outputs[3]);
+                    fail("Output " + shortOutput);
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+        }
+        //Longer outputs are fine.
+        int[] output = new int[11];
+        TimeUtils.getRemainingTimes(deadlines, 0, output, output, output, output);
+    }
+
+    /**
+     * A random date, mostly at the small hours of spring and autumn days, when the clocks change.
+     */
+    private String formatRandomDate(String pattern, TimeZone zone) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(nextMillis(MIN_MILLIS, MAX_MILLIS));
+        if (mRandom.nextBoolean()) {
+            calendar.set(Calendar.MONTH, mRandom.nextBoolean() ? Calendar.MARCH : Calendar.OCTOBER + mRandom.nextInt(2));
+            calendar.set(Calendar.HOUR_OF_DAY, mRandom.nextInt(4));
+        }
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(zone);
+        return format.format(calendar.getTime());
+    }
+
+    /**
+     * Randomly change, insert or remove characters, or leave the text valid.
+     */
+    private String fuzz(String text) {
+        StringBuilder builder = new StringBuilder(text);
+        switch (mRandom.nextInt(6)) {
+            case 0://Out of range fields, Eg:month 13, day 31 of February, 24 o'clock.
+                int index = mRandom.nextInt(builder.length());
+                if (Character.isDigit(builder.charAt(index))) {
+                    builder.setCharAt(index, (char) ('0' + mRandom.nextInt(10)));
+                }
+                break;
+            case 1:
+                builder.setCharAt(mRandom.nextInt(builder.length()), nextFuzzChar());
+                break;
+            case 2:
+                builder.insert(mRandom.nextInt(builder.length() + 1), nextFuzzChar());
+                break;
+            case 3:
+                builder.deleteCharAt(mRandom.nextInt(builder.length()));
+                break;
+            default:
+                break;
+        }
+        return builder.toString();
+    }
+
+    private char nextFuzzChar() {
+        return FUZZ_CHARS.charAt(mRandom.nextInt(FUZZ_CHARS.length()));
+    }
+
+    private static long parseBySimpleDateFormat(String text, String pattern, TimeZone zone) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.getDefault());
+        format.setTimeZone(zone);
+        Date date = format.parse(text, new ParsePosition(0));
+        return date == null ? TimeUtils.INVALID_MILLIS : date.getTime();
+    }
+
+    private static void assertInterval(int[] expected, String next, String previous, TimeZone zone) {
+        int[] interval = new int[6];
+        TimeUtils.getTimeIntervalArray(TimeUtils.parseMillis(next, null, zone),
+                TimeUtils.parseMillis(previous, null, zone), zone, interval);
+        assertArrayEquals(next + " - " + previous + ": " + Arrays.toString(interval), expected, interval);
+    }
+
+    /**
+     * The period between the local dates as java.time.Period counts it, with the calendar arithmetic of
+     * {@link Calendar}: whole months while the day of month is reached, then the days and the time left.
+     */
+    private static int[] getIntervalByCalendar(long nextMillis, long previousMillis, TimeZone zone) {
+        Calendar next = Calendar.getInstance(zone);
+        next.setTimeInMillis(nextMillis);
+        Calendar previous = Calendar.getInstance(zone);
+        previous.setTimeInMillis(previousMillis);
+
+        int seconds = getSecondOfDay(next) - getSecondOfDay(previous);
+        //The date of next, without the time of day.
+        Calendar nextDate = Calendar.getInstance(zone);
+        nextDate.clear();
+        nextDate.set(next.get(Calendar.YEAR), next.get(Calendar.MONTH), next.get(Calendar.DAY_OF_MONTH));
+        if (seconds < 0) {
+            seconds += 24 * 60 * 60;
+            nextDate.add(Calendar.DAY_OF_MONTH, -1);
+        }
+
+        int months = (nextDate.get(Calendar.YEAR) - previous.get(Calendar.YEAR)) * 12
+                + nextDate.get(Calendar.MONTH) - previous.get(Calendar.MONTH);
+        if (months > 0 && nextDate.get(Calendar.DAY_OF_MONTH) < previous.get(Calendar.DAY_OF_MONTH)) {
+            months--;
+        }
+
+        //Calendar clamps the day of month to the length of the month.
+        Calendar date = Calendar.getInstance(zone);
+        date.clear();
+        date.set(previous.get(Calendar.YEAR), previous.get(Calendar.MONTH), previous.get(Calendar.DAY_OF_MONTH));
+        date.add(Calendar.MONTH, months);
+        int days = 0;
+        while (date.before(nextDate)) {
+            date.add(Calendar.DAY_OF_MONTH, 1);
+            days++;
+        }
+
+        return new int[]{months / 12, months % 12, days, seconds / 3600, seconds / 60 % 60, seconds % 60};
+    }
+
+    private static int getSecondOfDay(Calendar calendar) {
+        return (calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE)) * 60
+                + calendar.get(Calendar.SECOND);
+    }
+
+    /**
+     * @return Uniform in [min, max).
+     */
+    private long nextMillis(long min, long max) {
+        return min + (long) (mRandom.nextDouble() * (max - min));
+    }
+}
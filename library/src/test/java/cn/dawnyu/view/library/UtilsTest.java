@@ -0,0 +1,202 @@
+package cn.dawnyu.view.library;
+
+import android.content.Context;
+import android.util.DisplayMetrics;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * description: {@link Utils} number parsing against {@link Double#parseDouble(String)}, and the px cache.
+ * <p>
+ * 数字解析与 Double.parseDouble 对比的测试，以及尺寸转换缓存的测试。
+ * date: 26/10/17
+ * version:
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 25)
+public class UtilsTest {
+    /**
+     * The decimal numbers {@link Utils#parseDouble(CharSequence, double)} accepts, once trimmed.
+     */
+    private static final Pattern DECIMAL = Pattern.compile("[+-]?([0-9]+\\.?[0-9]*|\\.[0-9]+)([eE][+-]?[0-9]+)?");
+    private static final String FUZZ_CHARS = "+-.eE0123456789 \tfdxXNaInfity";
+
+    @Test
+    public void parseDoubleMatchesDoubleParseDouble() {
+        Random random = new Random(17);
+        for (int i = 0; i < 500000; i++) {
+            String text = formatRandomNumber(random);
+            if (random.nextInt(4) == 0) {
+                text = fuzz(random, text);
+            }
+            assertParsesLikeDouble(text);
+        }
+    }
+
+    @Test
+    public void parseDoubleEdgeCases() {
+        String[] texts = {
+                //Fast path, at most 15 digits and an exponent within 22.
+                "0", "12", "-1.5", "+1.5", ".5", "1.", "-.25", "123456789012345", "0.000000000000001",
+                "1e22", "1e-22", "999999999999999e22", "000000000000000000000012.5", "0.1", "0.3",
+                //Long mantissas and large exponents, parsed by Double.parseDouble.
+                "1234567890123456", "12345678901234567890123", "0.12345678901234567890", "1e23", "1e-23",
+                "9007199254740993", "2.2250738585072011e-308", "4.9e-324", "1e400", "-1e400", "1e-400",
+                "1e100000000000", "1.7976931348623158e308", "1.7976931348623159e308",
+                //Signs and whitespace.
+                "-0", "+0", "-0.0", "-0e5", " 12 ", "\t-1.5\n", "  .5e1  ",
+                //Not decimal numbers.
+                "", " ", ".", "-", "+", "-.", "1e", "1e+", "e5", ".e5", "1.2.3", "1e5.5", "--1", "+-1", "1 2",
+                "1f", "1d", "NaN", "Infinity", "-Infinity", "0x10", "0x1p3", "1,5"};
+        for (String text : texts) {
+            assertParsesLikeDouble(text);
+        }
+        assertTrue(Double.doubleToLongBits(Utils.parseDouble("-0", 1)) == Double.doubleToLongBits(-0d));
+        assertEquals(1, Utils.parseDouble(null, 1), 0);
+    }
+
+    @Test
+    public void javaLiteralsAreNotNumbers() {
+        for (String text : new String[]{"1f", "1d", "NaN", "Infinity", "0x10", "0x1p3"}) {
+            assertFalse(text, Utils.canParseDouble(text));
+        }
+        assertFalse(Utils.canParseDouble(null));
+        assertTrue(Utils.canParseDouble(" -1.5e3 "));
+    }
+
+    @Test
+    public void parseIntDropsTheFraction() {
+        assertEquals(1, Utils.getInt("1.5"));
+        assertEquals(-1, Utils.getInt("-1.9"));
+        assertEquals(1000, Utils.getInt("1e3"));
+        assertEquals(Integer.MAX_VALUE, Utils.getInt("2147483647.9"));
+        assertEquals(Integer.MIN_VALUE, Utils.getInt("-2147483648.9"));
+        assertEquals(0, Utils.getInt("2147483648"));
+        assertEquals(0, Utils.getInt("-2147483649"));
+        assertEquals(0, Utils.getInt("abc"));
+        assertEquals(0, Utils.getInt(null));
+        assertEquals(7, Utils.parseInt("1e10", 7));
+    }
+
+    @Test
+    public void pxCacheMissesWhenTheDensityChanges() {
+        Context context = RuntimeEnvironment.application;
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        float density = metrics.density;
+        float scaledDensity = metrics.scaledDensity;
+        try {
+            metrics.density = 2;
+            metrics.scaledDensity = 2;
+            assertEquals(21, Utils.getDip2Px(context, "10.5"));
+            assertEquals(21, Utils.getSp2Px(context, "10.5"));
+
+            //Another screen density.
+            metrics.density = 3;
+            assertEquals(31, Utils.getDip2Px(context, "10.5"));
+            assertEquals(21, Utils.getSp2Px(context, "10.5"));
+
+            //Another font scale.
+            metrics.scaledDensity = 4.5f;
+            assertEquals(31, Utils.getDip2Px(context, "10.5"));
+            assertEquals(47, Utils.getSp2Px(context, "10.5"));
+
+            //Back to the first density, the same string is converted the same way.
+            metrics.density = 2;
+            metrics.scaledDensity = 2;
+            assertEquals(21, Utils.getDip2Px(context, "10.5"));
+            assertEquals(21, Utils.getSp2Px(context, "10.5"));
+            assertEquals(0, Utils.getDip2Px(context, "abc"));
+            assertEquals(0, Utils.getDip2Px(context, (String) null));
+        } finally {
+            metrics.density = density;
+            metrics.scaledDensity = scaledDensity;
+        }
+    }
+
+    /**
+     * Decimal numbers of every shape: signs, leading zeros, long and short mantissas, exponents and whitespace.
+     */
+    private static String formatRandomNumber(Random random) {
+        StringBuilder builder = new StringBuilder();
+        appendWhitespace(random, builder);
+        int sign = random.nextInt(3);
+        if (sign > 0) {
+            builder.append(sign == 1 ? '-' : '+');
+        }
+        if (random.nextInt(4) == 0) {
+            appendDigits(random, builder, random.nextInt(4), '0');
+        }
+        //Mostly within the 15 digits of the fast path.
+        int integerDigits = random.nextInt(3) == 0 ? random.nextInt(25) : random.nextInt(9);
+        appendDigits(random, builder, integerDigits, (char) 0);
+        if (random.nextBoolean()) {
+            builder.append('.');
+            appendDigits(random, builder, random.nextInt(3) == 0 ? random.nextInt(25) : random.nextInt(8), (char) 0);
+        }
+        if (random.nextInt(3) == 0) {
+            builder.append(random.nextBoolean() ? 'e' : 'E');
+            int exponentSign = random.nextInt(3);
+            if (exponentSign > 0) {
+                builder.append(exponentSign == 1 ? '-' : '+');
+            }
+            //Mostly within the 22 of the fast path.
+            builder.append(random.nextInt(4) == 0 ? random.nextInt(400) : random.nextInt(23));
+        }
+        appendWhitespace(random, builder);
+        return builder.toString();
+    }
+
+    private static void appendDigits(Random random, StringBuilder builder, int count, char digit) {
+        for (int i = 0; i < count; i++) {
+            builder.append(digit != 0 ? digit : (char) ('0' + random.nextInt(10)));
+        }
+    }
+
+    private static void appendWhitespace(Random random, StringBuilder builder) {
+        if (random.nextInt(5) == 0) {
+            builder.append(random.nextBoolean() ? ' ' : '\t');
+        }
+    }
+
+    /**
+     * Replace, insert or delete one character.
+     */
+    private static String fuzz(Random random, String text) {
+        int index = random.nextInt(text.length() + 1);
+        char c = FUZZ_CHARS.charAt(random.nextInt(FUZZ_CHARS.length()));
+        switch (random.nextInt(3)) {
+            case 0:
+                return text.substring(0, index) + c + text.substring(index);
+            case 1:
+                return index < text.length() ? text.substring(0, index) + c + text.substring(index + 1) : text;
+            default:
+                return index < text.length() ? text.substring(0, index) + text.substring(index + 1) : text;
+        }
+    }
+
+    private static void assertParsesLikeDouble(String text) {
+        double value = Utils.parseDouble(text, Double.NaN);
+        String trimmed = text.trim();
+        if (DECIMAL.matcher(trimmed).matches()) {
+            double expected = Double.parseDouble(trimmed);
+            assertEquals("\"" + text + "\"", Double.doubleToLongBits(expected), Double.doubleToLongBits(value));
+            //The fraction is dropped, out of the int range is the default value.
+            int expectedInt = expected >= Integer.MAX_VALUE + 1d || expected <= Integer.MIN_VALUE - 1d ? 7 : (int) expected;
+            assertEquals("\"" + text + "\"", expectedInt, Utils.parseInt(text, 7));
+        } else {
+            assertTrue("\"" + text + "\" is " + value, Double.isNaN(value));
+            assertFalse("\"" + text + "\"", Utils.canParseDouble(text));
+        }
+    }
+}